@@ -46,6 +46,7 @@ import com.riiablo.console.RenderedConsole;
 import com.riiablo.cvar.Cvar;
 import com.riiablo.cvar.CvarStateAdapter;
 import com.riiablo.entity.Engine;
+import com.riiablo.graphics.PaletteIndexedAtlas;
 import com.riiablo.graphics.PaletteIndexedBatch;
 import com.riiablo.loader.BitmapFontLoader;
 import com.riiablo.loader.DC6Loader;
@@ -73,6 +74,7 @@ public class Client extends Game {
 
   private static final boolean DEBUG_AUDIO_UNPACKER = !true;
   private static final boolean DEBUG_VIEWPORTS = !true;
+  private static final boolean DEBUG_BATCH = !true;
 
   private final Matrix4 BATCH_RESET = new Matrix4();
 
@@ -88,6 +90,7 @@ public class Client extends Game {
   private ScalingViewport       scalingViewport;
   private ExtendViewport        extendViewport;
   private PaletteIndexedBatch   batch;
+  private PaletteIndexedAtlas   atlas;
   private ShaderProgram         shader;
   private ShapeRenderer         shapes;
   private MPQFileHandleResolver mpqs;
@@ -313,6 +316,7 @@ public class Client extends Game {
         Gdx.files.internal("shaders/indexpalette3.vert"),
         Gdx.files.internal("shaders/indexpalette3.frag"));
     Riiablo.batch = batch = new PaletteIndexedBatch(1024, shader); // TODO: adjust this as needed
+    Riiablo.atlas = atlas = new PaletteIndexedAtlas();
     Riiablo.shapes = shapes = new ShapeRenderer();
 
     bindCvars();
@@ -376,6 +380,7 @@ public class Client extends Game {
   @Override
   public void render() {
     Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+    batch.resetStats();
 
     Camera camera = viewport.getCamera();
     camera.update();
@@ -435,7 +440,14 @@ public class Client extends Game {
     BitmapFont font = console.getFont();
     if (font == null) return;
 
-    fps.setText(font, Integer.toString(Gdx.graphics.getFramesPerSecond()));
+    if (DEBUG_BATCH) {
+      fps.setText(font, Gdx.graphics.getFramesPerSecond()
+          + " binds=" + batch.getTextureSwitches()
+          + " flushes=" + batch.getFlushes()
+          + " atlas=" + atlas.getNumRegions() + "/" + atlas.getNumPages());
+    } else {
+      fps.setText(font, Integer.toString(Gdx.graphics.getFramesPerSecond()));
+    }
     int drawFpsMethod = this.drawFpsMethod;
     if (forceDrawFps && drawFpsMethod == 0) {
       drawFpsMethod = 1;
@@ -481,6 +493,7 @@ public class Client extends Game {
     Riiablo.scalingViewport = scalingViewport;
     Riiablo.extendViewport = extendViewport;
     Riiablo.batch = batch;
+    Riiablo.atlas = atlas;
     Riiablo.shader = shader;
     Riiablo.shapes = shapes;
     Riiablo.mpqs = mpqs;
@@ -538,6 +551,7 @@ public class Client extends Game {
     colormaps.dispose();
     textures.dispose();
     assets.dispose();
+    atlas.dispose();
 
     try {
       Gdx.app.debug(TAG, "Resetting stdout...");
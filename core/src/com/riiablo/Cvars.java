@@ -184,6 +184,26 @@ public class Cvars {
           .build();
     }
 
+    interface Engine {
+      Cvar<Boolean> EntityStore = Cvar.builder(Boolean.class)
+          .alias("Client.Engine.EntityStore")
+          .description(
+              "Whether or not entities are moved by the data-oriented entity store and its " +
+              "systems instead of individually. (Experimental)")
+          .defaultValue(Boolean.FALSE)
+          .validator(Validator.ACCEPT_NON_NULL)
+          .build();
+
+      Cvar<Integer> AIBudget = Cvar.builder(Integer.class)
+          .alias("Client.Engine.AIBudget")
+          .description(
+              "Limits the time per frame spent ticking monster AIs, in microseconds. AIs which " +
+              "don't fit are deferred to the next frame. 0=Unlimited")
+          .defaultValue(0)
+          .validator(NumberRangeValidator.of(Integer.class, 0, null))
+          .build();
+    }
+
     interface Input {
       Cvar<Boolean> Vibration = Cvar.builder(Boolean.class)
           .alias("Client.Input.Vibration")
@@ -1,10 +1,15 @@
 package com.riiablo;
 
+import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.ObjectSet;
-import com.riiablo.codec.TXT;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.riiablo.codec.excel.ArmType;
 import com.riiablo.codec.excel.Armor;
 import com.riiablo.codec.excel.BodyLocs;
@@ -14,6 +19,7 @@ import com.riiablo.codec.excel.CompCode;
 import com.riiablo.codec.excel.Composit;
 import com.riiablo.codec.excel.DifficultyLevels;
 import com.riiablo.codec.excel.Excel;
+import com.riiablo.codec.excel.ExcelCache;
 import com.riiablo.codec.excel.Gems;
 import com.riiablo.codec.excel.Inventory;
 import com.riiablo.codec.excel.ItemStatCost;
@@ -52,7 +58,20 @@ import com.riiablo.codec.excel.UniqueItems;
 import com.riiablo.codec.excel.WeaponClass;
 import com.riiablo.codec.excel.Weapons;
 
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
 public class Files {
+  private static final String TAG = "Files";
+
+  /** local directory of {@link ExcelCache compiled} excels */
+  static final String CACHE_DIR = "cache/excel/";
+
   public final Obj    obj;
   public final Speech speech;
   public final Quests quests;
@@ -103,79 +122,247 @@ public class Files {
   public final Weapons          weapons;
 
   public Files(AssetManager assets) {
-    obj    = loadInternal(Obj.class);
-    speech = loadInternal(Speech.class);
-    quests = loadInternal(Quests.class);
-
-    armor            = load(assets, Armor.class, Excel.EXPANSION);
-    ArmType          = load(assets, ArmType.class);
-    bodylocs         = load(assets, BodyLocs.class);
-    CharStats        = load(assets, CharStats.class, Excel.EXPANSION);
-    colors           = load(assets, Colors.class);
-    Composit         = load(assets, Composit.class);
-    compcode         = load(assets, CompCode.class);
-    DifficultyLevels = load(assets, DifficultyLevels.class);
-    Gems             = load(assets, Gems.class, Excel.EXPANSION);
-    inventory        = load(assets, Inventory.class);
-    ItemStatCost     = load(assets, ItemStatCost.class);
-    ItemTypes        = load(assets, ItemTypes.class);
-    Levels           = load(assets, Levels.class, Excel.EXPANSION);
-    LowQualityItems  = load(assets, LowQualityItems.class);
-    LvlPrest         = load(assets, LvlPrest.class);
-    LvlTypes         = load(assets, LvlTypes.class);
-    LvlWarp          = load(assets, LvlWarp.class, Excel.EXPANSION);
-    misc             = load(assets, Misc.class, Excel.EXPANSION);
-    MagicPrefix      = load(assets, MagicPrefix.class, Excel.EXPANSION);
-    MagicSuffix      = load(assets, MagicSuffix.class, Excel.EXPANSION);
-    MonAI            = load(assets, MonAI.class);
-    MonMode          = load(assets, MonMode.class);
-    monstats         = load(assets, MonStats.class, Excel.EXPANSION);
-    monstats2        = load(assets, MonStats2.class, Excel.EXPANSION);
-    RarePrefix       = load(assets, RarePrefix.class, Excel.EXPANSION);
-    RareSuffix       = load(assets, RareSuffix.class, Excel.EXPANSION);
-    Runes            = load(assets, Runes.class);
-    objects          = load(assets, Objects.class);
-    ObjMode          = load(assets, ObjMode.class);
-    Overlay          = load(assets, Overlay.class, Excel.EXPANSION);
-    PlrMode          = load(assets, PlrMode.class);
-    PlrType          = load(assets, PlrType.class);
-    Properties       = load(assets, Properties.class, Excel.EXPANSION);
-    QualityItems     = load(assets, QualityItems.class);
-    Sets             = load(assets, Sets.class, Excel.EXPANSION);
-    SetItems         = load(assets, SetItems.class, Excel.EXPANSION);
-    skills           = load(assets, Skills.class);
-    skilldesc        = load(assets, SkillDesc.class);
-    Sounds           = load(assets, Sounds.class);
-    UniqueItems      = load(assets, UniqueItems.class, Excel.EXPANSION);
-    //UniquePrefix   = load(assets, UniquePrefix.class);
-    //UniqueSuffix   = load(assets, UniqueSuffix.class);
-    WeaponClass      = load(assets, WeaponClass.class);
-    weapons          = load(assets, Weapons.class, Excel.EXPANSION);
+    Loader loader = new Loader();
+    try {
+      loader.loadInternal(Obj.class);
+      loader.loadInternal(Speech.class);
+      loader.loadInternal(Quests.class);
+
+      loader.load(Armor.class, Excel.EXPANSION);
+      loader.load(ArmType.class);
+      loader.load(BodyLocs.class);
+      loader.load(CharStats.class, Excel.EXPANSION);
+      loader.load(Colors.class);
+      loader.load(Composit.class);
+      loader.load(CompCode.class);
+      loader.load(DifficultyLevels.class);
+      loader.load(Gems.class, Excel.EXPANSION);
+      loader.load(Inventory.class);
+      loader.load(ItemStatCost.class);
+      loader.load(ItemTypes.class);
+      loader.load(Levels.class, Excel.EXPANSION);
+      loader.load(LowQualityItems.class);
+      loader.load(LvlPrest.class);
+      loader.load(LvlTypes.class);
+      loader.load(LvlWarp.class, Excel.EXPANSION);
+      loader.load(Misc.class, Excel.EXPANSION);
+      loader.load(MagicPrefix.class, Excel.EXPANSION);
+      loader.load(MagicSuffix.class, Excel.EXPANSION);
+      loader.load(MonAI.class);
+      loader.load(MonMode.class);
+      loader.load(MonStats.class, Excel.EXPANSION);
+      loader.load(MonStats2.class, Excel.EXPANSION);
+      loader.load(RarePrefix.class, Excel.EXPANSION);
+      loader.load(RareSuffix.class, Excel.EXPANSION);
+      loader.load(Runes.class);
+      loader.load(Objects.class);
+      loader.load(ObjMode.class);
+      loader.load(Overlay.class, Excel.EXPANSION);
+      loader.load(PlrMode.class);
+      loader.load(PlrType.class);
+      loader.load(Properties.class, Excel.EXPANSION);
+      loader.load(QualityItems.class);
+      loader.load(Sets.class, Excel.EXPANSION);
+      loader.load(SetItems.class, Excel.EXPANSION);
+      loader.load(Skills.class);
+      loader.load(SkillDesc.class);
+      loader.load(Sounds.class);
+      loader.load(UniqueItems.class, Excel.EXPANSION);
+      //loader.load(UniquePrefix.class);
+      //loader.load(UniqueSuffix.class);
+      loader.load(WeaponClass.class);
+      loader.load(Weapons.class, Excel.EXPANSION);
+
+      obj    = loader.get(Obj.class);
+      speech = loader.get(Speech.class);
+      quests = loader.get(Quests.class);
 
+      armor            = loader.get(Armor.class);
+      ArmType          = loader.get(ArmType.class);
+      bodylocs         = loader.get(BodyLocs.class);
+      CharStats        = loader.get(CharStats.class);
+      colors           = loader.get(Colors.class);
+      Composit         = loader.get(Composit.class);
+      compcode         = loader.get(CompCode.class);
+      DifficultyLevels = loader.get(DifficultyLevels.class);
+      Gems             = loader.get(Gems.class);
+      inventory        = loader.get(Inventory.class);
+      ItemStatCost     = loader.get(ItemStatCost.class);
+      ItemTypes        = loader.get(ItemTypes.class);
+      Levels           = loader.get(Levels.class);
+      LowQualityItems  = loader.get(LowQualityItems.class);
+      LvlPrest         = loader.get(LvlPrest.class);
+      LvlTypes         = loader.get(LvlTypes.class);
+      LvlWarp          = loader.get(LvlWarp.class);
+      misc             = loader.get(Misc.class);
+      MagicPrefix      = loader.get(MagicPrefix.class);
+      MagicSuffix      = loader.get(MagicSuffix.class);
+      MonAI            = loader.get(MonAI.class);
+      MonMode          = loader.get(MonMode.class);
+      monstats         = loader.get(MonStats.class);
+      monstats2        = loader.get(MonStats2.class);
+      RarePrefix       = loader.get(RarePrefix.class);
+      RareSuffix       = loader.get(RareSuffix.class);
+      Runes            = loader.get(Runes.class);
+      objects          = loader.get(Objects.class);
+      ObjMode          = loader.get(ObjMode.class);
+      Overlay          = loader.get(Overlay.class);
+      PlrMode          = loader.get(PlrMode.class);
+      PlrType          = loader.get(PlrType.class);
+      Properties       = loader.get(Properties.class);
+      QualityItems     = loader.get(QualityItems.class);
+      Sets             = loader.get(Sets.class);
+      SetItems         = loader.get(SetItems.class);
+      skills           = loader.get(Skills.class);
+      skilldesc        = loader.get(SkillDesc.class);
+      Sounds           = loader.get(Sounds.class);
+      UniqueItems      = loader.get(UniqueItems.class);
+      //UniquePrefix   = loader.get(UniquePrefix.class);
+      //UniqueSuffix   = loader.get(UniqueSuffix.class);
+      WeaponClass      = loader.get(WeaponClass.class);
+      weapons          = loader.get(Weapons.class);
+    } finally {
+      loader.dispose();
+    }
+
+    loader.report();
     Sets.index(SetItems);
+    monstats.index(MonMode);
+    monstats2.index(WeaponClass, compcode);
   }
 
-  private <T extends Excel> T loadInternal(Class<T> clazz) {
-    return loadInternal(clazz, clazz.getSimpleName().toLowerCase());
+  private static FileHandle cache(Class<? extends Excel> clazz) {
+    if (!Gdx.files.isLocalStorageAvailable()) return null;
+    return Gdx.files.local(CACHE_DIR + clazz.getSimpleName() + ".bin");
   }
 
-  private <T extends Excel> T loadInternal(Class<T> clazz, String filename) {
-    FileHandle handle = Gdx.files.internal("data/" + filename + ".txt");
-    TXT txt = TXT.loadFromFile(handle);
-    return Excel.parse(txt, clazz);
-  }
+  /**
+   * Loads excels on a pool of worker threads. Reading a table from the MPQs, decompressing it and
+   * parsing it is independent of every other table (no excel reads another while it is parsed), so
+   * all are submitted up front and each is only waited for when it is assigned.
+   */
+  static final class Loader implements Disposable {
+    static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
 
-  private <T extends Excel> T load(AssetManager assets, Class<T> clazz, ObjectSet<String> ignore) {
-    return load(assets, clazz, clazz.getSimpleName(), ignore);
-  }
+    final ExecutorService executor;
+    final ObjectMap<Class, Task> tasks = new ObjectMap<>();
+    final Array<Task> order = new Array<>();
+    final long startTime = TimeUtils.nanoTime();
+    long endTime;
 
-  private <T extends Excel> T load(AssetManager assets, Class<T> clazz) {
-    return load(assets, clazz, clazz.getSimpleName(), Excel.<String>emptySet());
-  }
+    Loader() {
+      executor = Executors.newFixedThreadPool(NUM_THREADS, new ThreadFactory() {
+        int id;
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, TAG + "-" + id++);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    void loadInternal(Class<? extends Excel> clazz) {
+      submit(new Task(clazz, null, Excel.<String>emptySet()) {
+        @Override
+        FileHandle resolve() {
+          return Gdx.files.internal("data/" + clazz.getSimpleName().toLowerCase() + ".txt");
+        }
+      });
+    }
+
+    void load(Class<? extends Excel> clazz) {
+      load(clazz, Excel.<String>emptySet());
+    }
+
+    void load(Class<? extends Excel> clazz, ObjectSet<String> ignore) {
+      submit(new Task(clazz, clazz.getSimpleName(), ignore) {
+        @Override
+        FileHandle resolve() {
+          return Riiablo.mpqs.resolve("data\\global\\excel\\" + tableName + ".txt");
+        }
+      });
+    }
+
+    private void submit(Task task) {
+      tasks.put(task.clazz, task);
+      order.add(task);
+      task.future = executor.submit(task);
+    }
+
+    /**
+     * Waits for {@code clazz} to be loaded.
+     */
+    @SuppressWarnings("unchecked")
+    <T extends Excel> T get(Class<T> clazz) {
+      Task task = tasks.get(clazz);
+      if (task == null) throw new GdxRuntimeException(clazz + " was never loaded");
+      try {
+        return (T) task.future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new GdxRuntimeException("Interrupted while loading " + clazz, e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof GdxRuntimeException) throw (GdxRuntimeException) cause;
+        throw new GdxRuntimeException("Couldn't load " + clazz, cause);
+      }
+    }
+
+    /**
+     * Logs how long the whole load took, and at debug level how long each table took, slowest
+     * first.
+     */
+    void report() {
+      final long elapsed = endTime - startTime;
+      long work = 0;
+      for (Task task : order) work += task.time;
+      Gdx.app.log(TAG, String.format("Loaded %d excels in %d ms (%d ms of work on %d threads)",
+          order.size, elapsed / 1000000, work / 1000000, NUM_THREADS));
+      if (Gdx.app.getLogLevel() < Application.LOG_DEBUG) return;
+      Array<Task> slowest = new Array<>(order);
+      slowest.sort(new Comparator<Task>() {
+        @Override
+        public int compare(Task a, Task b) {
+          return Long.compare(b.time, a.time);
+        }
+      });
+      for (Task task : slowest) {
+        Gdx.app.debug(TAG, String.format("%-16s %6.2f ms", task.clazz.getSimpleName(), task.time / 1e6));
+      }
+    }
+
+    @Override
+    public void dispose() {
+      executor.shutdownNow();
+      endTime = TimeUtils.nanoTime();
+    }
+
+    static abstract class Task implements Callable<Excel> {
+      final Class<? extends Excel> clazz;
+      final String tableName;
+      final ObjectSet<String> ignore;
+      Future<Excel> future;
+      long time;
+
+      Task(Class<? extends Excel> clazz, String tableName, ObjectSet<String> ignore) {
+        this.clazz = clazz;
+        this.tableName = tableName;
+        this.ignore = ignore;
+      }
+
+      abstract FileHandle resolve();
 
-  private <T extends Excel> T load(AssetManager assets, Class<T> clazz, String tableName, ObjectSet<String> ignore) {
-    FileHandle handle = Riiablo.mpqs.resolve("data\\global\\excel\\" + tableName + ".txt");
-    TXT txt = TXT.loadFromFile(handle);
-    return Excel.parse(txt, clazz, ignore);
+      @Override
+      public Excel call() {
+        final long start = TimeUtils.nanoTime();
+        try {
+          return ExcelCache.load(resolve(), cache(clazz), clazz, ignore);
+        } finally {
+          time = TimeUtils.nanoTime() - start;
+        }
+      }
+    }
   }
 }
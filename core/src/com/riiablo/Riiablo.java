@@ -13,6 +13,7 @@ import com.riiablo.audio.MusicController;
 import com.riiablo.codec.StringTBLs;
 import com.riiablo.console.RenderedConsole;
 import com.riiablo.entity.Engine;
+import com.riiablo.graphics.PaletteIndexedAtlas;
 import com.riiablo.graphics.PaletteIndexedBatch;
 import com.riiablo.mpq.MPQFileHandleResolver;
 
@@ -30,6 +31,7 @@ public class Riiablo {
   public static ScalingViewport       scalingViewport; // 480p -> 360p for mobile
   public static ExtendViewport        extendViewport;  // 480p /w dynamic width
   public static PaletteIndexedBatch   batch;
+  public static PaletteIndexedAtlas   atlas;
   public static ShaderProgram         shader;
   public static ShapeRenderer         shapes;
   public static MPQFileHandleResolver mpqs;
@@ -3,20 +3,65 @@ package com.riiablo.ai;
 import com.riiablo.entity.Monster;
 import com.riiablo.screen.GameScreen;
 
+import java.util.Random;
+
+/**
+ * Decision making of a {@link Monster}, run by {@link AIScheduler} in two steps:
+ * {@link #tick(float)} runs every frame on the thread which owns the entities and decides whether
+ * the AI needs to think, and {@link #think(Snapshot, Random, Intent)} makes the decision. Thinking
+ * may run on a worker thread alongside other AIs, so it must only read its own entity and the
+ * snapshot, only write to fields of this AI, record effects in the intent, and draw all randomness
+ * from the given generator.
+ */
 public abstract class AI {
   public static final AI IDLE = new Idle();
 
   protected Monster entity;
 
+  // scheduling state owned by AIScheduler
+  int     phase = -1; // offsets the frames this AI ticks on so AIs sharing an interval are spread out
+  float   elapsed;    // time accumulated since this AI last ticked
+  boolean deferred;   // was due but didn't fit within the budget
+
   public AI(Monster entity) {
     this.entity = entity;
   }
 
   public void interact(GameScreen gameScreen) {}
 
-  public void update(float delta) {}
+  /**
+   * Advances the timers of this AI.
+   *
+   * @return whether or not this AI should think this tick
+   */
+  public boolean tick(float delta) {
+    return false;
+  }
+
+  public void think(Snapshot world, Random random, Intent intent) {}
 
   public String getState() {
     return "";
   }
+
+  /**
+   * @see com.badlogic.gdx.math.MathUtils#random(int, int)
+   */
+  protected static int random(Random random, int start, int end) {
+    return start + random.nextInt(end - start + 1);
+  }
+
+  /**
+   * @see com.badlogic.gdx.math.MathUtils#random(float, float)
+   */
+  protected static float random(Random random, float start, float end) {
+    return start + random.nextFloat() * (end - start);
+  }
+
+  /**
+   * @see com.badlogic.gdx.math.MathUtils#randomBoolean(float)
+   */
+  protected static boolean randomBoolean(Random random, float chance) {
+    return random.nextFloat() < chance;
+  }
 }
@@ -0,0 +1,436 @@
+package com.riiablo.ai;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.riiablo.entity.Engine;
+import com.riiablo.entity.Entity;
+import com.riiablo.entity.Monster;
+import com.riiablo.entity.Player;
+import com.riiablo.map.Map;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the {@link AI} of every monster in three phases:
+ * <ol>
+ *   <li>the AIs which are due {@link AI#tick(float) tick} and the world is captured into a
+ *       {@link Snapshot},
+ *   <li>the AIs which asked to {@link AI#think(Snapshot, java.util.Random, Intent) think} do so,
+ *       spread across worker threads when there are enough of them,
+ *   <li>their {@link Intent intents} are applied to their monsters in tick order.
+ * </ol>
+ * Monsters in zones without players hibernate, unless a player is within {@link #ACTIVE_RANGE}.
+ * The others tick every frame near a player and, further away, at a power of two interval derived
+ * from their {@code aidel}, offset by a per-AI phase so that AIs sharing an interval are spread
+ * evenly across frames. Each tick is passed the time
+ * elapsed since the AI's last one. With a {@link #setBudget(int) budget}, due AIs which don't fit
+ * within it are deferred to the next frame, ahead of the AIs due then.
+ * <p>
+ * Each AI thinks against the same snapshot with its own generator, seeded from the scheduler seed,
+ * the tick and the monster's position within the tick order, so the outcome doesn't depend on
+ * which thread ran which AI and a parallel run makes exactly the same decisions as a serial run
+ * with the same seed. {@link #getChecksum()} digests every committed decision to verify that. A
+ * budget makes which AIs are deferred depend on timing, so replays should run without one.
+ */
+public class AIScheduler implements Disposable {
+  private static final String TAG = "AIScheduler";
+  private static final boolean DEBUG        = true;
+  private static final boolean DEBUG_THINKS = DEBUG && !true;
+  private static final boolean DEBUG_BUDGET = DEBUG && !true;
+
+  /** minimum number of AIs thinking in a tick before it's worth spreading them across threads */
+  public static final int PARALLEL_THRESHOLD = 64;
+
+  /** sub-tiles from the nearest player within which AIs tick every frame */
+  public static final float ACTIVE_RANGE = 48;
+
+  /** sub-tiles from the nearest player past which AIs tick at their slowest rate */
+  public static final float FAR_RANGE = 128;
+
+  /** longest interval in frames between two ticks of an AI which isn't hibernating */
+  public static final int MAX_INTERVAL = 16;
+
+  /** fewest AIs ticked per frame when over budget, so deferred AIs always drain */
+  public static final int MIN_TICKS = 8;
+
+  static final int NUM_THREADS = Math.max(0, Runtime.getRuntime().availableProcessors() - 1);
+
+  final Map map;
+  final Engine engine;
+  final Snapshot snapshot = new Snapshot();
+
+  final Array<Entity>   entities = new Array<>(false, 64);
+  final Array<Map.Zone> occupied = new Array<>(false, 4);
+  final Array<Monster>  due      = new Array<>(Monster.class);
+  final Array<Monster>  ticking  = new Array<>(Monster.class);
+  final Array<Monster>  thinking = new Array<>(Monster.class);
+  Intent     intents[] = new Intent[0];
+  RandomXS128 randoms[] = new RandomXS128[0];
+
+  final int numThreads;
+  ExecutorService executor;
+  final Batch batches[];
+
+  long    seed;
+  int     tick;
+  int     checksum;
+  boolean parallel;
+  int     nextPhase;
+
+  long  budget;  // nanoseconds, 0 if unlimited
+  float avgCost; // moving average of the nanoseconds spent per ticked AI
+
+  int ticked;
+  int deferred;
+  int hibernating;
+
+  public AIScheduler(Map map, Engine engine) {
+    this(map, engine, 0);
+  }
+
+  public AIScheduler(Map map, Engine engine, long seed) {
+    this(map, engine, seed, NUM_THREADS);
+  }
+
+  /**
+   * @param numThreads worker threads AIs think on besides the calling thread
+   */
+  AIScheduler(Map map, Engine engine, long seed, int numThreads) {
+    this.map = map;
+    this.engine = engine;
+    this.seed = seed;
+    this.numThreads = numThreads;
+    parallel = numThreads > 0;
+    batches = new Batch[numThreads + 1];
+    for (int i = 0; i < batches.length; i++) batches[i] = new Batch();
+  }
+
+  public void update(float delta) {
+    entities.size = 0;
+    if (map != null) map.getEntities(entities);
+    if (engine != null) for (Entity entity : engine.newIterator()) entities.add(entity);
+
+    snapshot.clear();
+    snapshot.delta = delta;
+    snapshot.tick = tick;
+    occupied.size = 0;
+    for (int i = 0, s = entities.size; i < s; i++) {
+      Entity entity = entities.get(i);
+      if (!(entity instanceof Player)) continue;
+      snapshot.add(entity);
+      if (map != null) {
+        Map.Zone zone = map.getZone(entity.position());
+        if (zone != null && !occupied.contains(zone, true)) occupied.add(zone);
+      }
+    }
+
+    schedule(delta);
+    entities.size = 0;
+    defer();
+
+    final long start = TimeUtils.nanoTime();
+    final int count = tickDue();
+    if (count > 0) {
+      ensureCapacity(count);
+      if (parallel && count >= PARALLEL_THRESHOLD) {
+        thinkParallel(count);
+      } else {
+        think(0, count);
+      }
+
+      commit(count);
+    }
+
+    if (ticked > 0) {
+      final float cost = (float) (TimeUtils.nanoTime() - start) / ticked;
+      avgCost = avgCost == 0 ? cost : avgCost + (cost - avgCost) * 0.1f;
+    }
+
+    if (DEBUG_BUDGET) Gdx.app.debug(TAG, String.format("tick %d: ticked=%d, deferred=%d, hibernating=%d, avgCost=%.0fns",
+        tick, ticked, deferred, hibernating, avgCost));
+    tick++;
+  }
+
+  /**
+   * Collects the AIs due this frame into {@link #ticking}, AIs deferred from the previous frame
+   * first, and puts the rest to sleep or lets their time accumulate.
+   */
+  private void schedule(float delta) {
+    due.size = 0;
+    ticking.size = 0;
+    hibernating = 0;
+    for (int i = 0, s = entities.size; i < s; i++) {
+      Entity entity = entities.get(i);
+      if (!(entity instanceof Monster)) continue;
+      Monster monster = (Monster) entity;
+      AI ai = monster.ai();
+      if (ai == AI.IDLE) continue;
+      if (ai.phase < 0) ai.phase = nextPhase++;
+      if (hibernates(monster)) {
+        ai.elapsed = 0;
+        ai.deferred = false;
+        hibernating++;
+        continue;
+      }
+
+      ai.elapsed += delta;
+      if (ai.deferred) {
+        ticking.add(monster);
+      } else if (((tick + ai.phase) & (interval(monster) - 1)) == 0) {
+        due.add(monster);
+      }
+    }
+
+    ticking.addAll(due);
+    due.size = 0;
+  }
+
+  /**
+   * Returns whether {@code monster} should sleep: its zone holds no players and no player is within
+   * {@link #ACTIVE_RANGE}, so monsters near a zone border stay awake for players across it.
+   */
+  boolean hibernates(Monster monster) {
+    if (map == null) return false;
+    final Vector2 position = monster.position();
+    if (occupied.contains(map.getZone(position), true)) return false;
+    return snapshot.nearest2(position) >= ACTIVE_RANGE * ACTIVE_RANGE;
+  }
+
+  /**
+   * Defers the due AIs which don't fit within the budget, judging by the average cost of an AI.
+   */
+  private void defer() {
+    deferred = 0;
+    if (budget == 0 || avgCost == 0) return;
+    final int limit = Math.max(MIN_TICKS, (int) (budget / avgCost));
+    final Monster[] ticking = this.ticking.items;
+    for (int i = limit, s = this.ticking.size; i < s; i++) {
+      ticking[i].ai().deferred = true;
+      ticking[i] = null;
+      deferred++;
+    }
+
+    if (deferred > 0) this.ticking.size = limit;
+  }
+
+  /**
+   * Ticks the AIs which are due.
+   *
+   * @return number of AIs which need to think
+   */
+  private int tickDue() {
+    thinking.size = 0;
+    final Monster[] ticking = this.ticking.items;
+    for (int i = 0, s = ticked = this.ticking.size; i < s; i++) {
+      final Monster monster = ticking[i];
+      ticking[i] = null;
+      final AI ai = monster.ai();
+      final float elapsed = ai.elapsed;
+      ai.elapsed = 0;
+      ai.deferred = false;
+      if (ai.tick(elapsed)) thinking.add(monster);
+    }
+
+    this.ticking.size = 0;
+    return thinking.size;
+  }
+
+  /**
+   * Returns the number of frames between two ticks of {@code monster}: every frame near a player,
+   * otherwise its {@code aidel} rounded down to a power of two, doubled when far from every player.
+   */
+  int interval(Monster monster) {
+    final float dst2 = snapshot.nearest2(monster.position());
+    if (dst2 < ACTIVE_RANGE * ACTIVE_RANGE) return 1;
+    final int aidel = MathUtils.clamp(monster.monstats.aidel[0], 1, MAX_INTERVAL);
+    final int interval = Integer.highestOneBit(aidel);
+    return dst2 < FAR_RANGE * FAR_RANGE
+        ? Math.max(2, interval)
+        : Math.min(Math.max(4, interval << 1), MAX_INTERVAL);
+  }
+
+  private void ensureCapacity(int count) {
+    if (intents.length >= count) return;
+    int oldLength = intents.length;
+    intents = Arrays.copyOf(intents, count);
+    randoms = Arrays.copyOf(randoms, count);
+    for (int i = oldLength; i < count; i++) {
+      intents[i] = new Intent();
+      randoms[i] = new RandomXS128();
+    }
+  }
+
+  void think(int start, int end) {
+    final Monster[] thinking = this.thinking.items;
+    for (int i = start; i < end; i++) {
+      final Intent intent = intents[i];
+      final RandomXS128 random = randoms[i];
+      intent.reset();
+      random.setSeed(mix(seed, tick, i));
+      try {
+        thinking[i].ai().think(snapshot, random, intent);
+      } catch (Throwable t) {
+        intent.reset();
+        Gdx.app.error(TAG, t.getMessage(), t);
+      }
+    }
+  }
+
+  private void thinkParallel(int count) {
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+        int id;
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, TAG + "-" + id++);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    final int numBatches = batches.length;
+    final CountDownLatch latch = new CountDownLatch(numBatches - 1);
+    for (int i = 0; i < numBatches; i++) {
+      Batch batch = batches[i];
+      batch.start = count * i / numBatches;
+      batch.end = count * (i + 1) / numBatches;
+      batch.latch = latch;
+      if (i < numBatches - 1) executor.execute(batch);
+    }
+
+    think(batches[numBatches - 1].start, batches[numBatches - 1].end);
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void commit(int count) {
+    final Monster[] thinking = this.thinking.items;
+    for (int i = 0; i < count; i++) {
+      final Intent intent = intents[i];
+      checksum = intent.hash(31 * checksum + i);
+      if (!intent.isEmpty()) intent.apply(thinking[i]);
+      thinking[i] = null;
+    }
+
+    if (DEBUG_THINKS) Gdx.app.debug(TAG, "tick " + tick + ": " + count + " thinking, checksum=" + Integer.toHexString(checksum));
+    this.thinking.size = 0;
+  }
+
+  /**
+   * SplitMix64 finalizer over the seed, tick and index, so nearby ticks and indexes don't produce
+   * correlated generators.
+   */
+  static long mix(long seed, int tick, int index) {
+    long z = seed + 0x9E3779B97F4A7C15L * (((long) tick << 32) | (index & 0xFFFFFFFFL)) + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Restarts the tick count and checksum, e.g., before replaying a recorded session.
+   */
+  public void reset(long seed) {
+    this.seed = seed;
+    tick = 0;
+    checksum = 0;
+  }
+
+  public int getTick() {
+    return tick;
+  }
+
+  /**
+   * @return digest of every decision committed since the last {@link #reset(long)}, which is equal
+   *         for runs that made the same decisions in the same order
+   */
+  public int getChecksum() {
+    return checksum;
+  }
+
+  /**
+   * @return time per frame in microseconds AIs are ticked within, or {@code 0} if unlimited
+   */
+  public int getBudget() {
+    return (int) (budget / 1000);
+  }
+
+  /**
+   * Limits the time per frame spent on AIs to roughly {@code micros} microseconds, based on the
+   * average cost of an AI over recent frames, or lifts the limit if {@code 0}. At least
+   * {@link #MIN_TICKS} AIs tick each frame regardless.
+   */
+  public void setBudget(int micros) {
+    budget = Math.max(micros, 0) * 1000L;
+  }
+
+  /**
+   * @return number of AIs ticked during the last frame
+   */
+  public int getTicked() {
+    return ticked;
+  }
+
+  /**
+   * @return number of AIs which were due during the last frame but didn't fit within the budget
+   */
+  public int getDeferred() {
+    return deferred;
+  }
+
+  /**
+   * @return number of AIs skipped during the last frame because no player occupies their zone
+   */
+  public int getHibernating() {
+    return hibernating;
+  }
+
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  /**
+   * Whether or not AIs may think on worker threads. Decisions are the same either way.
+   */
+  public void setParallel(boolean parallel) {
+    this.parallel = parallel && numThreads > 0;
+  }
+
+  @Override
+  public void dispose() {
+    if (executor != null) executor.shutdownNow();
+    executor = null;
+  }
+
+  final class Batch implements Runnable {
+    int start, end;
+    CountDownLatch latch;
+
+    @Override
+    public void run() {
+      try {
+        think(start, end);
+      } finally {
+        latch.countDown();
+      }
+    }
+  }
+}
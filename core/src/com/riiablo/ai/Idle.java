@@ -5,9 +5,6 @@ public class Idle extends AI {
     super(null);
   }
 
-  @Override
-  public void update(float delta) {}
-
   @Override
   public String getState() {
     return "IDLE";
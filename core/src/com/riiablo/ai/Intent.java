@@ -0,0 +1,100 @@
+package com.riiablo.ai;
+
+import com.badlogic.gdx.math.Vector2;
+import com.riiablo.Riiablo;
+import com.riiablo.entity.Monster;
+
+/**
+ * Effects an {@link AI} decided on while thinking. Thinking may happen on a worker thread, so AIs
+ * record what they want done here and {@link AIScheduler} applies it on the thread which owns the
+ * entities, in a fixed order.
+ */
+public class Intent {
+  static final byte NONE = -1;
+
+  byte    mode = NONE;
+  byte    transition = NONE;
+  byte    next;
+  boolean stop;
+  boolean clearTarget;
+  boolean move;
+  final Vector2 dst = new Vector2();
+  String  sound;
+
+  public void setMode(byte mode) {
+    this.mode = mode;
+  }
+
+  /**
+   * @see Monster#sequence(byte, byte)
+   */
+  public void sequence(byte transition, byte next) {
+    this.transition = transition;
+    this.next = next;
+  }
+
+  /**
+   * Abandons the current path.
+   */
+  public void stop() {
+    stop = true;
+  }
+
+  /**
+   * Zeroes the entity's target, which AIs use to mark that they need a new destination.
+   */
+  public void clearTarget() {
+    clearTarget = true;
+  }
+
+  public void moveTo(float x, float y) {
+    move = true;
+    dst.set(x, y);
+  }
+
+  public void moveTo(Vector2 dst) {
+    moveTo(dst.x, dst.y);
+  }
+
+  public void play(String sound) {
+    this.sound = sound;
+  }
+
+  public boolean isEmpty() {
+    return mode == NONE && transition == NONE && !stop && !clearTarget && !move && sound == null;
+  }
+
+  void reset() {
+    mode = NONE;
+    transition = NONE;
+    stop = false;
+    clearTarget = false;
+    move = false;
+    sound = null;
+  }
+
+  void apply(Monster entity) {
+    if (stop) entity.setPath(null, null);
+    if (clearTarget) entity.target().setZero();
+    if (mode != NONE) entity.setMode(mode);
+    if (transition != NONE) entity.sequence(transition, next);
+    if (move) entity.requestPath(entity.map, dst);
+    if (sound != null) Riiablo.audio.play(sound, true);
+  }
+
+  /**
+   * Folds this intent into {@code hash}, so that runs which made the same decisions in the same
+   * order end up with the same checksum.
+   */
+  int hash(int hash) {
+    hash = 31 * hash + mode;
+    hash = 31 * hash + transition;
+    hash = 31 * hash + (transition != NONE ? next : 0);
+    hash = 31 * hash + (stop ? 1 : 0);
+    hash = 31 * hash + (clearTarget ? 1 : 0);
+    hash = 31 * hash + (move ? Float.floatToIntBits(dst.x) : 0);
+    hash = 31 * hash + (move ? Float.floatToIntBits(dst.y) : 0);
+    hash = 31 * hash + (sound != null ? sound.hashCode() : 0);
+    return hash;
+  }
+}
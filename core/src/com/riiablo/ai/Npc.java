@@ -1,7 +1,6 @@
 package com.riiablo.ai;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
@@ -16,6 +15,8 @@ import com.riiablo.widget.NpcMenu;
 
 import org.apache.commons.lang3.ArrayUtils;
 
+import java.util.Random;
+
 public class Npc extends AI {
   private static final String TAG = "Npc";
 
@@ -34,6 +35,7 @@ public class Npc extends AI {
 
   int targetId = ArrayUtils.INDEX_NOT_FOUND;
   float actionTimer = 0;
+  float delta;
   boolean actionPerformed = false;
   NpcMenu menu;
 
@@ -127,7 +129,14 @@ public class Npc extends AI {
     gameScreen.setMenu(menu, entity);
   }
 
-  public void update(float delta) {
+  @Override
+  public boolean tick(float delta) {
+    this.delta = delta;
+    return true;
+  }
+
+  @Override
+  public void think(Snapshot world, Random random, Intent intent) {
     Vector2 target = entity.target();
     if (target.isZero() || (entity.position().epsilonEquals(target) && !entity.targets().hasNext())) {
       DS1.Path path = entity.object.path;
@@ -143,21 +152,21 @@ public class Npc extends AI {
         return;
       } else if (actionPerformed) {
         actionPerformed = false;
-        targetId = MathUtils.random(path.numPoints - 1);
+        targetId = random(random, 0, path.numPoints - 1);
       } else {
-        entity.setMode(Monster.MODE_NU);
-        actionTimer = action(path.points[targetId].action);
+        intent.setMode(Monster.MODE_NU);
+        actionTimer = action(path.points[targetId].action, intent);
         actionPerformed = actionTimer < 0;
         return;
       }
 
       //entity.setMode("WL");
       DS1.Path.Point dst = path.points[targetId];
-      entity.setPath(entity.map, new Vector2(dst.x, dst.y));
+      intent.moveTo(dst.x, dst.y);
     }
   }
 
-  private float action(int action) {
+  private float action(int action, Intent intent) {
     // path.actions == look at nearest player, chill, hold time, quest?
     // 1 = 4 second hold
     // 2 = 6 second hold
@@ -177,10 +186,10 @@ public class Npc extends AI {
         return 6;
       // TODO: play anim only once, after timer, ending the action
       case 4:
-        entity.setMode(Monster.MODE_S1);
+        intent.setMode(Monster.MODE_S1);
         return 10;
       case 5:
-        entity.setMode(Monster.MODE_S2);
+        intent.setMode(Monster.MODE_S2);
         return 10;
       default:
         Gdx.app.error(TAG, "Unknown action index: " + action);
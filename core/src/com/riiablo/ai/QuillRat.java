@@ -1,9 +1,10 @@
 package com.riiablo.ai;
 
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.riiablo.entity.Monster;
 
+import java.util.Random;
+
 public class QuillRat extends AI {
 
   int[] pa;
@@ -24,14 +25,17 @@ public class QuillRat extends AI {
   }
 
   @Override
-  public void update(float delta) {
+  public boolean tick(float delta) {
     Vector2 target = entity.target();
-    if (target.isZero() || (entity.position().epsilonEquals(target) && !entity.targets().hasNext())) {
-      Vector2 dst = entity.position().cpy();
-      dst.x += MathUtils.random(-5, 5);
-      dst.y += MathUtils.random(-5, 5);
-      entity.setPath(entity.map, dst);
-    }
+    return target.isZero() || (entity.position().epsilonEquals(target) && !entity.targets().hasNext());
+  }
+
+  @Override
+  public void think(Snapshot world, Random random, Intent intent) {
+    Vector2 position = entity.position();
+    intent.moveTo(
+        position.x + random(random, -5, 5),
+        position.y + random(random, -5, 5));
   }
 
   @Override
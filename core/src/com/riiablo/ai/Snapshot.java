@@ -0,0 +1,80 @@
+package com.riiablo.ai;
+
+import com.badlogic.gdx.math.Vector2;
+import com.riiablo.entity.Entity;
+import com.riiablo.entity.Player;
+
+import java.util.Arrays;
+
+/**
+ * Read-only view of the world handed to {@link AI#think(Snapshot, java.util.Random, Intent)}. It is
+ * captured by {@link AIScheduler} before any AI thinks, so every AI sees the same world regardless
+ * of which thread it runs on or which AIs ran before it.
+ */
+public class Snapshot {
+  float delta;
+  int   tick;
+
+  int     numPlayers;
+  float   playerX[] = new float[4];
+  float   playerY[] = new float[4];
+
+  /**
+   * @return time in seconds since the last tick
+   */
+  public float delta() {
+    return delta;
+  }
+
+  public int tick() {
+    return tick;
+  }
+
+  public int numPlayers() {
+    return numPlayers;
+  }
+
+  public float playerX(int i) {
+    return playerX[i];
+  }
+
+  public float playerY(int i) {
+    return playerY[i];
+  }
+
+  public float dst(Vector2 position, int player) {
+    return Vector2.dst(position.x, position.y, playerX[player], playerY[player]);
+  }
+
+  /**
+   * @return squared distance from {@code position} to the nearest player, or
+   *         {@link Float#POSITIVE_INFINITY} if there are none
+   */
+  public float nearest2(Vector2 position) {
+    float nearest = Float.POSITIVE_INFINITY;
+    for (int i = 0; i < numPlayers; i++) {
+      final float dx = playerX[i] - position.x;
+      final float dy = playerY[i] - position.y;
+      nearest = Math.min(nearest, dx * dx + dy * dy);
+    }
+
+    return nearest;
+  }
+
+  void clear() {
+    numPlayers = 0;
+  }
+
+  void add(Entity entity) {
+    if (!(entity instanceof Player)) return;
+    if (numPlayers == playerX.length) {
+      playerX = Arrays.copyOf(playerX, numPlayers << 1);
+      playerY = Arrays.copyOf(playerY, numPlayers << 1);
+    }
+
+    Vector2 position = entity.position();
+    playerX[numPlayers] = position.x;
+    playerY[numPlayers] = position.y;
+    numPlayers++;
+  }
+}
@@ -1,41 +1,23 @@
 package com.riiablo.ai;
 
-import com.badlogic.gdx.ai.fsm.DefaultStateMachine;
-import com.badlogic.gdx.ai.fsm.StateMachine;
-import com.badlogic.gdx.ai.msg.Telegram;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.riiablo.Riiablo;
 import com.riiablo.codec.Animation;
-import com.riiablo.entity.Entity;
 import com.riiablo.entity.Monster;
-import com.riiablo.entity.Player;
+
+import java.util.Random;
 
 public class Zombie extends AI {
-  enum State implements com.badlogic.gdx.ai.fsm.State<Monster> {
-    IDLE {
-      @Override
-      public void enter(Monster entity) {
-        entity.setMode(Monster.MODE_NU);
-      }
-    },
+  enum State {
+    IDLE,
     WANDER,
     APPROACH,
     ATTACK;
-
-    @Override public void enter(Monster entity) {}
-    @Override public void update(Monster entity) {}
-    @Override public void exit(Monster entity) {}
-    @Override
-    public boolean onMessage(Monster entity, Telegram telegram) {
-      return false;
-    }
   }
 
   private final float SLEEP;
 
   int[] pa;
-  final StateMachine<Monster, State> stateMachine;
+  State state = State.IDLE;
   float nextAction;
   float time;
 
@@ -54,74 +36,79 @@ public class Zombie extends AI {
     pa[7] = entity.monstats.aip8[0];
 
     SLEEP = Animation.FRAME_DURATION * entity.monstats.aidel[0];
-    stateMachine = new DefaultStateMachine<>(entity, State.IDLE);
+  }
+
+  private void changeState(State state, Intent intent) {
+    this.state = state;
+    if (state == State.IDLE) intent.setMode(Monster.MODE_NU);
   }
 
   @Override
-  public void update(float delta) {
-    stateMachine.update();
+  public boolean tick(float delta) {
     nextAction -= delta;
     time -= delta;
     if (time > 0) {
-      return;
+      return false;
     }
 
     time = SLEEP;
+    return true;
+  }
 
-    if (stateMachine.getCurrentState() != State.ATTACK) {
+  @Override
+  public void think(Snapshot world, Random random, Intent intent) {
+    final Vector2 position = entity.position();
+    if (state != State.ATTACK) {
       float melerng = 1.41f + entity.monstats2.MeleeRng;
-      for (Entity ent : Riiablo.engine.newIterator()) {
-        if (ent instanceof Player) {
-          float dst = entity.position().dst(ent.position());
-          if (dst < melerng) {
-            entity.setPath(null, null);
-            stateMachine.changeState(State.ATTACK);
-            entity.sequence(MathUtils.randomBoolean(pa[3] / 100f) ? Monster.MODE_A2 : Monster.MODE_A1, Monster.MODE_NU);
-            Riiablo.audio.play(entity.monstats.MonSound + "_attack_1", true);
-            time = MathUtils.random(1f, 2);
+      for (int i = 0; i < world.numPlayers(); i++) {
+        float dst = world.dst(position, i);
+        if (dst < melerng) {
+          intent.stop();
+          changeState(State.ATTACK, intent);
+          intent.sequence(randomBoolean(random, pa[3] / 100f) ? Monster.MODE_A2 : Monster.MODE_A1, Monster.MODE_NU);
+          intent.play(entity.monstats.MonSound + "_attack_1");
+          time = random(random, 1f, 2);
+          return;
+        } else if (dst < pa[1]) {
+          if (randomBoolean(random, pa[0] / 100f)) {
+            intent.moveTo(world.playerX(i), world.playerY(i));
+            changeState(State.APPROACH, intent);
             return;
-          } else if (dst < pa[1]) {
-            if (MathUtils.randomBoolean(pa[0] / 100f)) {
-              entity.setPath(entity.map, ent.position());
-              stateMachine.changeState(State.APPROACH);
-              return;
-            }
           }
         }
       }
     }
 
-    switch (stateMachine.getCurrentState()) {
+    switch (state) {
       case IDLE:
         if (nextAction < 0) {
-          entity.target().setZero();
-          stateMachine.changeState(State.WANDER);
+          intent.clearTarget();
+          changeState(State.WANDER, intent);
         }
         break;
       case WANDER:
         Vector2 target = entity.target();
-        if (entity.position().epsilonEquals(target) && !entity.targets().hasNext()) {
-          nextAction = MathUtils.random(3f, 5);
-          stateMachine.changeState(State.IDLE);
+        if (position.epsilonEquals(target) && !entity.targets().hasNext()) {
+          nextAction = random(random, 3f, 5);
+          changeState(State.IDLE, intent);
         } else if (target.isZero()) {
-          Vector2 dst = entity.position().cpy();
-          dst.x += MathUtils.random(-5, 5);
-          dst.y += MathUtils.random(-5, 5);
-          entity.setPath(entity.map, dst);
+          intent.moveTo(
+              position.x + random(random, -5, 5),
+              position.y + random(random, -5, 5));
         }
         break;
       case APPROACH:
-        nextAction = MathUtils.random(3f, 5);
-        stateMachine.changeState(State.IDLE);
+        nextAction = random(random, 3f, 5);
+        changeState(State.IDLE, intent);
         break;
       case ATTACK:
-        stateMachine.changeState(State.IDLE);
+        changeState(State.IDLE, intent);
         break;
     }
   }
 
   @Override
   public String getState() {
-    return stateMachine.getCurrentState().name();
+    return state.name();
   }
 }
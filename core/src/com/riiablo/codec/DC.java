@@ -5,9 +5,24 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Disposable;
 
 import com.riiablo.codec.util.BBox;
+import com.riiablo.graphics.PaletteIndexedAtlas;
 import com.riiablo.graphics.PaletteIndexedBatch;
 
 public abstract class DC implements Disposable {
+  PaletteIndexedAtlas atlas;
+
+  /**
+   * Sets the atlas which directions loaded after this call are packed into instead of being
+   * uploaded as individual textures. The atlas is not owned by this DC.
+   */
+  public void setAtlas(PaletteIndexedAtlas atlas) {
+    this.atlas = atlas;
+  }
+
+  public PaletteIndexedAtlas getAtlas() {
+    return atlas;
+  }
+
   public abstract int getNumDirections();
   public abstract Direction getDirection(int d);
 
@@ -20,6 +20,7 @@ import java.util.Arrays;
 
 import com.riiablo.codec.DC;
 import com.riiablo.codec.util.BBox;
+import com.riiablo.graphics.PaletteIndexedAtlas;
 import com.riiablo.graphics.PaletteIndexedPixmap;
 import com.riiablo.util.BufferUtils;
 
@@ -88,6 +89,7 @@ public class DC6 extends com.riiablo.codec.DC {
   }
 
   private void disposeTextures() {
+    regions = null;
     if (textures == null) return;
     final int numDirections = header.directions;
     for (int d = 0; d < numDirections; d++) {
@@ -100,7 +102,7 @@ public class DC6 extends com.riiablo.codec.DC {
 
   @Override
   public int getNumPages(int d) {
-    return textures[d].length;
+    return pixmaps[d].length;
   }
 
   @Override
@@ -113,7 +115,8 @@ public class DC6 extends com.riiablo.codec.DC {
 
   @Override
   public TextureRegion getTexture(int d, int i) {
-    if (regions == null) regions = new TextureRegion[header.directions][pixmaps[d].length];
+    if (regions == null) regions = new TextureRegion[header.directions][];
+    if (regions[d] == null) regions[d] = new TextureRegion[pixmaps[d].length];
     TextureRegion region = regions[d][i];
     if (region == null) region = regions[d][i] = new TextureRegion(textures[d][i]);
     return region;
@@ -191,7 +194,8 @@ public class DC6 extends com.riiablo.codec.DC {
 
   @Override
   public boolean isLoaded(int d) {
-    return textures != null && textures[d] != null;
+    return (textures != null && textures[d] != null)
+        || (regions != null && regions[d] != null);
   }
 
   @Override
@@ -202,11 +206,18 @@ public class DC6 extends com.riiablo.codec.DC {
 
   @Override
   public void loadDirection(int d, boolean combineFrames) {
-    if (textures == null) textures = new Texture[header.directions][];
-    else if (textures[d] != null) return;
+    if (isLoaded(d)) return;
     preloadDirection(d, combineFrames);
 
     Pixmap[] pixmaps = this.pixmaps[d];
+    final PaletteIndexedAtlas atlas = this.atlas;
+    if (atlas != null) {
+      if (regions == null) regions = new TextureRegion[header.directions][];
+      regions[d] = atlas.pack(pixmaps);
+      return;
+    }
+
+    if (textures == null) textures = new Texture[header.directions][];
     textures[d] = new Texture[pixmaps.length];
     for (int p = 0; p < pixmaps.length; p++) {
       Pixmap pixmap = pixmaps[p];
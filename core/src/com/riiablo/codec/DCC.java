@@ -8,8 +8,10 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.StreamUtils;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.riiablo.codec.util.BBox;
 import com.riiablo.codec.util.BitStream;
+import com.riiablo.graphics.PaletteIndexedAtlas;
 import com.riiablo.graphics.PaletteIndexedPixmap;
 import com.riiablo.util.BufferUtils;
 
@@ -31,18 +33,29 @@ public class DCC extends com.riiablo.codec.DC {
   private static final boolean DEBUG_SHEETS     = DEBUG && false;
   private static final boolean DEBUG_PB_SIZE    = DEBUG && true;
 
+  /**
+   * Decoded directions of a lazy DCC which haven't been used for this long are released the next
+   * time another direction is decoded.
+   */
+  public static final long RELEASE_IDLE_MILLIS = 30000;
+
   Header    header;
   Direction directions[];
   Frame     frames[][];
   BBox      box;
+  boolean   lazy;
 
   Texture   textures[][];
+  TextureRegion regions[][];
+  long      lastUsed[];
 
-  private DCC(Header header, Direction[] directions, Frame[][] frames, BBox box) {
+  private DCC(Header header, Direction[] directions, Frame[][] frames, BBox box, boolean lazy) {
     this.header     = header;
     this.directions = directions;
     this.frames     = frames;
     this.box        = box;
+    this.lazy       = lazy;
+    this.lastUsed   = new long[header.directions];
   }
 
   @Override
@@ -53,17 +66,21 @@ public class DCC extends com.riiablo.codec.DC {
 
   private void disposeFrames() {
     final int numDirections = header.directions;
-    for (int d = 0; d < numDirections; d++) {
-      Frame[] frames = this.frames[d];
-      if (frames != null) for (Frame frame : frames) {
-        if (frame.pixmap == null) continue;
-        frame.pixmap.dispose();
-        frame.pixmap = null;
-      }
+    for (int d = 0; d < numDirections; d++) disposeFrames(d);
+  }
+
+  private void disposeFrames(int d) {
+    Frame[] frames = this.frames[d];
+    if (frames != null) for (Frame frame : frames) {
+      if (frame.pixmap == null) continue;
+      frame.pixmap.dispose();
+      frame.pixmap = null;
+      frame.colormap = null;
     }
   }
 
   private void disposeTextures() {
+    regions = null;
     if (textures == null) return;
     final int numDirections = header.directions;
     for (int d = 0; d < numDirections; d++) {
@@ -76,32 +93,72 @@ public class DCC extends com.riiablo.codec.DC {
 
   @Override
   public Pixmap getPixmap(int d, int f) {
+    preloadDirection(d);
     return frames[d][f].pixmap;
   }
 
   @Override
   public TextureRegion getTexture(int d, int i) {
+    if (regions != null && regions[d] != null) return regions[d][i];
     return new TextureRegion(textures[d][i]);
   }
 
+  public boolean isLazy() {
+    return lazy;
+  }
+
   @Override
-  public boolean isPreloaded(int d) {
-    return true;
+  public synchronized boolean isPreloaded(int d) {
+    Frame[] frames = this.frames[d];
+    return frames.length == 0 || frames[0].pixmap != null;
   }
 
   @Override
   public void preloadDirections(boolean combineFrames) {
-    assert !combineFrames;
+    final int numDirections = header.directions;
+    for (int d = 0; d < numDirections; d++) preloadDirection(d, combineFrames);
   }
 
   @Override
-  public void preloadDirection(int d, boolean combineFrames) {
+  public synchronized void preloadDirection(int d, boolean combineFrames) {
     assert !combineFrames;
+    final long now = TimeUtils.millis();
+    lastUsed[d] = now;
+    if (isPreloaded(d)) return;
+    if (lazy) releaseDirections(now - RELEASE_IDLE_MILLIS);
+    decodeDirection(directions[d], frames[d]);
+  }
+
+  /**
+   * Releases the decoded frames of the given direction. Textures which have already been loaded
+   * are unaffected, and the direction is decoded again the next time it is preloaded.
+   */
+  public synchronized void releaseDirection(int d) {
+    disposeFrames(d);
+  }
+
+  /**
+   * Releases the decoded frames of every direction which was last used before {@code time}.
+   *
+   * @return the number of directions released
+   */
+  public synchronized int releaseDirections(long time) {
+    int released = 0;
+    final int numDirections = header.directions;
+    for (int d = 0; d < numDirections; d++) {
+      if (lastUsed[d] < time && frames[d].length > 0 && frames[d][0].pixmap != null) {
+        releaseDirection(d);
+        released++;
+      }
+    }
+
+    return released;
   }
 
   @Override
   public boolean isLoaded(int d) {
-    return textures != null && textures[d] != null;
+    return (textures != null && textures[d] != null)
+        || (regions != null && regions[d] != null);
   }
 
   @Override
@@ -112,10 +169,19 @@ public class DCC extends com.riiablo.codec.DC {
 
   @Override
   public void loadDirection(int d, boolean combineFrames) {
-    if (textures == null) textures = new Texture[header.directions][];
-    else if (textures[d] != null) return;
+    if (isLoaded(d)) return;
     preloadDirection(d);
 
+    final PaletteIndexedAtlas atlas = this.atlas;
+    if (atlas != null) {
+      Pixmap[] pixmaps = new Pixmap[header.framesPerDir];
+      for (int f = 0; f < header.framesPerDir; f++) pixmaps[f] = frames[d][f].pixmap;
+      if (regions == null) regions = new TextureRegion[header.directions][];
+      regions[d] = atlas.pack(pixmaps);
+      return;
+    }
+
+    if (textures == null) textures = new Texture[header.directions][];
     textures[d] = new Texture[header.framesPerDir];
     for (int f = 0; f < header.framesPerDir; f++) {
       Pixmap pixmap = frames[d][f].pixmap;
@@ -280,10 +346,22 @@ public class DCC extends com.riiablo.codec.DC {
   }*/
 
   public static DCC loadFromFile(FileHandle handle) {
-    return loadFromStream(handle.read());
+    return loadFromFile(handle, false);
+  }
+
+  public static DCC loadFromFile(FileHandle handle, boolean lazy) {
+    return loadFromStream(handle.read(), lazy);
   }
 
   public static DCC loadFromStream(InputStream in) {
+    return loadFromStream(in, false);
+  }
+
+  /**
+   * @param lazy whether or not to defer decoding the frames of each direction until that direction
+   *             is first preloaded, only the headers are parsed up front
+   */
+  public static DCC loadFromStream(InputStream in, boolean lazy) {
     try {
       final int fileSize = in.available();
 
@@ -313,20 +391,9 @@ public class DCC extends com.riiablo.codec.DC {
         Direction dir = directions[d] = Direction.obtain(in, end - start, frames[d]);
         if (DEBUG_DIRECTIONS) Gdx.app.debug(TAG, dir.toString());
         if (DEBUG_FRAMES) for (Frame frame : frames[d]) Gdx.app.debug(TAG, frame.toString());
-
-        Cache cache = new Cache(header);
-        fillPixelBuffer(cache, dir, frames[d]);
-        makeFrames(cache, dir, frames[d]);
-        if (DEBUG_PB_SIZE) Gdx.app.debug(TAG, "pixelBuffer.size = " + cache.numEntries);
-
+        if (!lazy) decodeDirection(dir, frames[d]);
         start = end;
 
-        assert dir.equalCellBitStream.tell() == dir.equalCellBitStream.sizeInBits();
-        assert dir.pixelMaskBitStream.tell() == dir.pixelMaskBitStream.sizeInBits();
-        assert dir.encodingTypeBitStream.tell() == dir.encodingTypeBitStream.sizeInBits();
-        assert dir.rawPixelCodesBitStream.tell() == dir.rawPixelCodesBitStream.sizeInBits();
-        assert dir.pixelCodeAndDisplacementBitStream.tell() + 7 >= dir.pixelCodeAndDisplacementBitStream.sizeInBits();
-
         if (dir.box.xMin < box.xMin) box.xMin = dir.box.xMin;
         if (dir.box.yMin < box.yMin) box.yMin = dir.box.yMin;
         if (dir.box.xMax > box.xMax) box.xMax = dir.box.xMax;
@@ -336,7 +403,7 @@ public class DCC extends com.riiablo.codec.DC {
       box.width  = box.xMax - box.xMin + 1;
       box.height = box.yMax - box.yMin + 1;
 
-      return new DCC(header, directions, frames, box);
+      return new DCC(header, directions, frames, box, lazy);
     } catch (Throwable t) {
       throw new GdxRuntimeException("Couldn't load DCC from stream.", t);
     } finally {
@@ -344,22 +411,42 @@ public class DCC extends com.riiablo.codec.DC {
     }
   }
 
+  private static final ThreadLocal<Cache> CACHE = new ThreadLocal<Cache>() {
+    @Override
+    protected Cache initialValue() {
+      return new Cache();
+    }
+  };
+
+  private static void decodeDirection(Direction dir, Frame[] frames) {
+    dir.rewindBitStreams();
+    Cache cache = CACHE.get().reset(frames.length);
+    fillPixelBuffer(cache, dir, frames);
+    makeFrames(cache, dir, frames);
+    if (DEBUG_PB_SIZE) Gdx.app.debug(TAG, "pixelBuffer.size = " + cache.numEntries);
+
+    assert dir.equalCellBitStream.tell() == dir.equalCellBitStream.sizeInBits();
+    assert dir.pixelMaskBitStream.tell() == dir.pixelMaskBitStream.sizeInBits();
+    assert dir.encodingTypeBitStream.tell() == dir.encodingTypeBitStream.sizeInBits();
+    assert dir.rawPixelCodesBitStream.tell() == dir.rawPixelCodesBitStream.sizeInBits();
+    assert dir.pixelCodeAndDisplacementBitStream.tell() + 7 >= dir.pixelCodeAndDisplacementBitStream.sizeInBits();
+  }
+
   private static void fillPixelBuffer(Cache cache, Direction dir, Frame[] frames) {
-    cache.pixelBuffer = new PixelBuffer[PixelBuffer.MAX_VALUE];
-    cache.frameBuffer = Bitmap.create(dir.box.width, dir.box.height);
+    cache.frameBuffer.reset(dir.box.width, dir.box.height);
     prepareBufferCells(cache, dir);
 
     final int frameBufferCellsW = cache.frameBufferCellsW;
     final int frameBufferCellsH = cache.frameBufferCellsH;
     final int numCells = frameBufferCellsW * frameBufferCellsH;
-    PixelBuffer[] cellBuffer = new PixelBuffer[numCells];
+    PixelBuffer[] cellBuffer = cache.cellBuffer(numCells);
 
     int cellsW, cellsH;
     int cellX, cellY;
 
     int tmp, pixelMask = 0;
     int lastPixel, pixels, decodedPixels;
-    int[] readPixel = new int[4];
+    int[] readPixel = cache.readPixel;
     int encodingType, pixelDisplacement;
 
     PixelBuffer oldEntry, newEntry;
@@ -368,7 +455,7 @@ public class DCC extends com.riiablo.codec.DC {
     int curCX, curCY, curCell;
     for (int f = 0; f < frames.length; f++) {
       Frame frame = frames[f];
-      Cache.FrameCache frameCache = cache.frame[f] = new Cache.FrameCache();
+      Cache.FrameCache frameCache = cache.frame[f];
       prepareFrameCells(cache, frameCache, dir, frame);
 
       cellsW = frameCache.cellsW;
@@ -438,7 +525,7 @@ public class DCC extends com.riiablo.codec.DC {
               throw new IllegalStateException("Pixel buffer full, cannot add more entries");
             }
 
-            newEntry = cache.pixelBuffer[pixelBufferId++] = new PixelBuffer();
+            newEntry = cache.pixelBuffer(pixelBufferId++);
             curId = decodedPixels - 1;
             for (int i = 0; i < 4; i++) {
               if ((pixelMask & (1 << i)) != 0) {
@@ -477,7 +564,7 @@ public class DCC extends com.riiablo.codec.DC {
     final int bufferH = dir.box.height;
 
     final int cellsW = cache.frameBufferCellsW = 1 + ((bufferW - 1) / 4);
-    final int[] cellW = new int[cellsW];
+    final int[] cellW = cache.cellW = Cache.ensureCapacity(cache.cellW, cellsW);
     if (cellsW == 1) {
       cellW[0] = bufferW;
     } else {
@@ -487,7 +574,7 @@ public class DCC extends com.riiablo.codec.DC {
     }
 
     final int cellsH = cache.frameBufferCellsH = 1 + ((bufferH - 1) / 4);
-    final int[] cellH = new int[cellsH];
+    final int[] cellH = cache.cellH = Cache.ensureCapacity(cache.cellH, cellsH);
     if (cellsH == 1) {
       cellH[0] = bufferH;
     } else {
@@ -497,18 +584,17 @@ public class DCC extends com.riiablo.codec.DC {
     }
 
     final int numCells = cellsW * cellsH;
-    cache.frameBufferCells = new Cell[numCells];
+    final Cell[] cells = cache.frameBufferCells = Cache.ensureCapacity(cache.frameBufferCells, numCells);
 
     //int id = 0;
     int y = 0, x = 0;
     for (int cy = 0; cy < cellsH; cy++, y += 4, x = 0) {
       for (int cx = 0; cx < cellsW; cx++, x += 4) {
         //assert id == cy * cellsW + cx : "Making sure this optimization doesn't bite me in the ass: " + id + " =? " + (y * cellsH + x);
-        // TODO: Cell implements Poolable
-        Cell cell = cache.frameBufferCells[cy * cellsW + cx] = new Cell();
+        Cell cell = cells[cy * cellsW + cx];
         cell.w = cellW[cx];
         cell.h = cellH[cy];
-        cell.bmp = cache.frameBuffer.getSubimage(x, y, cell.w, cell.h);
+        cell.bmp.set(cache.frameBuffer, x, y, cell.w, cell.h);
       }
     }
 
@@ -542,7 +628,7 @@ public class DCC extends com.riiablo.codec.DC {
       cellsH = tmpSize;
     }
 
-    final int[] cellW = new int[cellsW];
+    final int[] cellW = cache.cellW = Cache.ensureCapacity(cache.cellW, cellsW);
     if (cellsW == 1) {
       cellW[0] = frameW;
     } else {
@@ -552,7 +638,7 @@ public class DCC extends com.riiablo.codec.DC {
       cellW[cellMax] = frameW - w - (4 * (cellMax - 1));
     }
 
-    final int[] cellH = new int[cellsH];
+    final int[] cellH = cache.cellH = Cache.ensureCapacity(cache.cellH, cellsH);
     if (cellsH == 1) {
       cellH[0] = frameH;
     } else {
@@ -566,8 +652,7 @@ public class DCC extends com.riiablo.codec.DC {
     frameCache.cellsH = cellsH;
 
     final int numCells = cellsW * cellsH;
-    frameCache.cells = new Cell[numCells];
-
+    final Cell[] cells = frameCache.cells = Cache.ensureCapacity(frameCache.cells, numCells);
 
     int id = 0;
     Cell cell = null;
@@ -576,13 +661,12 @@ public class DCC extends com.riiablo.codec.DC {
     for (int cy = 0; cy < cellsH; cy++, y += cell.h, x = xReset) {
       for (int cx = 0; cx < cellsW; cx++, x += cell.w) {
         assert id == cy * cellsW + cx : "Making sure this optimization doesn't bite me in the ass";
-        // TODO: Cell implements Poolable
-        cell = frameCache.cells[id++] = new Cell();
+        cell = cells[id++];
         cell.x = x;
         cell.y = y;
         cell.w = cellW[cx];
         cell.h = cellH[cy];
-        cell.bmp = cache.frameBuffer.getSubimage(cell.x, cell.y, cell.w, cell.h);
+        cell.bmp.set(cache.frameBuffer, cell.x, cell.y, cell.w, cell.h);
       }
     }
 
@@ -603,13 +687,13 @@ public class DCC extends com.riiablo.codec.DC {
 
     Frame frame;
     Cache.FrameCache frameCache;
-    Bitmap frameBmp = Bitmap.create(dir.box.width, dir.box.height);
+    Bitmap frameBmp = cache.frameBmp.reset(dir.box.width, dir.box.height);
     for (int f = 0; f < frames.length; f++, frameBmp.clear()) {
       frame = frames[f];
       frameCache = cache.frame[f];
       numCells = frameCache.cellsW * frameCache.cellsH;
       for (int c = 0; c < numCells; c++) {
-        pbe = cache.pixelBuffer[pbId];
+        pbe = pbId < cache.numEntries ? cache.pixelBuffer[pbId] : null;
         Cell cell = frameCache.cells[c];
         cellX = cell.x / 4;
         cellY = cell.y / 4;
@@ -832,6 +916,14 @@ public class DCC extends com.riiablo.codec.DC {
       pixelCodeAndDisplacementBitStream = bitStream.createSubView(bitStream.sizeInBits() - bitStream.tell());
     }
 
+    void rewindBitStreams() {
+      equalCellBitStream.rewind();
+      pixelMaskBitStream.rewind();
+      encodingTypeBitStream.rewind();
+      rawPixelCodesBitStream.rewind();
+      pixelCodeAndDisplacementBitStream.rewind();
+    }
+
     public String getFlags() {
       StringBuilder builder = new StringBuilder();
       if ((compressionFlags & HasRawPixelEncoding) == HasRawPixelEncoding) {
@@ -936,24 +1028,81 @@ public class DCC extends com.riiablo.codec.DC {
           .build();
     }
   }
+  /**
+   * Scratch state used while decoding a direction. Caches are confined to the thread which created
+   * them and are reused for every direction decoded on that thread, so steady-state decoding only
+   * allocates the decoded frames themselves.
+   */
   static class Cache {
+    static final Cell[] EMPTY_CELL_ARRAY = new Cell[0];
+
     int  frameBufferCellsW, frameBufferCellsH;
-    Cell frameBufferCells[];
+    Cell frameBufferCells[] = EMPTY_CELL_ARRAY;
+    int  cellW[] = ArrayUtils.EMPTY_INT_ARRAY;
+    int  cellH[] = ArrayUtils.EMPTY_INT_ARRAY;
 
-    PixelBuffer pixelBuffer[];
+    PixelBuffer pixelBuffer[] = new PixelBuffer[PixelBuffer.MAX_VALUE];
+    PixelBuffer cellBuffer[] = new PixelBuffer[0];
     int numEntries;
+    final int readPixel[] = new int[4];
 
-    Bitmap frameBuffer;
+    final Bitmap frameBuffer = new Bitmap();
+    final Bitmap frameBmp = new Bitmap();
 
-    FrameCache frame[];
+    FrameCache frame[] = new FrameCache[0];
 
-    Cache(Header header) {
-      frame = new FrameCache[header.framesPerDir];
+    Cache reset(int numFrames) {
+      if (frame.length < numFrames) {
+        int i = frame.length;
+        frame = Arrays.copyOf(frame, numFrames);
+        for (; i < numFrames; i++) frame[i] = new FrameCache();
+      }
+
+      numEntries = 0;
+      return this;
+    }
+
+    /**
+     * Returns the pixel buffer entry with the given id, entries are reused across directions and
+     * every field is expected to be overwritten by the caller.
+     */
+    PixelBuffer pixelBuffer(int id) {
+      PixelBuffer entry = pixelBuffer[id];
+      if (entry == null) entry = pixelBuffer[id] = new PixelBuffer();
+      return entry;
+    }
+
+    /**
+     * Returns an array with at least {@code size} entries, the first {@code size} of which are
+     * {@code null}.
+     */
+    PixelBuffer[] cellBuffer(int size) {
+      if (cellBuffer.length < size) {
+        cellBuffer = new PixelBuffer[size];
+      } else {
+        Arrays.fill(cellBuffer, 0, size, null);
+      }
+
+      return cellBuffer;
+    }
+
+    static int[] ensureCapacity(int[] array, int size) {
+      return array.length < size ? new int[size] : array;
+    }
+
+    static Cell[] ensureCapacity(Cell[] cells, int size) {
+      if (cells.length < size) {
+        int i = cells.length;
+        cells = Arrays.copyOf(cells, size);
+        for (; i < size; i++) cells[i] = new Cell();
+      }
+
+      return cells;
     }
 
     static class FrameCache {
       int  cellsW, cellsH;
-      Cell cells[];
+      Cell cells[] = EMPTY_CELL_ARRAY;
     }
   }
   static class Cell {
@@ -963,7 +1112,7 @@ public class DCC extends com.riiablo.codec.DC {
     int lastX, lastY;
     int lastW, lastH;
 
-    Bitmap bmp;
+    final Bitmap bmp = new Bitmap();
 
     @Override
     public String toString() {
@@ -999,6 +1148,10 @@ public class DCC extends com.riiablo.codec.DC {
       return new Bitmap(new byte[width * height], width, height);
     }
 
+    Bitmap() {
+      this(ArrayUtils.EMPTY_BYTE_ARRAY, 0, 0);
+    }
+
     Bitmap(byte[] colormap, int w, int h) {
       this.colormap = colormap;
       x = y = 0;
@@ -1007,6 +1160,30 @@ public class DCC extends com.riiablo.codec.DC {
     }
 
     Bitmap(Bitmap bmp, int x, int y, int w, int h) {
+      set(bmp, x, y, w, h);
+    }
+
+    /**
+     * Resizes this bitmap to a cleared {@code w x h} image, reusing its colormap when large enough.
+     */
+    Bitmap reset(int w, int h) {
+      final int size = w * h;
+      if (colormap.length < size) {
+        colormap = new byte[size];
+      } else {
+        Arrays.fill(colormap, 0, size, (byte) 0);
+      }
+
+      x = y = 0;
+      width = stride = w;
+      height = h;
+      return this;
+    }
+
+    /**
+     * Makes this bitmap a view of the given region of {@code bmp}.
+     */
+    Bitmap set(Bitmap bmp, int x, int y, int w, int h) {
       colormap = bmp.colormap;
       this.x = bmp.x + x;
       this.y = bmp.y + y;
@@ -1015,6 +1192,7 @@ public class DCC extends com.riiablo.codec.DC {
       stride = bmp.stride;
 
       assert x + w <= bmp.width && y + h <= bmp.height;
+      return this;
     }
 
     Bitmap getSubimage(int x, int y, int width, int height) {
@@ -1072,7 +1250,8 @@ public class DCC extends com.riiablo.codec.DC {
     }
 
     byte[] copy() {
-      return Arrays.copyOf(colormap, colormap.length);
+      assert x == 0 && y == 0 && stride == width;
+      return Arrays.copyOf(colormap, width * height);
     }
   }
 }
@@ -2,20 +2,16 @@ package com.riiablo.codec;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.ObjectIntMap;
-import com.badlogic.gdx.utils.ObjectSet;
-import com.badlogic.gdx.utils.StringBuilder;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 
-import java.io.BufferedReader;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 
 public class TXT {
@@ -25,18 +21,40 @@ public class TXT {
   private static final boolean DEBUG_ROWS = DEBUG && true;
   private static final boolean DEBUG_BOOL = true;
 
+  private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
   protected final ObjectIntMap<String> columns;
-  protected final Array<String[]>      data;
+  protected final int numColumns;
+  protected final int numRows;
+
+  /** contents of the file, cells are decoded from it on demand */
+  protected final byte[] bytes;
+
+  /**
+   * [col][row] offset of the first byte of each cell within {@link #bytes}. A cell ends one byte (its
+   * tab) before the cell of the next column, so there is one extra column of line ends.
+   */
+  protected final int[][] offsets;
 
-  private TXT(ObjectIntMap<String> columns, Array<String[]> data) {
+  /** [col][row] cells already decoded into strings, columns are allocated on first use */
+  private final String[][] strings;
+
+  private TXT(ObjectIntMap<String> columns, byte[] bytes, int[][] offsets, int numRows) {
     this.columns = columns;
-    this.data = data;
+    this.numColumns = offsets.length - 1;
+    this.numRows = numRows;
+    this.bytes = bytes;
+    this.offsets = offsets;
+    this.strings = new String[numColumns][];
   }
 
   protected TXT(TXT src) {
     this.columns = src.columns;
-    //this.rows = src.rows;
-    this.data = src.data;
+    this.numColumns = src.numColumns;
+    this.numRows = src.numRows;
+    this.bytes = src.bytes;
+    this.offsets = src.offsets;
+    this.strings = src.strings;
   }
 
   public int getColumns() {
@@ -44,7 +62,7 @@ public class TXT {
   }
 
   public int getRows() {
-    return data.size;
+    return numRows;
   }
 
   public String getColumnName(int col) {
@@ -52,7 +70,7 @@ public class TXT {
   }
 
   public String getRowName(int row) {
-    return data.items[row][0];
+    return getString(row, 0);
   }
 
   public int getColumnId(String text) {
@@ -73,27 +91,68 @@ public class TXT {
 
   public String getString(int row, int col) {
     if (row == -1 || col == -1) return null;
-    return data.items[row][col];
+    String[] column = strings[col];
+    if (column == null) column = strings[col] = new String[numRows];
+    String value = column[row];
+    if (value == null) {
+      final int start = offsets[col][row];
+      final int length = offsets[col + 1][row] - 1 - start;
+      value = column[row] = length == 0 ? StringUtils.EMPTY : new String(bytes, start, length, US_ASCII);
+    }
+
+    return value;
   }
 
   public byte getByte(int row, int col) {
-    String value = getString(row, col);
-    return NumberUtils.toByte(value, (byte) 0);
+    return (byte) parse(row, col, Byte.MIN_VALUE, Byte.MAX_VALUE);
   }
 
   public short getShort(int row, int col) {
-    String value = getString(row, col);
-    return NumberUtils.toShort(value, (short) 0);
+    return (short) parse(row, col, Short.MIN_VALUE, Short.MAX_VALUE);
   }
 
   public int getInt(int row, int col) {
-    String value = getString(row, col);
-    return NumberUtils.toInt(value, 0);
+    return (int) parse(row, col, Integer.MIN_VALUE, Integer.MAX_VALUE);
   }
 
   public long getLong(int row, int col) {
-    String value = getString(row, col);
-    return NumberUtils.toLong(value, 0L);
+    return parse(row, col, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Parses a cell as a decimal integer between {@code min} and {@code max} straight from
+   * {@link #bytes} with the same results as {@link NumberUtils}, i.e., {@code 0} if it isn't one,
+   * but without materializing a string or throwing and catching an exception for every empty or
+   * non-numeric cell.
+   */
+  long parse(int row, int col, long min, long max) {
+    if (row == -1 || col == -1) return 0;
+    final byte[] bytes = this.bytes;
+    final int end = offsets[col + 1][row] - 1;
+    int i = offsets[col][row];
+    if (i == end) return 0;
+    final byte sign = bytes[i];
+    if (sign == '-' || sign == '+') {
+      if (++i == end) return 0;
+    }
+
+    // may overflow a long, leave it to the library
+    if (end - i > 18) return checkRange(NumberUtils.toLong(getString(row, col), 0L), min, max);
+
+    long result = 0;
+    for (; i < end; i++) {
+      // non-ASCII bytes decode to U+FFFD, which isn't a digit either
+      final int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9) return 0;
+      result = result * 10 + digit;
+    }
+
+    if (sign == '-') result = -result;
+    return checkRange(result, min, max);
+  }
+
+  private static long checkRange(long value, long min, long max) {
+    return min <= value && value <= max ? value : 0;
   }
 
   public boolean getBoolean(int row, int col) {
@@ -139,113 +198,97 @@ public class TXT {
   }
 
   public static TXT loadFromFile(FileHandle handle) {
-    return loadFromStream2(handle.read());
+    return loadFromBytes(handle.readBytes());
   }
 
-  // FIXME: Problem loading WeaponClass.txt
   public static TXT loadFromStream(InputStream in) {
-    BufferedReader reader = null;
     try {
-      reader = IOUtils.buffer(new InputStreamReader(in, "US-ASCII"));
-      ObjectIntMap<String> columns = new ObjectIntMap<>();
-      String[] columnNames = StringUtils.splitPreserveAllTokens(reader.readLine(), '\t');
-      for (int i = 0; i < columnNames.length; i++) {
-        String key = columnNames[i].toLowerCase();
-        if (!columns.containsKey(key)) columns.put(key, i);
-      }
-      if (DEBUG_COLS) {
-        ObjectSet<String> duplicates = new ObjectSet<>();
-        String[] colNames = new String[columns.size];
-        for (int i = 0, j = 0; i < columnNames.length; i++) {
-          String columnName = columnNames[i];
-          if (!duplicates.add(columnName)) continue;
-          colNames[j++] = columnName;
-        }
-        Gdx.app.debug(TAG, "cols=" + Arrays.toString(colNames));
-      }
-
-      Array<String[]> data = new Array<>(String[].class);
-      for (String line; (line = reader.readLine()) != null;) {
-        String[] tmp = split(columnNames.length, line, '\t');
-        if (tmp.length != columnNames.length) {
-          if (DEBUG_ROWS) Gdx.app.debug(TAG, "Skipping row " + Arrays.toString(tmp));
-          continue;
-        }
-
-        data.add(tmp);
-        if (DEBUG_ROWS) Gdx.app.debug(TAG, data.size - 1 + ": " + Arrays.toString(tmp));
-      }
-
-      return new TXT(columns, data);
+      return loadFromBytes(IOUtils.toByteArray(in));
     } catch (Throwable t) {
       throw new GdxRuntimeException("Couldn't read TXT", t);
     } finally {
-      IOUtils.closeQuietly(reader);
+      IOUtils.closeQuietly(in);
     }
   }
 
-  private static String[] split(int len, String str, char token) {
-    StringBuilder builder = new StringBuilder(32);
-    String[] tokens = new String[len];
-    char c;
-    int numTokens = 0;
-    final int strLen = str.length();
-    for (int i = 0; i < strLen; i++) {
-      c = str.charAt(i);
-      if (c == token) {
-        tokens[numTokens++] = builder.toString();
-        builder.setLength(0);
-      } else {
-        builder.append(c);
-      }
-    }
-    if (numTokens < len) Arrays.fill(tokens, numTokens, len, StringUtils.EMPTY);
-    return tokens;
-  }
-
-  // Older method
   @Deprecated
   public static TXT loadFromStream2(InputStream in) {
-    BufferedReader reader = null;
+    return loadFromStream(in);
+  }
+
+  /**
+   * Indexes the cells of a tab-delimited table without copying them. The first line names the
+   * columns, ignoring trailing empty names, and lines with a different number of cells are skipped.
+   * Lines may end with {@code \n}, {@code \r} or {@code \r\n}.
+   */
+  public static TXT loadFromBytes(byte[] bytes) {
     try {
-      reader = IOUtils.buffer(new InputStreamReader(in, "US-ASCII"));
+      final int length = bytes.length;
+      if (length == 0) throw new GdxRuntimeException("TXT is empty");
+      int lineEnd = nextLineEnd(bytes, 0);
+
       ObjectIntMap<String> columns = new ObjectIntMap<>();
-      String[] columnNames = reader.readLine().split("\t");
-      for (int i = 0; i < columnNames.length; i++) {
+      // same columns as String.split("\t"), which drops trailing empty names
+      String[] columnNames = new String(bytes, 0, lineEnd, US_ASCII).split("\t");
+      final int numColumns = columnNames.length;
+      for (int i = 0; i < numColumns; i++) {
         String key = columnNames[i].toLowerCase();
         if (!columns.containsKey(key)) columns.put(key, i);
       }
-      if (DEBUG_COLS) {
-        ObjectSet<String> duplicates = new ObjectSet<>();
-        String[] colNames = new String[columns.size];
-        for (int i = 0, j = 0; i < columnNames.length; i++) {
-          String columnName = columnNames[i];
-          if (!duplicates.add(columnName)) {
-            continue;
-          }
-
-          colNames[j++] = columnName;
-        }
-        Gdx.app.debug(TAG, "cols=" + Arrays.toString(colNames));
+      if (DEBUG_COLS) Gdx.app.debug(TAG, "cols=" + Arrays.toString(columnNames));
+
+      int maxRows = 0;
+      for (int i = lineEnd; i < length; i++) {
+        final byte b = bytes[i];
+        if (b == '\n' || b == '\r') maxRows++;
       }
 
-      Array<String[]> data = new Array<>(String[].class);
-      for (String line; (line = reader.readLine()) != null;) {
-        String[] tmp = line.split("\t", -1);
-        if (tmp.length != columnNames.length) {
-          if (DEBUG_ROWS) Gdx.app.debug(TAG, "Skipping row " + Arrays.toString(tmp));
+      final int[][] offsets = new int[numColumns + 1][maxRows + 1];
+      int numRows = 0;
+      for (int start = skipLineEnd(bytes, lineEnd); start < length; start = skipLineEnd(bytes, lineEnd)) {
+        lineEnd = nextLineEnd(bytes, start);
+        int col = 0;
+        offsets[0][numRows] = start;
+        for (int i = start; i < lineEnd; i++) {
+          if (bytes[i] != '\t') continue;
+          if (++col >= numColumns) break;
+          offsets[col][numRows] = i + 1;
+        }
+
+        if (col != numColumns - 1) {
+          if (DEBUG_ROWS) Gdx.app.debug(TAG, "Skipping row " + new String(bytes, start, lineEnd - start, US_ASCII));
           continue;
         }
 
-        data.add(tmp);
-        if (DEBUG_ROWS) Gdx.app.debug(TAG, data.size - 1 + ": " + Arrays.toString(tmp));
+        offsets[numColumns][numRows] = lineEnd + 1;
+        numRows++;
       }
 
-      return new TXT(columns, data);
+      return new TXT(columns, bytes, offsets, numRows);
     } catch (Throwable t) {
       throw new GdxRuntimeException("Couldn't read TXT", t);
-    } finally {
-      IOUtils.closeQuietly(reader);
     }
   }
+
+  /**
+   * @return index of the {@code \n} or {@code \r} ending the line starting at {@code start}, or
+   *         the length of {@code bytes} if it is the last line and isn't terminated
+   */
+  private static int nextLineEnd(byte[] bytes, int start) {
+    for (int i = start, s = bytes.length; i < s; i++) {
+      final byte b = bytes[i];
+      if (b == '\n' || b == '\r') return i;
+    }
+
+    return bytes.length;
+  }
+
+  /**
+   * @return index of the first byte after the line terminator at {@code lineEnd}
+   */
+  private static int skipLineEnd(byte[] bytes, int lineEnd) {
+    if (lineEnd >= bytes.length) return bytes.length;
+    if (bytes[lineEnd] == '\r' && lineEnd + 1 < bytes.length && bytes[lineEnd + 1] == '\n') return lineEnd + 2;
+    return lineEnd + 1;
+  }
 }
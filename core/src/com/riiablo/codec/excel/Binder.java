@@ -0,0 +1,125 @@
+package com.riiablo.codec.excel;
+
+import com.riiablo.codec.TXT;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+/**
+ * Copies the cells of a row into one {@link Excel.Entry.Column column} field of an entry. A binder
+ * specialized for the type of the field is picked once per column when a table is parsed, so each
+ * cell costs a single virtual call instead of walking a chain of type checks.
+ */
+abstract class Binder {
+  final Field field;
+  final int column;
+  final int[] columns;
+
+  Binder(Field field, int[] columns) {
+    this.field = field;
+    this.column = columns.length > 0 ? columns[0] : -1;
+    this.columns = columns;
+  }
+
+  abstract void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException;
+
+  /**
+   * @return the value of the field of {@code entry}, formatted for debugging
+   */
+  String toString(Excel.Entry entry) throws IllegalAccessException {
+    String value = Arrays.deepToString(new Object[] { field.get(entry) });
+    return value.substring(1, value.length() - 1);
+  }
+
+  static Binder of(Field field, int[] columns) {
+    Class type = field.getType();
+    assert type.isArray() || columns.length == 1 : "field should only correspond to 1 column: " + field.getName() + ", " + columns.length + " columns (is it supposed to be an array?)";
+    if (type == String.class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.set(entry, txt.getString(row, column));
+        }
+      };
+    } else if (type == String[].class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.set(entry, txt.getString(row, columns));
+        }
+      };
+    } else if (type == byte.class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.setByte(entry, txt.getByte(row, column));
+        }
+      };
+    } else if (type == byte[].class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.set(entry, txt.getByte(row, columns));
+        }
+      };
+    } else if (type == short.class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.setShort(entry, txt.getShort(row, column));
+        }
+      };
+    } else if (type == short[].class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.set(entry, txt.getShort(row, columns));
+        }
+      };
+    } else if (type == int.class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.setInt(entry, txt.getInt(row, column));
+        }
+      };
+    } else if (type == int[].class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.set(entry, txt.getInt(row, columns));
+        }
+      };
+    } else if (type == long.class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.setLong(entry, txt.getLong(row, column));
+        }
+      };
+    } else if (type == long[].class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.set(entry, txt.getLong(row, columns));
+        }
+      };
+    } else if (type == boolean.class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.setBoolean(entry, txt.getBoolean(row, column));
+        }
+      };
+    } else if (type == boolean[].class) {
+      return new Binder(field, columns) {
+        @Override
+        void bind(TXT txt, int row, Excel.Entry entry) throws IllegalAccessException {
+          field.set(entry, txt.getBoolean(row, columns));
+        }
+      };
+    } else {
+      throw new UnsupportedOperationException("No support for " + type + " fields");
+    }
+  }
+}
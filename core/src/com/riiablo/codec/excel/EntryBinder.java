@@ -0,0 +1,56 @@
+package com.riiablo.codec.excel;
+
+import com.riiablo.codec.TXT;
+
+/**
+ * Creates the entries of an {@link Excel} and copies the cells of a row into all of their
+ * {@link Excel.Entry.Column column} fields with plain assignments. An implementation named after
+ * the entry class, e.g., {@code MonStats_EntryBinder} for {@code MonStats.Entry}, is generated
+ * for each excel by {@code ExcelBinderProcessor} when the module is compiled. Excels without one,
+ * e.g., when annotation processing is disabled, fall back to reflective {@link Binder binders}.
+ */
+public abstract class EntryBinder<T extends Excel.Entry> {
+  static final String SUFFIX = "Binder";
+
+  /** first column id of each field, or {@code -1} */
+  protected int column[];
+
+  /** column ids of each field */
+  protected int columns[][];
+
+  /**
+   * @return names of the column fields bound, in the order their column ids are given
+   */
+  public abstract String[] fields();
+
+  public abstract T newEntry();
+
+  public abstract void bind(TXT txt, int row, T entry);
+
+  /**
+   * @param columns column ids of each of the {@link #fields() fields}
+   */
+  void setColumns(int[][] columns) {
+    this.columns = columns;
+    column = new int[columns.length];
+    for (int i = 0; i < columns.length; i++) column[i] = columns[i].length > 0 ? columns[i][0] : -1;
+  }
+
+  /**
+   * @return a new instance of the generated binder of {@code entryClass}, or {@code null} if none
+   *         was generated
+   */
+  @SuppressWarnings("unchecked")
+  static <T extends Excel.Entry> EntryBinder<T> of(Class<T> entryClass) {
+    final String name = entryClass.getName();
+    final int pkg = name.lastIndexOf('.') + 1;
+    final String binderName = name.substring(0, pkg) + name.substring(pkg).replace('$', '_') + SUFFIX;
+    try {
+      return (EntryBinder<T>) Class.forName(binderName).newInstance();
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (InstantiationException | IllegalAccessException e) {
+      throw new AssertionError(binderName + " could not be created", e);
+    }
+  }
+}
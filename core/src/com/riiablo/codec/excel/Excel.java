@@ -32,8 +32,11 @@ public abstract class Excel<T extends Excel.Entry> implements Iterable<T> {
 
   private static final boolean FORCE_PRIMARY_KEY = false;
 
+  /** whether or not entries are bound by their generated {@link EntryBinder}, if they have one */
+  static boolean BIND_GENERATED = true;
+
   private static final ObjectSet EMPTY_SET = new ObjectSet<>();
-  private static final ObjectIntMap EMPTY_MAP = new ObjectIntMap<>();
+  static final ObjectIntMap EMPTY_MAP = new ObjectIntMap<>();
 
   public static final ObjectSet<String> EXPANSION = ObjectSet.with("Expansion");
 
@@ -65,18 +68,35 @@ public abstract class Excel<T extends Excel.Entry> implements Iterable<T> {
     @Target(ElementType.FIELD)
     @Retention(RetentionPolicy.RUNTIME)
     public @interface Key {}
+
+    /**
+     * Groups entries by the value of this field into a {@link SecondaryIndex}, built once after the
+     * table is loaded. Only {@code String} and {@code int} fields are supported.
+     */
+    @Target(ElementType.FIELD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Indexed {}
   }
 
   ObjectIntMap<String> STRING_TO_ID = EMPTY_MAP;
   IntMap<T> entries = new IntMap<>();
+  ObjectMap<String, SecondaryIndex> indexes;
 
   @SuppressWarnings("unchecked")
   public static <T extends Excel> T parse(TXT txt, Class<T> excelClass) {
     return parse(txt, excelClass, Excel.<String>emptySet());
   }
 
-  @SuppressWarnings("unchecked")
   public static <T extends Excel> T parse(TXT txt, Class<T> excelClass, ObjectSet<String> ignore) {
+    return parse(txt, excelClass, ignore, null);
+  }
+
+  /**
+   * @param rows if not null, receives the id and entry of each row in the order they were put,
+   *             before {@link #init()} is called
+   */
+  @SuppressWarnings("unchecked")
+  static <T extends Excel> T parse(TXT txt, Class<T> excelClass, ObjectSet<String> ignore, ExcelCache.Rows rows) {
     try {
       if (ignore == null) ignore = emptySet();
       Class<Entry> entryClass = getEntryClass(excelClass);
@@ -87,7 +107,6 @@ public abstract class Excel<T extends Excel.Entry> implements Iterable<T> {
       Field primaryKey = null, firstKey = null;
       T excel = excelClass.newInstance();
       ObjectMap<Field, int[]> columns = new ObjectMap<>();
-      String[] TMP = new String[1];
       for (Field field : entryClass.getFields()) {
         Entry.Column column = field.getAnnotation(Entry.Column.class);
         if (column == null) continue;
@@ -114,61 +133,10 @@ public abstract class Excel<T extends Excel.Entry> implements Iterable<T> {
 
         if (firstKey == null) firstKey = field;
 
-        final String format      = column.format();
-        final String values[]    = column.values();
-        final int    startIndex  = column.startIndex();
-        final int    endIndex    = column.endIndex();
-        final int    columnIndex = column.columnIndex();
-        if (columnIndex >= 0) {
-          columns.put(field, new int[] { columnIndex });
-        } else if (format.isEmpty()) {
-          final String fieldName = field.getName();
-          if (values.length > 0) {
-            String[] columnNames = new String[values.length];
-            for (int i = 0; i < values.length; i++) {
-              String name = values[i];
-              if (DEBUG_COLS) Gdx.app.debug(TAG, name);
-              columnNames[i] = name;
-            }
-
-            columns.put(field, txt.getColumnId(columnNames));
-          } else if (startIndex == 0 && endIndex == 0) {
-            if (DEBUG_COLS) Gdx.app.debug(TAG, fieldName);
-            TMP[0] = fieldName;
-            columns.put(field, txt.getColumnId(TMP));
-          } else {
-            String[] columnNames = new String[endIndex - startIndex];
-            for (int i = startIndex, j = 0; i < endIndex; i++, j++) {
-              String name = fieldName + i;
-              if (DEBUG_COLS) Gdx.app.debug(TAG, name);
-              columnNames[j] = name;
-            }
-
-            columns.put(field, txt.getColumnId(columnNames));
-          }
-        } else {
-          if (startIndex == 0 && endIndex == 0) {
-            TMP[0] = format;
-            columns.put(field, txt.getColumnId(TMP));
-          } else {
-            String[] columnNames = new String[endIndex - startIndex];
-            if (values.length == 0) {
-              for (int i = startIndex, j = 0; i < endIndex; i++, j++) {
-                String name = String.format(format, i);
-                if (DEBUG_COLS) Gdx.app.debug(TAG, name);
-                columnNames[j] = name;
-              }
-            } else {
-              for (int i = 0; i < values.length; i++) {
-                String name = String.format(format, values[i]);
-                if (DEBUG_COLS) Gdx.app.debug(TAG, name);
-                columnNames[i] = name;
-              }
-            }
-
-            columns.put(field, txt.getColumnId(columnNames));
-          }
-        }
+        final int columnIndex = column.columnIndex();
+        columns.put(field, columnIndex >= 0
+            ? new int[] { columnIndex }
+            : txt.getColumnId(columnNames(field, column)));
       }
 
       if (primaryKey == null && !index) {
@@ -186,11 +154,20 @@ public abstract class Excel<T extends Excel.Entry> implements Iterable<T> {
         }
       }
 
+      final Binder[] binders = new Binder[columns.size];
+      int numBinders = 0;
+      for (ObjectMap.Entry<Field, int[]> column : columns.entries()) {
+        binders[numBinders++] = Binder.of(column.key, column.value);
+      }
+
+      final EntryBinder<Entry> entryBinder = entryBinder(entryClass, columns);
+      if (DEBUG && entryBinder == null) Gdx.app.debug(TAG, "No generated binder for " + entryClass + ", binding reflectively");
+
       final int primaryKeyCol = index ? -1 : columns.get(primaryKey)[0];
       final Class primaryKeyType = index ? null : primaryKey.getType();
       final int size = txt.getRows();
       for (int i = 0, j = excel.offset(); i < size; i++) {
-        Entry entry = entryClass.newInstance();
+        Entry entry = entryBinder != null ? entryBinder.newEntry() : entryClass.newInstance();
 
         String rowName = txt.getRowName(i);
         if (ignore.contains(rowName)) {
@@ -199,71 +176,28 @@ public abstract class Excel<T extends Excel.Entry> implements Iterable<T> {
         }
 
         String name = index ? null : txt.getString(i, primaryKeyCol);
-        for (ObjectMap.Entry<Field, int[]> row : columns.entries()) {
-          Field field = row.key;
-          int[] columnIds = row.value;
-          Class type = field.getType();
-          assert type.isArray() || columnIds.length == 1 : "field should only correspond to 1 column: " + field.getName() + ", " + columnIds.length + " columns (is it supposed to be an array?)";
-          if (type == String.class) {
-            String value = txt.getString(i, columnIds[0]);
-            field.set(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), value));
-          } else if (type == String[].class) {
-            String[] value = txt.getString(i, columnIds);
-            field.set(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), Arrays.toString(value)));
-          } else if (type == byte.class) {
-            byte value = txt.getByte(i, columnIds[0]);
-            field.setByte(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), value));
-          } else if (type == byte[].class) {
-            byte[] value = txt.getByte(i, columnIds);
-            field.set(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), Arrays.toString(value)));
-          } else if (type == short.class) {
-            short value = txt.getShort(i, columnIds[0]);
-            field.setShort(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), value));
-          } else if (type == short[].class) {
-            short[] value = txt.getShort(i, columnIds);
-            field.set(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), Arrays.toString(value)));
-          } else if (type == int.class) {
-            int value = txt.getInt(i, columnIds[0]);
-            field.setInt(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), value));
-          } else if (type == int[].class) {
-            int[] value = txt.getInt(i, columnIds);
-            field.set(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), Arrays.toString(value)));
-          } else if (type == long.class) {
-            long value = txt.getLong(i, columnIds[0]);
-            field.setLong(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), value));
-          } else if (type == long[].class) {
-            long[] value = txt.getLong(i, columnIds);
-            field.set(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), Arrays.toString(value)));
-          } else if (type == boolean.class) {
-            boolean value = txt.getBoolean(i, columnIds[0]);
-            field.setBoolean(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), value));
-          } else if (type == boolean[].class) {
-            boolean[] value = txt.getBoolean(i, columnIds);
-            field.set(entry, value);
-            if (DEBUG_ENTRIES) Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, field.getName(), Arrays.toString(value)));
-          } else {
-            throw new UnsupportedOperationException("No support for " + type + " fields");
+        if (entryBinder != null) {
+          entryBinder.bind(txt, i, entry);
+        } else {
+          for (Binder binder : binders) binder.bind(txt, i, entry);
+        }
+
+        if (DEBUG_ENTRIES) {
+          for (Binder binder : binders) {
+            Gdx.app.debug(TAG, String.format("Entry[%d](%s).%s=%s", j, name, binder.field.getName(), binder.toString(entry)));
           }
         }
 
         if (index) {
+          if (rows != null) rows.add(j, entry);
           excel.put(j++, entry);
         } else if (primaryKeyType == int.class) {
           int id = primaryKey.getInt(entry);
+          if (rows != null) rows.add(id, entry);
           excel.put(id, entry);
         } else if (primaryKeyType == String.class) {
           String id = name;//(String) primaryKey.get(entry);
+          if (rows != null) rows.add(j, entry);
           excel.put(j, entry);
 
           if (excel.STRING_TO_ID == EMPTY_MAP) excel.STRING_TO_ID = new ObjectIntMap();
@@ -273,14 +207,93 @@ public abstract class Excel<T extends Excel.Entry> implements Iterable<T> {
       }
 
       excel.init();
+      excel.buildIndexes();
       return excel;
     } catch (Throwable t) {
       throw new GdxRuntimeException("Couldn't load excel " + excelClass, t);
     }
   }
 
+  /**
+   * @return names of the columns bound to {@code field}, unless it is bound by
+   *         {@link Entry.Column#columnIndex() index}
+   */
+  static String[] columnNames(Field field, Entry.Column column) {
+    final String format     = column.format();
+    final String values[]   = column.values();
+    final int    startIndex = column.startIndex();
+    final int    endIndex   = column.endIndex();
+    if (format.isEmpty()) {
+      final String fieldName = field.getName();
+      if (values.length > 0) {
+        String[] columnNames = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+          String name = values[i];
+          if (DEBUG_COLS) Gdx.app.debug(TAG, name);
+          columnNames[i] = name;
+        }
+
+        return columnNames;
+      } else if (startIndex == 0 && endIndex == 0) {
+        if (DEBUG_COLS) Gdx.app.debug(TAG, fieldName);
+        return new String[] { fieldName };
+      } else {
+        String[] columnNames = new String[endIndex - startIndex];
+        for (int i = startIndex, j = 0; i < endIndex; i++, j++) {
+          String name = fieldName + i;
+          if (DEBUG_COLS) Gdx.app.debug(TAG, name);
+          columnNames[j] = name;
+        }
+
+        return columnNames;
+      }
+    } else {
+      if (startIndex == 0 && endIndex == 0) {
+        return new String[] { format };
+      } else {
+        String[] columnNames = new String[endIndex - startIndex];
+        if (values.length == 0) {
+          for (int i = startIndex, j = 0; i < endIndex; i++, j++) {
+            String name = String.format(format, i);
+            if (DEBUG_COLS) Gdx.app.debug(TAG, name);
+            columnNames[j] = name;
+          }
+        } else {
+          for (int i = 0; i < values.length; i++) {
+            String name = String.format(format, values[i]);
+            if (DEBUG_COLS) Gdx.app.debug(TAG, name);
+            columnNames[i] = name;
+          }
+        }
+
+        return columnNames;
+      }
+    }
+  }
+
+  /**
+   * @return the generated binder of {@code entryClass} with the column ids of its fields set, or
+   *         {@code null} if there isn't one or it doesn't bind the same fields as {@code columns}
+   */
+  static EntryBinder<Entry> entryBinder(Class<Entry> entryClass, ObjectMap<Field, int[]> columns)
+      throws NoSuchFieldException {
+    if (!BIND_GENERATED) return null;
+    EntryBinder<Entry> binder = EntryBinder.of(entryClass);
+    if (binder == null) return null;
+    String[] fields = binder.fields();
+    if (fields.length != columns.size) return null;
+    int[][] ids = new int[fields.length][];
+    for (int i = 0; i < fields.length; i++) {
+      ids[i] = columns.get(entryClass.getField(fields[i]));
+      if (ids[i] == null) return null;
+    }
+
+    binder.setColumns(ids);
+    return binder;
+  }
+
   @SuppressWarnings("unchecked")
-  private static Class<Entry> getEntryClass(Class excelClass) {
+  static Class<Entry> getEntryClass(Class excelClass) {
     Class[] declaredClasses = excelClass.getDeclaredClasses();
     for (Class declaredClass : declaredClasses) {
       if (Entry.class.isAssignableFrom(declaredClass)) {
@@ -303,6 +316,36 @@ public abstract class Excel<T extends Excel.Entry> implements Iterable<T> {
 
   protected void init() {}
 
+  /**
+   * Builds a {@link SecondaryIndex} for each {@link Entry.Indexed indexed} field of the entries,
+   * after {@link #init()} so entries it adds are included.
+   */
+  void buildIndexes() throws IllegalAccessException {
+    Class<Entry> entryClass = getEntryClass(getClass());
+    if (entryClass == null) return;
+    int[] keys = null;
+    for (Field field : entryClass.getFields()) {
+      if (field.getAnnotation(Entry.Indexed.class) == null) continue;
+      if (keys == null) {
+        keys = entries.keys().toArray().toArray();
+        Arrays.sort(keys);
+        indexes = new ObjectMap<>();
+      }
+
+      indexes.put(field.getName(), new SecondaryIndex(field, this, keys));
+    }
+  }
+
+  /**
+   * @return the index of the {@link Entry.Indexed indexed} field named {@code field}
+   * @throws IllegalArgumentException if the field is not indexed
+   */
+  public SecondaryIndex getIndex(String field) {
+    SecondaryIndex index = indexes != null ? indexes.get(field) : null;
+    if (index == null) throw new IllegalArgumentException(field + " is not indexed in " + getClass().getSimpleName());
+    return index;
+  }
+
   public T get(String id) {
     return get(index(id));
   }
@@ -0,0 +1,438 @@
+package com.riiablo.codec.excel;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.riiablo.codec.TXT;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Binary cache of parsed {@link Excel excels}. The first time a table is loaded it is parsed from
+ * its .txt as usual and its rows are compiled into a compact blob stamped with a hash of the .txt.
+ * Later loads read the blob back sequentially and replay the rows into a new excel, skipping the
+ * tokenizing, column lookups and number parsing of {@link Excel#parse}. The blob is recompiled
+ * whenever the .txt, the ignored rows or the {@link Excel.Entry.Column columns} of the entry class
+ * change.
+ * <p>
+ * Strings are pooled within a blob, so each distinct value is stored and allocated only once.
+ */
+public class ExcelCache {
+  private static final String TAG = "ExcelCache";
+  private static final boolean DEBUG      = !true;
+  private static final boolean DEBUG_HIT  = DEBUG && true;
+  private static final boolean DEBUG_MISS = DEBUG && true;
+
+  static final int MAGIC   = 0x52584C53; // RXLS
+  static final int VERSION = 1;
+
+  /** string index and array length written in place of null */
+  static final int NULL = -1;
+
+  static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+  static final long FNV_PRIME        = 0x100000001B3L;
+
+  static final byte STRING        = 0;
+  static final byte STRING_ARRAY  = 1;
+  static final byte BYTE          = 2;
+  static final byte BYTE_ARRAY    = 3;
+  static final byte SHORT         = 4;
+  static final byte SHORT_ARRAY   = 5;
+  static final byte INT           = 6;
+  static final byte INT_ARRAY     = 7;
+  static final byte LONG          = 8;
+  static final byte LONG_ARRAY    = 9;
+  static final byte BOOLEAN       = 10;
+  static final byte BOOLEAN_ARRAY = 11;
+
+  private static final Comparator<Field> FIELD_ORDER = new Comparator<Field>() {
+    @Override
+    public int compare(Field a, Field b) {
+      int result = a.getName().compareTo(b.getName());
+      if (result != 0) return result;
+      return a.getDeclaringClass().getName().compareTo(b.getDeclaringClass().getName());
+    }
+  };
+
+  private ExcelCache() {}
+
+  /**
+   * Rows in the order {@link Excel#parse(TXT, Class, ObjectSet, Rows)} put them.
+   */
+  static final class Rows {
+    final IntArray ids = new IntArray();
+    final Array<Excel.Entry> entries = new Array<>();
+
+    void add(int id, Excel.Entry entry) {
+      ids.add(id);
+      entries.add(entry);
+    }
+  }
+
+  /**
+   * Loads {@code excelClass} from the blob at {@code cache} if it was compiled from the same
+   * contents as {@code txt}, otherwise parses {@code txt} and compiles the blob for next time.
+   *
+   * @param cache location of the blob, or {@code null} to always parse {@code txt}
+   */
+  public static <T extends Excel> T load(FileHandle txt, FileHandle cache, Class<T> excelClass, ObjectSet<String> ignore) {
+    if (ignore == null) ignore = Excel.emptySet();
+    final byte[] bytes = txt.readBytes();
+    if (cache == null) return Excel.parse(TXT.loadFromBytes(bytes), excelClass, ignore);
+
+    final Field[] fields = fields(excelClass);
+    final long hash = hash(bytes);
+    final long layout = layout(excelClass, fields, ignore);
+    if (cache.exists()) {
+      try {
+        T excel = read(ByteBuffer.wrap(cache.readBytes()), excelClass, fields, hash, layout);
+        if (excel != null) {
+          if (DEBUG_HIT) Gdx.app.debug(TAG, "loaded " + excelClass.getSimpleName() + " from " + cache);
+          return excel;
+        }
+      } catch (Throwable t) {
+        Gdx.app.error(TAG, "Couldn't read " + cache + ", recompiling " + excelClass.getSimpleName(), t);
+      }
+    }
+
+    if (DEBUG_MISS) Gdx.app.debug(TAG, "compiling " + excelClass.getSimpleName() + " to " + cache);
+    Rows rows = new Rows();
+    T excel = Excel.parse(TXT.loadFromBytes(bytes), excelClass, ignore, rows);
+    try {
+      cache.writeBytes(write(excel, rows, fields, hash, layout), false);
+    } catch (Throwable t) {
+      Gdx.app.error(TAG, "Couldn't write " + cache, t);
+    }
+
+    return excel;
+  }
+
+  /**
+   * @return the excel stored in {@code in}, or {@code null} if it was compiled from another .txt or
+   *         layout
+   */
+  @SuppressWarnings("unchecked")
+  static <T extends Excel> T read(ByteBuffer in, Class<T> excelClass, Field[] fields, long hash, long layout) throws Exception {
+    if (in.getInt() != MAGIC || in.getInt() != VERSION) return null;
+    if (in.getLong() != hash || in.getLong() != layout) return null;
+
+    final String[] strings = new String[in.getInt()];
+    for (int i = 0; i < strings.length; i++) {
+      final int length = in.getShort() & 0xFFFF;
+      strings[i] = new String(in.array(), in.position(), length, UTF_8);
+      in.position(in.position() + length);
+    }
+
+    final byte[] types = types(fields);
+    final Class<Excel.Entry> entryClass = Excel.getEntryClass(excelClass);
+    final T excel = excelClass.newInstance();
+    final int size = in.getInt();
+    for (int i = 0; i < size; i++) {
+      final int id = in.getInt();
+      final Excel.Entry entry = entryClass.newInstance();
+      for (int f = 0; f < fields.length; f++) {
+        final Field field = fields[f];
+        switch (types[f]) {
+          case STRING:
+            field.set(entry, readString(in, strings));
+            break;
+          case STRING_ARRAY: {
+            final int length = in.getInt();
+            if (length == NULL) break;
+            final String[] value = new String[length];
+            for (int j = 0; j < length; j++) value[j] = readString(in, strings);
+            field.set(entry, value);
+            break;
+          }
+          case BYTE:
+            field.setByte(entry, in.get());
+            break;
+          case BYTE_ARRAY: {
+            final int length = in.getInt();
+            if (length == NULL) break;
+            final byte[] value = new byte[length];
+            in.get(value);
+            field.set(entry, value);
+            break;
+          }
+          case SHORT:
+            field.setShort(entry, in.getShort());
+            break;
+          case SHORT_ARRAY: {
+            final int length = in.getInt();
+            if (length == NULL) break;
+            final short[] value = new short[length];
+            for (int j = 0; j < length; j++) value[j] = in.getShort();
+            field.set(entry, value);
+            break;
+          }
+          case INT:
+            field.setInt(entry, in.getInt());
+            break;
+          case INT_ARRAY: {
+            final int length = in.getInt();
+            if (length == NULL) break;
+            final int[] value = new int[length];
+            for (int j = 0; j < length; j++) value[j] = in.getInt();
+            field.set(entry, value);
+            break;
+          }
+          case LONG:
+            field.setLong(entry, in.getLong());
+            break;
+          case LONG_ARRAY: {
+            final int length = in.getInt();
+            if (length == NULL) break;
+            final long[] value = new long[length];
+            for (int j = 0; j < length; j++) value[j] = in.getLong();
+            field.set(entry, value);
+            break;
+          }
+          case BOOLEAN:
+            field.setBoolean(entry, in.get() != 0);
+            break;
+          case BOOLEAN_ARRAY: {
+            final int length = in.getInt();
+            if (length == NULL) break;
+            final boolean[] value = new boolean[length];
+            for (int j = 0; j < length; j++) value[j] = in.get() != 0;
+            field.set(entry, value);
+            break;
+          }
+        }
+      }
+
+      excel.put(id, entry);
+    }
+
+    final int numIds = in.getInt();
+    if (numIds != NULL) {
+      excel.STRING_TO_ID = new ObjectIntMap<>(numIds);
+      for (int i = 0; i < numIds; i++) excel.STRING_TO_ID.put(strings[in.getInt()], in.getInt());
+    }
+
+    excel.init();
+    excel.buildIndexes();
+    return excel;
+  }
+
+  private static String readString(ByteBuffer in, String[] strings) {
+    final int i = in.getInt();
+    return i == NULL ? null : strings[i];
+  }
+
+  static byte[] write(Excel excel, Rows rows, Field[] fields, long hash, long layout) throws Exception {
+    final byte[] types = types(fields);
+    final ObjectIntMap<String> pool = new ObjectIntMap<>();
+    final Array<String> strings = new Array<>(String.class);
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+    DataOutputStream out = new DataOutputStream(body);
+    out.writeInt(rows.ids.size);
+    for (int i = 0; i < rows.ids.size; i++) {
+      final Excel.Entry entry = rows.entries.get(i);
+      out.writeInt(rows.ids.get(i));
+      for (int f = 0; f < fields.length; f++) {
+        final Field field = fields[f];
+        switch (types[f]) {
+          case STRING:
+            writeString(out, (String) field.get(entry), pool, strings);
+            break;
+          case STRING_ARRAY: {
+            final String[] value = (String[]) field.get(entry);
+            out.writeInt(value != null ? value.length : NULL);
+            if (value != null) for (String s : value) writeString(out, s, pool, strings);
+            break;
+          }
+          case BYTE:
+            out.writeByte(field.getByte(entry));
+            break;
+          case BYTE_ARRAY: {
+            final byte[] value = (byte[]) field.get(entry);
+            out.writeInt(value != null ? value.length : NULL);
+            if (value != null) out.write(value);
+            break;
+          }
+          case SHORT:
+            out.writeShort(field.getShort(entry));
+            break;
+          case SHORT_ARRAY: {
+            final short[] value = (short[]) field.get(entry);
+            out.writeInt(value != null ? value.length : NULL);
+            if (value != null) for (short s : value) out.writeShort(s);
+            break;
+          }
+          case INT:
+            out.writeInt(field.getInt(entry));
+            break;
+          case INT_ARRAY: {
+            final int[] value = (int[]) field.get(entry);
+            out.writeInt(value != null ? value.length : NULL);
+            if (value != null) for (int v : value) out.writeInt(v);
+            break;
+          }
+          case LONG:
+            out.writeLong(field.getLong(entry));
+            break;
+          case LONG_ARRAY: {
+            final long[] value = (long[]) field.get(entry);
+            out.writeInt(value != null ? value.length : NULL);
+            if (value != null) for (long v : value) out.writeLong(v);
+            break;
+          }
+          case BOOLEAN:
+            out.writeBoolean(field.getBoolean(entry));
+            break;
+          case BOOLEAN_ARRAY: {
+            final boolean[] value = (boolean[]) field.get(entry);
+            out.writeInt(value != null ? value.length : NULL);
+            if (value != null) for (boolean b : value) out.writeBoolean(b);
+            break;
+          }
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    final ObjectIntMap<String> ids = excel.STRING_TO_ID;
+    if (ids == Excel.EMPTY_MAP) {
+      out.writeInt(NULL);
+    } else {
+      out.writeInt(ids.size);
+      for (ObjectIntMap.Entry<String> entry : ids.entries()) {
+        writeString(out, entry.key, pool, strings);
+        out.writeInt(entry.value);
+      }
+    }
+
+    out.flush();
+
+    ByteArrayOutputStream blob = new ByteArrayOutputStream(body.size() + 8192);
+    out = new DataOutputStream(blob);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeLong(hash);
+    out.writeLong(layout);
+    out.writeInt(strings.size);
+    for (int i = 0; i < strings.size; i++) {
+      final byte[] utf8 = strings.get(i).getBytes(UTF_8);
+      if (utf8.length > 0xFFFF) throw new IOException("string too long: " + utf8.length + " bytes");
+      out.writeShort(utf8.length);
+      out.write(utf8);
+    }
+
+    body.writeTo(out);
+    out.flush();
+    return blob.toByteArray();
+  }
+
+  private static void writeString(DataOutputStream out, String value, ObjectIntMap<String> pool, Array<String> strings) throws IOException {
+    if (value == null) {
+      out.writeInt(NULL);
+      return;
+    }
+
+    int i = pool.get(value, NULL);
+    if (i == NULL) {
+      pool.put(value, i = strings.size);
+      strings.add(value);
+    }
+
+    out.writeInt(i);
+  }
+
+  /**
+   * @return the {@link Excel.Entry.Column columns} of the entry class of {@code excelClass} in the
+   *         order they are stored
+   */
+  static Field[] fields(Class<? extends Excel> excelClass) {
+    Class<Excel.Entry> entryClass = Excel.getEntryClass(excelClass);
+    if (entryClass == null) throw new GdxRuntimeException(excelClass + " does not implement " + Excel.Entry.class);
+    Array<Field> fields = new Array<>(Field.class);
+    for (Field field : entryClass.getFields()) {
+      if (field.getAnnotation(Excel.Entry.Column.class) != null) fields.add(field);
+    }
+
+    Field[] result = fields.toArray();
+    Arrays.sort(result, FIELD_ORDER);
+    return result;
+  }
+
+  static byte[] types(Field[] fields) {
+    byte[] types = new byte[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      Class type = fields[i].getType();
+      if      (type == String.class)    types[i] = STRING;
+      else if (type == String[].class)  types[i] = STRING_ARRAY;
+      else if (type == byte.class)      types[i] = BYTE;
+      else if (type == byte[].class)    types[i] = BYTE_ARRAY;
+      else if (type == short.class)     types[i] = SHORT;
+      else if (type == short[].class)   types[i] = SHORT_ARRAY;
+      else if (type == int.class)       types[i] = INT;
+      else if (type == int[].class)     types[i] = INT_ARRAY;
+      else if (type == long.class)      types[i] = LONG;
+      else if (type == long[].class)    types[i] = LONG_ARRAY;
+      else if (type == boolean.class)   types[i] = BOOLEAN;
+      else if (type == boolean[].class) types[i] = BOOLEAN_ARRAY;
+      else throw new UnsupportedOperationException("No support for " + type + " fields");
+    }
+
+    return types;
+  }
+
+  /**
+   * @return hash of everything besides the .txt which determines the rows of a blob: the format
+   *         version, the excel class, the ignored rows and the name, type and annotation of each
+   *         column
+   */
+  static long layout(Class<? extends Excel> excelClass, Field[] fields, ObjectSet<String> ignore) {
+    long hash = hash(FNV_OFFSET_BASIS, VERSION);
+    hash = hash(hash, excelClass.getName());
+    Array<String> ignored = new Array<>(String.class);
+    // ignore sets like Excel.EXPANSION are shared by tables loaded in parallel, so don't use their
+    // cached iterator
+    for (String name : new ObjectSet.ObjectSetIterator<>(ignore)) ignored.add(name);
+    ignored.sort();
+    for (String name : ignored) hash = hash(hash, name);
+    for (Field field : fields) {
+      hash = hash(hash, field.getDeclaringClass().getName());
+      hash = hash(hash, field.getName());
+      hash = hash(hash, field.getType().getName());
+      hash = hash(hash, field.getAnnotation(Excel.Entry.Column.class).toString());
+    }
+
+    return hash;
+  }
+
+  /**
+   * @return 64-bit FNV-1a hash of {@code bytes}
+   */
+  static long hash(byte[] bytes) {
+    long hash = FNV_OFFSET_BASIS;
+    for (byte b : bytes) hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+    return hash;
+  }
+
+  static long hash(long hash, String value) {
+    for (int i = 0, s = value.length(); i < s; i++) hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+    return hash(hash, value.length());
+  }
+
+  static long hash(long hash, int value) {
+    for (int i = 0; i < 32; i += 8) hash = (hash ^ ((value >>> i) & 0xFF)) * FNV_PRIME;
+    return hash;
+  }
+}
@@ -73,6 +73,23 @@ public class ItemStatCost extends Excel<ItemStatCost.Entry> {
       ID = com.riiablo.item.Stat.poisondam;
       descpriority = 91;
     }});
+
+    for (Entry entry : this) {
+      entry.opBase = entry.op_base != null ? index(entry.op_base) : -1;
+      entry.opStat = resolve(entry.op_stat);
+    }
+  }
+
+  /**
+   * @return ids of {@code stats} up to the first empty one
+   */
+  private int[] resolve(String[] stats) {
+    if (stats == null) return new int[0];
+    int len = 0;
+    while (len < stats.length && !stats[len].isEmpty()) len++;
+    int[] ids = new int[len];
+    for (int i = 0; i < len; i++) ids[i] = index(stats[i]);
+    return ids;
   }
 
   public static class Entry extends Excel.Entry {
@@ -144,5 +161,9 @@ public class ItemStatCost extends Excel<ItemStatCost.Entry> {
     @Column public String  dgrpstrneg;
     @Column public String  dgrpstr2;
     @Column public int     stuff;
+
+    /** {@link #op_base} and {@link #op_stat} resolved to stat ids when the table is loaded */
+    public int     opBase;
+    public int     opStat[];
   }
 }
@@ -16,7 +16,9 @@ public class LvlTypes extends Excel<LvlTypes.Entry> {
     @Column(format = "File %d", startIndex = 1, endIndex = 33)
     public String  File[];
     @Column public boolean Beta;
-    @Column public int     Act;
+    @Column
+    @Indexed
+    public int     Act;
     @Column public boolean Expansion;
   }
 }
@@ -3,6 +3,15 @@ package com.riiablo.codec.excel;
 import com.riiablo.codec.excel.Excel;
 
 public class MonStats extends Excel<MonStats.Entry> {
+  /**
+   * Resolves {@link Entry#spawnmode} against the given table.
+   */
+  public void index(MonMode modes) {
+    for (Entry entry : this) {
+      entry.spawnMode = (byte) modes.index(entry.spawnmode);
+    }
+  }
+
   public static class Entry extends Excel.Entry {
     @Override
     public String toString() {
@@ -219,5 +228,8 @@ public class MonStats extends Excel<MonStats.Entry> {
     @Column public boolean SplGetModeChart;
     @Column public boolean SplEndGeneric;
     @Column public boolean SplClientEnd;
+
+    /** {@link #spawnmode} resolved to a {@link MonMode} id, {@code -1} if empty or unknown */
+    public byte    spawnMode;
   }
 }
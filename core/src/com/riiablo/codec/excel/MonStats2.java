@@ -2,7 +2,26 @@ package com.riiablo.codec.excel;
 
 import com.riiablo.codec.excel.Excel;
 
+import org.apache.commons.lang3.StringUtils;
+
 public class MonStats2 extends Excel<MonStats2.Entry> {
+  /**
+   * Resolves {@link Entry#BaseW} and {@link Entry#ComponentV} against the given tables.
+   */
+  public void index(WeaponClass weaponClasses, CompCode compcodes) {
+    for (Entry entry : this) {
+      entry.weaponClass = (byte) weaponClasses.index(entry.BaseW);
+      entry.components = new byte[entry.ComponentV.length][];
+      for (int i = 0; i < entry.ComponentV.length; i++) {
+        String ComponentV = entry.ComponentV[i];
+        if (ComponentV.isEmpty()) continue;
+        String[] v = StringUtils.remove(ComponentV, '"').split(",");
+        byte[] components = entry.components[i] = new byte[v.length];
+        for (int j = 0; j < v.length; j++) components[j] = (byte) compcodes.index(v[j]);
+      }
+    }
+  }
+
   public static class Entry extends Excel.Entry {
     @Override
     public String toString() {
@@ -89,5 +108,10 @@ public class MonStats2 extends Excel<MonStats2.Entry> {
     @Column public int     InfernoRollback;
     @Column public String  ResurrectMode;
     @Column public String  ResurrectSkill;
+
+    /** {@link #BaseW} resolved to a {@link WeaponClass} id */
+    public byte    weaponClass;
+    /** {@link #ComponentV} resolved to {@link CompCode} ids, {@code null} for empty components */
+    public byte    components[][];
   }
 }
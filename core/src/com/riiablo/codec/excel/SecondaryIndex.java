@@ -0,0 +1,137 @@
+package com.riiablo.codec.excel;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+import java.lang.reflect.Field;
+
+/**
+ * Ids of the entries of an {@link Excel} grouped by the value of one of their
+ * {@link Excel.Entry.Indexed indexed} fields. Each distinct value maps to a slot, and the ids of
+ * the entries with that value are stored contiguously, in ascending order, in a single dense array:
+ * <pre>
+ * int slot = index.find(value);
+ * for (int i = index.start(slot), s = index.end(slot); i < s; i++) excel.get(index.id(i));
+ * </pre>
+ * {@link #first} covers the common case of a unique value.
+ */
+public class SecondaryIndex {
+  final Field field;
+  final ObjectIntMap<String> strings; // value -> slot, String fields
+  final IntIntMap ints;               // value -> slot, int fields
+  final int[] offsets;                // slot -> first index within ids, plus end
+  final int[] ids;
+
+  /**
+   * @param keys ids of the entries to index, in ascending order
+   */
+  SecondaryIndex(Field field, Excel<?> excel, int[] keys) throws IllegalAccessException {
+    this.field = field;
+    final Class type = field.getType();
+    if (type == String.class) {
+      strings = new ObjectIntMap<>();
+      ints = null;
+    } else if (type == int.class) {
+      strings = null;
+      ints = new IntIntMap();
+    } else {
+      throw new UnsupportedOperationException("No support for indexing " + type + " fields");
+    }
+
+    // assign slots in order of first appearance and count the entries in each
+    final int[] slotOf = new int[keys.length];
+    IntArray counts = new IntArray();
+    for (int i = 0; i < keys.length; i++) {
+      final Object entry = excel.get(keys[i]);
+      final int slot;
+      if (strings != null) {
+        final String value = (String) field.get(entry);
+        if (value == null) {
+          slotOf[i] = -1;
+          continue;
+        }
+
+        int s = strings.get(value, -1);
+        if (s == -1) strings.put(value, s = counts.size);
+        slot = s;
+      } else {
+        final int value = field.getInt(entry);
+        int s = ints.get(value, -1);
+        if (s == -1) ints.put(value, s = counts.size);
+        slot = s;
+      }
+
+      if (slot == counts.size) counts.add(0);
+      counts.incr(slot, 1);
+      slotOf[i] = slot;
+    }
+
+    offsets = new int[counts.size + 1];
+    for (int slot = 0; slot < counts.size; slot++) offsets[slot + 1] = offsets[slot] + counts.get(slot);
+
+    ids = new int[offsets[counts.size]];
+    final int[] cursor = new int[counts.size];
+    System.arraycopy(offsets, 0, cursor, 0, counts.size);
+    for (int i = 0; i < keys.length; i++) {
+      final int slot = slotOf[i];
+      if (slot != -1) ids[cursor[slot]++] = keys[i];
+    }
+  }
+
+  public String getName() {
+    return field.getName();
+  }
+
+  /**
+   * @return the slot of the entries whose field equals {@code value}, or {@code -1} if there are
+   *         none
+   */
+  public int find(String value) {
+    if (strings == null) throw new UnsupportedOperationException(field.getName() + " is not a String field");
+    return value == null ? -1 : strings.get(value, -1);
+  }
+
+  /**
+   * @see #find(String)
+   */
+  public int find(int value) {
+    if (ints == null) throw new UnsupportedOperationException(field.getName() + " is not an int field");
+    return ints.get(value, -1);
+  }
+
+  public int start(int slot) {
+    return slot == -1 ? 0 : offsets[slot];
+  }
+
+  public int end(int slot) {
+    return slot == -1 ? 0 : offsets[slot + 1];
+  }
+
+  public int id(int i) {
+    return ids[i];
+  }
+
+  /**
+   * @return the number of entries whose field equals the value of {@code slot}
+   */
+  public int count(int slot) {
+    return end(slot) - start(slot);
+  }
+
+  /**
+   * @return the lowest id of the entries whose field equals {@code value}, or {@code -1}
+   */
+  public int first(String value) {
+    final int slot = find(value);
+    return slot == -1 ? -1 : ids[offsets[slot]];
+  }
+
+  /**
+   * @see #first(String)
+   */
+  public int first(int value) {
+    final int slot = find(value);
+    return slot == -1 ? -1 : ids[offsets[slot]];
+  }
+}
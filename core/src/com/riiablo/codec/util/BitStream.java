@@ -97,6 +97,10 @@ public class BitStream {
     curBitPosition += bits;
   }
 
+  public void rewind() {
+    curBitPosition = firstBitOffset;
+  }
+
   public void alignToByte() {
     int highestBit = Byte.SIZE - 1;
     curBitPosition = (curBitPosition + highestBit) & (~highestBit);
@@ -0,0 +1,38 @@
+package com.riiablo.entity;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Counts down the AI timer of every entity with a {@link EntityStore#setBrain(int, byte, float)
+ * brain} and lets the brain think once it expires, after which the timer restarts from the
+ * entity's AI delay.
+ */
+public class AiSystem implements EntitySystem {
+  final Array<Brain> brains = new Array<>(Brain.class);
+
+  /**
+   * Registers {@code brain}, returning the index entities refer to it by.
+   */
+  public byte addBrain(Brain brain) {
+    if (brains.size > Byte.MAX_VALUE) throw new IllegalStateException("Too many brains: " + brains.size);
+    brains.add(brain);
+    return (byte) (brains.size - 1);
+  }
+
+  @Override
+  public void update(EntityStore store, float delta) {
+    // brains may create entities, which can reallocate the arrays, so they aren't cached here
+    final Brain brains[] = this.brains.items;
+    for (int id = 0, maxId = store.maxId; id < maxId; id++) {
+      if (!store.alive[id] || store.brain[id] == EntityStore.NO_BRAIN) continue;
+      if ((store.aiTimer[id] -= delta) > 0) continue;
+      store.aiTimer[id] += store.aiDelay[id];
+      if (store.aiTimer[id] < 0) store.aiTimer[id] = store.aiDelay[id];
+      brains[store.brain[id]].think(store, id);
+    }
+  }
+
+  public interface Brain {
+    void think(EntityStore store, int id);
+  }
+}
@@ -0,0 +1,19 @@
+package com.riiablo.entity;
+
+/**
+ * Advances the animation time of every entity and derives its current frame the same way
+ * {@link com.riiablo.codec.Animation#act(float)} does, looping at the end of the animation.
+ */
+public class AnimationSystem implements EntitySystem {
+  @Override
+  public void update(EntityStore store, float delta) {
+    final boolean alive[] = store.alive;
+    final float animTime[] = store.animTime, frameDuration[] = store.frameDuration;
+    final int numFrames[] = store.numFrames, frame[] = store.frame;
+    for (int id = 0, maxId = store.maxId; id < maxId; id++) {
+      if (!alive[id]) continue;
+      final float time = animTime[id] += delta;
+      frame[id] = (int) (time / frameDuration[id]) % numFrames[id];
+    }
+  }
+}
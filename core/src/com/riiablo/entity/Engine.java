@@ -1,13 +1,20 @@
 package com.riiablo.entity;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntMap;
 
 import java.util.Iterator;
 
 public class Engine implements Iterable<Entity> {
+  private static final String TAG = "Engine";
+  private static final boolean DEBUG     = true;
+  private static final boolean DEBUG_ADD = DEBUG && !true;
+
   private IntMap<Entity> entitiesById = new IntMap<>();
   private Array<Entity> entities = new Array<>(false, 16);
+  private SpatialHash hash = new SpatialHash();
   private int nextEntityId = 33;
 
   public Engine() {}
@@ -17,7 +24,6 @@ public class Engine implements Iterable<Entity> {
   }
 
   private int obtainEntityId() {
-    System.out.println("entity id = " + nextEntityId);
     return nextEntityId++;
   }
 
@@ -30,6 +36,31 @@ public class Engine implements Iterable<Entity> {
     return new Array.ArrayIterator<>(entities);
   }
 
+  /**
+   * Adds every entity within {@code radius} sub-tiles of {@code position} to {@code dst}.
+   *
+   * @return {@code dst}
+   */
+  public Array<Entity> getEntities(Vector2 position, float radius, Array<Entity> dst) {
+    return hash.get(position, radius, dst);
+  }
+
+  /**
+   * Adds every entity positioned within the given rectangle of sub-tiles to {@code dst}.
+   *
+   * @return {@code dst}
+   */
+  public Array<Entity> getEntities(int x, int y, int width, int height, Array<Entity> dst) {
+    return hash.get(x, y, width, height, dst);
+  }
+
+  /**
+   * @see SpatialHash#getVersion(int, int)
+   */
+  public int getVersion(int x, int y) {
+    return hash.getVersion(x, y);
+  }
+
   public void add(Entity entity, int id) {
     entity.uuid = id;
     add(entity);
@@ -42,21 +73,26 @@ public class Engine implements Iterable<Entity> {
 
     entitiesById.put(entity.uuid, entity);
     entities.add(entity);
-    System.out.println("adding entity " + entity.classname + " - " + entity.uuid);
+    hash.add(entity);
+    if (DEBUG_ADD) Gdx.app.debug(TAG, "adding entity " + entity.classname + " - " + entity.uuid);
   }
 
   public boolean remove(Entity entity) {
     Entity ent = entitiesById.remove(entity.uuid);
     entities.removeValue(entity, true);
+    hash.remove(entity);
+    entity.setStore(null);
     entity.uuid = 0;
     return ent != null;
   }
 
   public boolean remove(int id) {
-    Entity ent = entitiesById.remove(id);
-    Entity entity = getEntity(id);
+    Entity entity = entitiesById.remove(id);
+    if (entity == null) return false;
     entities.removeValue(entity, true);
+    hash.remove(entity);
+    entity.setStore(null);
     entity.uuid = 0;
-    return ent != null;
+    return true;
   }
 }
@@ -21,12 +21,15 @@ import com.riiablo.codec.excel.Overlay;
 import com.riiablo.codec.excel.Skills;
 import com.riiablo.codec.util.BBox;
 import com.riiablo.graphics.BlendMode;
+import com.riiablo.graphics.PaletteIndexedAtlas;
 import com.riiablo.graphics.PaletteIndexedBatch;
+import com.riiablo.loader.DCCLoader;
 import com.riiablo.map.DS1;
 import com.riiablo.map.DT1.Tile;
 import com.riiablo.map.Map;
 import com.riiablo.map.MapGraph;
 import com.riiablo.map.MapRenderer;
+import com.riiablo.map.PathService;
 import com.riiablo.screen.GameScreen;
 import com.riiablo.widget.Label;
 
@@ -204,6 +207,9 @@ public abstract class Entity implements Animation.AnimationListener {
     }
   }
 
+  /** layers of monsters and objects, packed into {@link Riiablo#atlas} when it exists */
+  private static DCCLoader.DCCParameters ATLAS_LAZY;
+
   private static final float DEFAULT_ANGLE = MathUtils.atan2(-1, -2); // Direction 0
   private static final byte[] DEFAULT_TRANS;
   static {
@@ -232,6 +238,12 @@ public abstract class Entity implements Animation.AnimationListener {
   float   alpha[];
   float   angle = DEFAULT_ANGLE;
   Vector2 position = new Vector2();
+  SpatialHash hash;
+  int         cell = SpatialHash.NO_CELL;
+  float       hashX, hashY; // position when last updated in hash
+  EntityStore store;        // moves this entity instead of move(float) when set
+  int         storeId;
+  float       storeX, storeY; // position when last synced with store
 
   Animation animation;
 
@@ -244,6 +256,7 @@ public abstract class Entity implements Animation.AnimationListener {
   Vector2 target = new Vector2();
   MapGraph.MapGraphPath path = new MapGraph.MapGraphPath();
   Iterator<MapGraph.Point2> targets = Collections.emptyIterator();
+  int pathVersion; // incremented whenever the path is set, discards pending path requests
 
   boolean running = false;
   float   walkSpeed = 6;
@@ -281,13 +294,10 @@ public abstract class Entity implements Animation.AnimationListener {
     trans = transforms;
     alpha = DEFAULT_ALPHA.clone();
     invalidate();
+  }
 
-    // TODO: lazy init
-    Label label = new Label(Riiablo.fonts.font16);
-    label.setUserObject(this);
-    label.setAlignment(Align.center);
-    label.getStyle().background = Label.MODAL;
-    this.label = label;
+  public byte getMode() {
+    return mode;
   }
 
   public void setMode(byte mode) {
@@ -299,6 +309,7 @@ public abstract class Entity implements Animation.AnimationListener {
       if (DEBUG_STATE) Gdx.app.debug(TAG, classname + " mode: " + type.MODE[this.mode] + " -> " + type.MODE[mode]);
       this.mode = mode;
       invalidate();
+      if (hash != null) hash.invalidate(this);
     }
 
     this.code = code;
@@ -397,7 +408,7 @@ public abstract class Entity implements Animation.AnimationListener {
       String path = builder.toString();
       if (DEBUG_DIRTY) Gdx.app.log(TAG, path);
 
-      AssetDescriptor<DCC> descriptor = new AssetDescriptor<>(path, DCC.class);
+      AssetDescriptor<DCC> descriptor = new AssetDescriptor<>(path, DCC.class, getLayerParameters());
       Riiablo.assets.load(descriptor);
       Riiablo.assets.finishLoadingAsset(descriptor);
       DCC dcc = Riiablo.assets.get(descriptor);
@@ -421,6 +432,21 @@ public abstract class Entity implements Animation.AnimationListener {
     dirty = Dirty.NONE;
   }
 
+  /**
+   * Layers are never unloaded, so the layers of monsters and objects share the lifetime of
+   * {@link Riiablo#atlas} and are packed into it, letting neighboring sprites draw without binding
+   * a texture per frame.
+   */
+  private DCCLoader.DCCParameters getLayerParameters() {
+    final PaletteIndexedAtlas atlas = Riiablo.atlas;
+    if ((type != Type.MON && type != Type.OBJ) || atlas == null) return DCCLoader.DCCParameters.LAZY;
+    if (ATLAS_LAZY == null || ATLAS_LAZY.atlas != atlas) {
+      ATLAS_LAZY = new DCCLoader.DCCParameters(0).lazy().atlas(atlas);
+    }
+
+    return ATLAS_LAZY;
+  }
+
   private boolean updateAnimation(COF cof) {
     if (animation == null) {
       animation = Animation.newAnimation(cof);
@@ -462,6 +488,7 @@ public abstract class Entity implements Animation.AnimationListener {
     if (overlayEntry != null && overlayEntry.PreDraw) overlay.draw(batch, x, y);
     animation.draw(batch, x, y);
     if (overlayEntry != null && !overlayEntry.PreDraw) overlay.draw(batch, x, y);
+    Actor label = getLabel();
     label.setPosition(x, y + getLabelOffset() + label.getHeight() / 2, Align.center);
     //if (animation.isFinished() && nextMode >= 0) {
     //  setMode(nextMode);
@@ -608,7 +635,19 @@ public abstract class Entity implements Animation.AnimationListener {
     }
   }
 
+  /**
+   * @return label showing the name of this entity, created the first time it's needed
+   */
   public Actor getLabel() {
+    if (label == null) {
+      Label label = new Label(Riiablo.fonts.font16);
+      label.setUserObject(this);
+      label.setAlignment(Align.center);
+      label.getStyle().background = Label.MODAL;
+      if (name != null) label.setText(name);
+      this.label = label;
+    }
+
     return label;
   }
 
@@ -651,10 +690,12 @@ public abstract class Entity implements Animation.AnimationListener {
   }
 
   public boolean setPath(Map map, Vector2 dst, int maxSteps) {
+    pathVersion++;
     if (dst == null) {
       path.clear();
       targets = Collections.emptyIterator();
       target.set(position);
+      if (store != null) store.clearPath(storeId);
       return false;
     }
 
@@ -663,11 +704,54 @@ public abstract class Entity implements Animation.AnimationListener {
     if (maxSteps != -1 && path.getCount() > maxSteps) {
       path.clear();
       targets = Collections.emptyIterator();
+      if (store != null) store.clearPath(storeId);
       return false;
     }
 
     if (DEBUG_PATH) Gdx.app.debug(TAG, "path=" + path);
     map.smoothPath(path);
+    followPath();
+    return true;
+  }
+
+  /**
+   * Follows a path which has already been found and smoothed, e.g., by {@link PathService}.
+   */
+  public void setPath(MapGraph.MapGraphPath src) {
+    pathVersion++;
+    path.clear();
+    path.nodes.addAll(src.nodes);
+    if (DEBUG_PATH) Gdx.app.debug(TAG, "path=" + path);
+    followPath();
+  }
+
+  /**
+   * Finds a path to {@code dst} on a worker thread, the entity starts following it once it's been
+   * delivered by {@link Map#paths()}.
+   */
+  public void requestPath(Map map, Vector2 dst) {
+    requestPath(map, dst, -1);
+  }
+
+  public void requestPath(Map map, Vector2 dst, int maxSteps) {
+    if (dst == null) {
+      setPath(null, null);
+      return;
+    }
+
+    map.paths().request(this, dst, maxSteps);
+  }
+
+  public int pathVersion() {
+    return pathVersion;
+  }
+
+  private void followPath() {
+    if (store != null) {
+      store.setSpeed(storeId, getSpeed());
+      store.setPath(storeId, path);
+    }
+
     targets = new Array.ArrayIterator<>(path.nodes);
     targets.next(); // consume src position
     if (targets.hasNext()) {
@@ -678,27 +762,57 @@ public abstract class Entity implements Animation.AnimationListener {
     }
 
     //if (DEBUG_TARGET) Gdx.app.debug(TAG, "target=" + target);
-    return true;
   }
 
   public void setRunning(boolean b) {
     if (running != b) {
       running = b;
+      if (store != null) store.setSpeed(storeId, getSpeed());
     }
   }
 
   public void setWalkSpeed(float speed) {
     if (walkSpeed != speed) {
       walkSpeed = speed;
+      if (store != null) store.setSpeed(storeId, getSpeed());
     }
   }
 
   public void setRunSpeed(float speed) {
     if (runSpeed != speed) {
       runSpeed = speed;
+      if (store != null) store.setSpeed(storeId, getSpeed());
     }
   }
 
+  /**
+   * @return sub-tiles per second this entity moves at
+   */
+  public float getSpeed() {
+    return running ? walkSpeed + runSpeed : walkSpeed;
+  }
+
+  /**
+   * Hands the movement of this entity over to {@code store} and its systems, or takes it back if
+   * {@code null}. The entity stops where it stands either way.
+   */
+  public void setStore(EntityStore store) {
+    if (this.store == store) return;
+    if (this.store != null) this.store.destroy(storeId);
+    path.clear();
+    targets = Collections.emptyIterator();
+    target.set(position);
+    this.store = store;
+    if (store != null) {
+      storeId = store.create(storeX = position.x, storeY = position.y);
+      store.setSpeed(storeId, getSpeed());
+    }
+  }
+
+  public EntityStore getStore() {
+    return store;
+  }
+
   public byte getNeutralMode() {
     return 0;
   }
@@ -717,6 +831,37 @@ public abstract class Entity implements Animation.AnimationListener {
       nextMode = -1;
     }
 
+    if (store != null) {
+      sync();
+    } else {
+      move(delta);
+    }
+
+    if (hash != null) hash.update(this);
+  }
+
+  /**
+   * Copies the position and waypoint {@link #store} moved this entity to, switching between moving
+   * and neutral modes like {@link #move(float)} does. Entities placed somewhere else in the
+   * meantime are stopped there instead.
+   */
+  private void sync() {
+    if (position.x != storeX || position.y != storeY) {
+      store.setPosition(storeId, position.x, position.y);
+      store.clearPath(storeId);
+    }
+
+    position.set(storeX = store.getX(storeId), storeY = store.getY(storeId));
+    target.set(store.getTargetX(storeId), store.getTargetY(storeId));
+    if (store.isMoving(storeId)) {
+      setMode(running ? getRunMode() : getWalkMode());
+    } else {
+      if (targets.hasNext()) targets = Collections.emptyIterator();
+      if (isMoving(mode)) setMode(getNeutralMode());
+    }
+  }
+
+  private void move(float delta) {
     if (target.isZero()) return;
     if (position.epsilonEquals(target)) {
       if (!targets.hasNext()) {
@@ -727,7 +872,7 @@ public abstract class Entity implements Animation.AnimationListener {
     }
 
     setMode(running ? getRunMode() : getWalkMode());
-    float speed     = (running ? walkSpeed + runSpeed : walkSpeed);
+    float speed     = getSpeed();
     float distance  = speed * delta;
     float traveled  = 0;
     while (traveled < distance) {
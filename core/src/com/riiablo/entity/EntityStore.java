@@ -0,0 +1,359 @@
+package com.riiablo.entity;
+
+import com.badlogic.gdx.utils.Array;
+import com.riiablo.codec.Animation;
+import com.riiablo.map.MapGraph;
+
+import java.util.Arrays;
+
+/**
+ * Data-oriented counterpart of {@link Engine}. The hot state of each entity lives in parallel
+ * primitive arrays indexed by a dense id, ids of destroyed entities are recycled through a free
+ * list, and {@link EntitySystem systems} update every entity by walking those arrays linearly
+ * instead of calling virtual methods on scattered objects.
+ * <p>
+ * Paths are stored as runs of packed sub-tile coordinates within a single shared pool, which is
+ * compacted once most of it belongs to abandoned paths.
+ */
+public class EntityStore {
+  private static final String TAG = "EntityStore";
+
+  public static final int INITIAL_CAPACITY = 256;
+
+  /** sentinel {@link #brain} value of entities without AI */
+  public static final byte NO_BRAIN = -1;
+
+  int capacity;
+  int size;     // number of live entities
+  int maxId;    // one past the highest id ever handed out
+  int numFree;
+  int free[];
+
+  boolean alive[];
+  int     generation[]; // incremented each time an id is recycled
+
+  float x[], y[];             // position in sub-tiles
+  float vx[], vy[];           // velocity during the last movement update, in sub-tiles per second
+  float targetX[], targetY[]; // current waypoint
+  float speed[];              // sub-tiles per second
+  boolean moving[];
+
+  byte mode[];
+  byte neutralMode[];
+  byte walkMode[];
+
+  float animTime[];
+  float frameDuration[];
+  int   numFrames[];
+  int   frame[];
+
+  int pathStart[];  // index of the first node within pathNodes
+  int pathLength[]; // number of nodes
+  int pathCursor[]; // index of the next node to head for
+
+  int pathNodes[] = new int[INITIAL_CAPACITY]; // (x << 16) | (y & 0xFFFF)
+  int pathNodesSize;
+  int pathNodesUsed;
+
+  byte  brain[];
+  float aiTimer[];
+  float aiDelay[];
+
+  final Array<EntitySystem> systems = new Array<>();
+
+  public EntityStore() {
+    this(INITIAL_CAPACITY);
+  }
+
+  public EntityStore(int initialCapacity) {
+    resize(Math.max(initialCapacity, 1));
+  }
+
+  private void resize(int newCapacity) {
+    capacity      = newCapacity;
+    free          = Arrays.copyOf(nullToEmpty(free), newCapacity);
+    alive         = Arrays.copyOf(alive != null ? alive : new boolean[0], newCapacity);
+    generation    = Arrays.copyOf(nullToEmpty(generation), newCapacity);
+    x             = Arrays.copyOf(nullToEmpty(x), newCapacity);
+    y             = Arrays.copyOf(nullToEmpty(y), newCapacity);
+    vx            = Arrays.copyOf(nullToEmpty(vx), newCapacity);
+    vy            = Arrays.copyOf(nullToEmpty(vy), newCapacity);
+    targetX       = Arrays.copyOf(nullToEmpty(targetX), newCapacity);
+    targetY       = Arrays.copyOf(nullToEmpty(targetY), newCapacity);
+    speed         = Arrays.copyOf(nullToEmpty(speed), newCapacity);
+    moving        = Arrays.copyOf(moving != null ? moving : new boolean[0], newCapacity);
+    mode          = Arrays.copyOf(nullToEmpty(mode), newCapacity);
+    neutralMode   = Arrays.copyOf(nullToEmpty(neutralMode), newCapacity);
+    walkMode      = Arrays.copyOf(nullToEmpty(walkMode), newCapacity);
+    animTime      = Arrays.copyOf(nullToEmpty(animTime), newCapacity);
+    frameDuration = Arrays.copyOf(nullToEmpty(frameDuration), newCapacity);
+    numFrames     = Arrays.copyOf(nullToEmpty(numFrames), newCapacity);
+    frame         = Arrays.copyOf(nullToEmpty(frame), newCapacity);
+    pathStart     = Arrays.copyOf(nullToEmpty(pathStart), newCapacity);
+    pathLength    = Arrays.copyOf(nullToEmpty(pathLength), newCapacity);
+    pathCursor    = Arrays.copyOf(nullToEmpty(pathCursor), newCapacity);
+    brain         = Arrays.copyOf(nullToEmpty(brain), newCapacity);
+    aiTimer       = Arrays.copyOf(nullToEmpty(aiTimer), newCapacity);
+    aiDelay       = Arrays.copyOf(nullToEmpty(aiDelay), newCapacity);
+  }
+
+  private static int[] nullToEmpty(int[] array) {
+    return array != null ? array : new int[0];
+  }
+
+  private static float[] nullToEmpty(float[] array) {
+    return array != null ? array : new float[0];
+  }
+
+  private static byte[] nullToEmpty(byte[] array) {
+    return array != null ? array : new byte[0];
+  }
+
+  /**
+   * Creates an entity standing still at the given sub-tile, reusing the id of a destroyed entity if
+   * there is one.
+   *
+   * @return the id of the new entity
+   */
+  public int create(float x, float y) {
+    final int id;
+    if (numFree > 0) {
+      id = free[--numFree];
+    } else {
+      if (maxId == capacity) resize(capacity << 1);
+      id = maxId++;
+    }
+
+    alive[id]         = true;
+    this.x[id]        = x;
+    this.y[id]        = y;
+    vx[id]            = vy[id] = 0;
+    targetX[id]       = x;
+    targetY[id]       = y;
+    speed[id]         = 0;
+    moving[id]        = false;
+    mode[id]          = neutralMode[id] = walkMode[id] = 0;
+    animTime[id]      = 0;
+    frameDuration[id] = Animation.FRAME_DURATION;
+    numFrames[id]     = 1;
+    frame[id]         = 0;
+    pathStart[id]     = pathLength[id] = pathCursor[id] = 0;
+    brain[id]         = NO_BRAIN;
+    aiTimer[id]       = aiDelay[id] = 0;
+    size++;
+    return id;
+  }
+
+  public void destroy(int id) {
+    if (!isAlive(id)) return;
+    clearPath(id);
+    alive[id] = false;
+    generation[id]++;
+    free[numFree++] = id;
+    size--;
+  }
+
+  public boolean isAlive(int id) {
+    return 0 <= id && id < maxId && alive[id];
+  }
+
+  /**
+   * @return the number of times {@code id} has been recycled, which lets holders of an id detect
+   *         that the entity it referred to has been destroyed
+   */
+  public int getGeneration(int id) {
+    return generation[id];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return one past the highest id in use, the bound systems iterate up to
+   */
+  public int maxId() {
+    return maxId;
+  }
+
+  public float getX(int id) {
+    return x[id];
+  }
+
+  public float getY(int id) {
+    return y[id];
+  }
+
+  public float getTargetX(int id) {
+    return targetX[id];
+  }
+
+  public float getTargetY(int id) {
+    return targetY[id];
+  }
+
+  public void setPosition(int id, float x, float y) {
+    this.x[id] = x;
+    this.y[id] = y;
+  }
+
+  public byte getMode(int id) {
+    return mode[id];
+  }
+
+  public void setMode(int id, byte mode) {
+    if (this.mode[id] != mode) {
+      this.mode[id] = mode;
+      animTime[id] = 0;
+      frame[id] = 0;
+    }
+  }
+
+  public void setModes(int id, byte neutralMode, byte walkMode) {
+    this.neutralMode[id] = neutralMode;
+    this.walkMode[id] = walkMode;
+    setMode(id, moving[id] ? walkMode : neutralMode);
+  }
+
+  public void setSpeed(int id, float speed) {
+    this.speed[id] = speed;
+  }
+
+  public void setAnimation(int id, int numFrames, float frameDuration) {
+    this.numFrames[id] = Math.max(numFrames, 1);
+    this.frameDuration[id] = frameDuration;
+  }
+
+  public int getFrame(int id) {
+    return frame[id];
+  }
+
+  public void setBrain(int id, byte brain, float delay) {
+    this.brain[id] = brain;
+    aiDelay[id] = delay;
+    aiTimer[id] = delay;
+  }
+
+  public boolean isMoving(int id) {
+    return moving[id];
+  }
+
+  /**
+   * Makes the entity follow {@code path}, skipping its first node which is expected to be the
+   * entity's own position.
+   */
+  public void setPath(int id, MapGraph.MapGraphPath path) {
+    final int count = path.getCount();
+    clearPath(id);
+    if (count <= 1) return;
+    ensurePathCapacity(count - 1);
+    final int start = pathNodesSize;
+    for (int i = 1; i < count; i++) {
+      MapGraph.Point2 node = path.get(i);
+      pathNodes[pathNodesSize++] = pack(node.x, node.y);
+    }
+
+    startPath(id, start, count - 1);
+  }
+
+  /**
+   * Makes the entity follow the given sub-tiles in order.
+   */
+  public void setPath(int id, int[] xs, int[] ys, int count) {
+    clearPath(id);
+    if (count <= 0) return;
+    ensurePathCapacity(count);
+    final int start = pathNodesSize;
+    for (int i = 0; i < count; i++) pathNodes[pathNodesSize++] = pack(xs[i], ys[i]);
+    startPath(id, start, count);
+  }
+
+  private void startPath(int id, int start, int count) {
+    pathStart[id]  = start;
+    pathLength[id] = count;
+    pathCursor[id] = 0;
+    pathNodesUsed += count;
+    nextTarget(id);
+    moving[id] = true;
+    setMode(id, walkMode[id]);
+  }
+
+  /**
+   * Stops the entity where it stands.
+   */
+  public void clearPath(int id) {
+    pathNodesUsed -= pathLength[id];
+    pathStart[id] = pathLength[id] = pathCursor[id] = 0;
+    targetX[id] = x[id];
+    targetY[id] = y[id];
+    vx[id] = vy[id] = 0;
+    if (moving[id]) {
+      moving[id] = false;
+      setMode(id, neutralMode[id]);
+    }
+  }
+
+  /**
+   * Heads for the next node of the path.
+   *
+   * @return whether or not there was one
+   */
+  boolean nextTarget(int id) {
+    final int cursor = pathCursor[id];
+    if (cursor >= pathLength[id]) return false;
+    final int node = pathNodes[pathStart[id] + cursor];
+    targetX[id] = node >> 16;
+    targetY[id] = (short) node;
+    pathCursor[id] = cursor + 1;
+    return true;
+  }
+
+  private void ensurePathCapacity(int count) {
+    if (pathNodesSize + count <= pathNodes.length) return;
+    if (pathNodesUsed + count <= pathNodes.length >> 1) {
+      compactPaths();
+      if (pathNodesSize + count <= pathNodes.length) return;
+    }
+
+    pathNodes = Arrays.copyOf(pathNodes, Math.max(pathNodes.length << 1, pathNodesSize + count));
+  }
+
+  /**
+   * Moves the paths of live entities to the front of the pool, dropping the nodes of abandoned
+   * paths.
+   */
+  void compactPaths() {
+    int[] nodes = new int[pathNodes.length];
+    int size = 0;
+    for (int id = 0; id < maxId; id++) {
+      final int length = pathLength[id];
+      if (!alive[id] || length == 0) continue;
+      System.arraycopy(pathNodes, pathStart[id], nodes, size, length);
+      pathStart[id] = size;
+      size += length;
+    }
+
+    pathNodes = nodes;
+    pathNodesSize = size;
+    pathNodesUsed = size;
+  }
+
+  static int pack(int x, int y) {
+    return (x << 16) | (y & 0xFFFF);
+  }
+
+  public void addSystem(EntitySystem system) {
+    systems.add(system);
+  }
+
+  public boolean removeSystem(EntitySystem system) {
+    return systems.removeValue(system, true);
+  }
+
+  /**
+   * Runs every system in the order they were added.
+   */
+  public void update(float delta) {
+    for (int i = 0, s = systems.size; i < s; i++) systems.get(i).update(this, delta);
+  }
+}
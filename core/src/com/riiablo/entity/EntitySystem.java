@@ -0,0 +1,9 @@
+package com.riiablo.entity;
+
+/**
+ * Updates one aspect of every entity within an {@link EntityStore}, typically by walking the
+ * store's arrays from id {@code 0} up to {@link EntityStore#maxId()} and skipping dead ids.
+ */
+public interface EntitySystem {
+  void update(EntityStore store, float delta);
+}
@@ -16,8 +16,6 @@ import com.riiablo.map.DT1.Tile;
 import com.riiablo.map.Map;
 import com.riiablo.screen.GameScreen;
 
-import org.apache.commons.lang3.StringUtils;
-
 import java.lang.reflect.Constructor;
 
 public class Monster extends Entity {
@@ -67,6 +65,16 @@ public class Monster extends Entity {
     return monster;
   }
 
+  /**
+   * Creates a monster from the given rows rather than looking up {@code monstats2}, e.g., for tests
+   * which don't have the game files.
+   */
+  public static Monster create(Map map, Map.Zone zone, MonStats.Entry monstats, MonStats2.Entry monstats2) {
+    Monster monster = new Monster(map, zone, null, monstats, monstats2);
+    monster.ai = findAI(monster);
+    return monster;
+  }
+
   private static AI findAI(Monster monster) {
     try {
       Class clazz = Class.forName("com.riiablo.ai." + monster.monstats.AI);
@@ -80,22 +88,25 @@ public class Monster extends Entity {
   }
 
   Monster(Map map, Map.Zone zone, DS1.Object object, MonStats.Entry monstats) {
+    this(map, zone, object, monstats, Riiablo.files.monstats2.get(monstats.MonStatsEx));
+  }
+
+  Monster(Map map, Map.Zone zone, DS1.Object object, MonStats.Entry monstats, MonStats2.Entry monstats2) {
     super(Type.MON, monstats.Id, monstats.Code);
     this.map = map;
     this.object = object;
     this.monstats = monstats;
-    this.monstats2 = Riiablo.files.monstats2.get(monstats.MonStatsEx);
+    this.monstats2 = monstats2;
     name(monstats.NameStr.equalsIgnoreCase("dummy") ? monstats.Id : Riiablo.string.lookup(monstats.NameStr));
-    setWeapon((byte) Riiablo.files.WeaponClass.index(monstats2.BaseW));
-    setMode(monstats.spawnmode.isEmpty() ? MODE_NU : (byte) Riiablo.files.MonMode.index(monstats.spawnmode));
+    setWeapon(monstats2.weaponClass);
+    setMode(monstats.spawnMode == -1 ? MODE_NU : monstats.spawnMode);
     setWalkSpeed(monstats.Velocity);
     setRunSpeed(monstats.Run);
-    for (byte i = 0; i < monstats2.ComponentV.length; i++) {
-      String ComponentV = monstats2.ComponentV[i];
-      if (!ComponentV.isEmpty()) {
-        String[] v = StringUtils.remove(ComponentV, '"').split(",");
+    for (byte i = 0; i < monstats2.components.length; i++) {
+      byte[] v = monstats2.components[i];
+      if (v != null) {
         int random = MathUtils.random(0, v.length - 1);
-        setComponent(i, (byte) Riiablo.files.compcode.index(v[random]));
+        setComponent(i, v[random]);
       }
     }
   }
@@ -137,10 +148,11 @@ public class Monster extends Entity {
     ai.interact(gameScreen);
   }
 
-  @Override
-  public void update(float delta) {
-    ai.update(delta);
-    super.update(delta);
+  /**
+   * @see com.riiablo.ai.AIScheduler
+   */
+  public AI ai() {
+    return ai;
   }
 
   @Override
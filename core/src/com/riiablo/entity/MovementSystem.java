@@ -0,0 +1,45 @@
+package com.riiablo.entity;
+
+/**
+ * Advances moving entities along their paths at their {@link EntityStore#setSpeed(int, float)
+ * speed}, carrying any distance left after reaching a node over to the next one and stopping them
+ * at the end of their path.
+ */
+public class MovementSystem implements EntitySystem {
+  @Override
+  public void update(EntityStore store, float delta) {
+    final boolean alive[] = store.alive, moving[] = store.moving;
+    final float x[] = store.x, y[] = store.y;
+    final float vx[] = store.vx, vy[] = store.vy;
+    final float targetX[] = store.targetX, targetY[] = store.targetY;
+    final float speed[] = store.speed;
+    for (int id = 0, maxId = store.maxId; id < maxId; id++) {
+      if (!alive[id] || !moving[id]) continue;
+      final float startX = x[id], startY = y[id];
+      float step = speed[id] * delta;
+      for (;;) {
+        final float dx = targetX[id] - x[id];
+        final float dy = targetY[id] - y[id];
+        final float dst = (float) Math.sqrt(dx * dx + dy * dy);
+        if (step < dst) {
+          x[id] += dx / dst * step;
+          y[id] += dy / dst * step;
+          break;
+        }
+
+        x[id] = targetX[id];
+        y[id] = targetY[id];
+        step -= dst;
+        if (!store.nextTarget(id)) {
+          store.clearPath(id);
+          break;
+        }
+      }
+
+      if (moving[id] && delta > 0) {
+        vx[id] = (x[id] - startX) / delta;
+        vy[id] = (y[id] - startY) / delta;
+      }
+    }
+  }
+}
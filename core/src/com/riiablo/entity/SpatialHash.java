@@ -0,0 +1,193 @@
+package com.riiablo.entity;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import com.riiablo.map.DT1.Tile;
+
+/**
+ * Uniform grid of entities keyed by the tile containing their position. Entities are re-bucketed
+ * by {@link #update(Entity)} once they cross into another tile, which {@link Entity#update(float)}
+ * does after moving, so proximity queries only visit the few cells overlapping their bounds instead
+ * of every entity. Queries append to a caller-owned array and don't allocate once buckets exist.
+ * Each cell also has a {@link #getVersion(int, int) version} which changes whenever an entity
+ * enters, leaves or moves within it, or is {@link #invalidate(Entity) invalidated}, so per-tile
+ * caches know when they're stale.
+ */
+public class SpatialHash {
+  private static final String TAG = "SpatialHash";
+
+  /** cells are one tile along each axis, so tile-aligned queries read a single cell */
+  public static final int CELL_SIZE = Tile.SUBTILE_SIZE;
+
+  static final int NO_CELL = Integer.MIN_VALUE;
+
+  final IntMap<Bucket> cells = new IntMap<>();
+  int size;
+
+  public void add(Entity entity) {
+    if (entity.hash != null) entity.hash.remove(entity);
+    entity.hash = this;
+    entity.cell = cell(entity.position);
+    entity.hashX = entity.position.x;
+    entity.hashY = entity.position.y;
+    bucket(entity.cell).add(entity);
+    size++;
+  }
+
+  public boolean remove(Entity entity) {
+    if (entity.hash != this) return false;
+    Bucket bucket = cells.get(entity.cell);
+    if (bucket != null) bucket.remove(entity);
+    entity.hash = null;
+    entity.cell = NO_CELL;
+    size--;
+    return true;
+  }
+
+  /**
+   * Moves {@code entity} into the bucket of the cell containing its current position.
+   */
+  public void update(Entity entity) {
+    if (entity.hash != this) return;
+    final Vector2 position = entity.position;
+    if (position.x == entity.hashX && position.y == entity.hashY) return;
+    entity.hashX = position.x;
+    entity.hashY = position.y;
+    final int cell = cell(position);
+    if (cell == entity.cell) {
+      Bucket bucket = cells.get(cell);
+      if (bucket != null) bucket.version++;
+      return;
+    }
+
+    Bucket bucket = cells.get(entity.cell);
+    if (bucket != null) bucket.remove(entity);
+    entity.cell = cell;
+    bucket(cell).add(entity);
+  }
+
+  /**
+   * Changes the version of the cell containing {@code entity}, e.g., after a change to its mode,
+   * which renderers order entities by.
+   */
+  public void invalidate(Entity entity) {
+    if (entity.hash != this) return;
+    Bucket bucket = cells.get(entity.cell);
+    if (bucket != null) bucket.version++;
+  }
+
+  /**
+   * Returns the version of the cell containing the given sub-tile, which changes whenever an entity
+   * enters, leaves or moves within the cell, or is invalidated.
+   */
+  public int getVersion(int x, int y) {
+    Bucket bucket = cells.get(key(cell(x), cell(y)));
+    return bucket != null ? bucket.version : 0;
+  }
+
+  public void clear() {
+    for (Bucket bucket : cells.values()) {
+      for (Entity entity : bucket.entities) {
+        entity.hash = null;
+        entity.cell = NO_CELL;
+      }
+    }
+
+    cells.clear();
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Adds every entity within {@code radius} sub-tiles of {@code (x, y)} to {@code dst}.
+   *
+   * @return {@code dst}
+   */
+  public Array<Entity> get(float x, float y, float radius, Array<Entity> dst) {
+    final float radius2 = radius * radius;
+    final int x0 = cell(x - radius), x1 = cell(x + radius);
+    final int y0 = cell(y - radius), y1 = cell(y + radius);
+    for (int cy = y0; cy <= y1; cy++) {
+      for (int cx = x0; cx <= x1; cx++) {
+        Bucket bucket = cells.get(key(cx, cy));
+        if (bucket == null) continue;
+        final Array<Entity> entities = bucket.entities;
+        for (int i = 0, s = entities.size; i < s; i++) {
+          Entity entity = entities.get(i);
+          if (entity.position.dst2(x, y) <= radius2) dst.add(entity);
+        }
+      }
+    }
+
+    return dst;
+  }
+
+  public Array<Entity> get(Vector2 position, float radius, Array<Entity> dst) {
+    return get(position.x, position.y, radius, dst);
+  }
+
+  /**
+   * Adds every entity positioned within the given rectangle of sub-tiles to {@code dst}.
+   *
+   * @return {@code dst}
+   */
+  public Array<Entity> get(int x, int y, int width, int height, Array<Entity> dst) {
+    if (width <= 0 || height <= 0) return dst;
+    final int x0 = cell(x), x1 = cell(x + width - 1);
+    final int y0 = cell(y), y1 = cell(y + height - 1);
+    for (int cy = y0; cy <= y1; cy++) {
+      for (int cx = x0; cx <= x1; cx++) {
+        Bucket bucket = cells.get(key(cx, cy));
+        if (bucket == null) continue;
+        final Array<Entity> entities = bucket.entities;
+        for (int i = 0, s = entities.size; i < s; i++) {
+          Entity entity = entities.get(i);
+          Vector2 pos = entity.position;
+          if ((x <= pos.x && pos.x < x + width)
+           && (y <= pos.y && pos.y < y + height)) {
+            dst.add(entity);
+          }
+        }
+      }
+    }
+
+    return dst;
+  }
+
+  private Bucket bucket(int key) {
+    Bucket bucket = cells.get(key);
+    if (bucket == null) cells.put(key, bucket = new Bucket());
+    return bucket;
+  }
+
+  static int cell(Vector2 position) {
+    return key(cell(position.x), cell(position.y));
+  }
+
+  static int cell(float i) {
+    return MathUtils.floor(i / CELL_SIZE);
+  }
+
+  static int key(int cx, int cy) {
+    return (cy << 16) | (cx & 0xFFFF);
+  }
+
+  static final class Bucket {
+    final Array<Entity> entities = new Array<>(false, 4);
+    int version;
+
+    void add(Entity entity) {
+      entities.add(entity);
+      version++;
+    }
+
+    void remove(Entity entity) {
+      if (entities.removeValue(entity, true)) version++;
+    }
+  }
+}
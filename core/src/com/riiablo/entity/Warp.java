@@ -3,6 +3,7 @@ package com.riiablo.entity;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.IntIntMap;
 import com.riiablo.Riiablo;
@@ -136,6 +137,7 @@ public class Warp extends Entity {
 
   @Override
   public void draw(PaletteIndexedBatch batch) {
+    Actor label = getLabel();
     label.setPosition(pixelLoc.x + box.xMin + box.width / 2, pixelLoc.y - box.yMax + box.height / 2 + getLabelOffset() + label.getHeight() / 2, Align.center);
   }
 
@@ -0,0 +1,99 @@
+package com.riiablo.graphics;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Runtime texture atlas for {@link PaletteIndexedPixmap palette-indexed} frames. Frames packed into
+ * the same atlas share page textures, so consecutive sprites drawn from it don't force
+ * {@link PaletteIndexedBatch} to flush. Space is never reclaimed until the atlas is disposed, so an
+ * atlas should hold assets with a similar lifetime.
+ */
+public class PaletteIndexedAtlas implements Disposable {
+  private static final String TAG = "PaletteIndexedAtlas";
+
+  public static final int PAGE_SIZE = 2048;
+  public static final int PADDING   = 1;
+
+  final PixmapPacker packer;
+  final int pageSize;
+  final Array<Texture> oversized = new Array<>();
+
+  int numRegions;
+
+  public PaletteIndexedAtlas() {
+    this(PAGE_SIZE);
+  }
+
+  public PaletteIndexedAtlas(int pageSize) {
+    this.pageSize = pageSize;
+    packer = new PixmapPacker(pageSize, pageSize, Pixmap.Format.Intensity, PADDING, false,
+        new PixmapPacker.SkylineStrategy());
+  }
+
+  /**
+   * Packs the given pixmaps and uploads any modified pages.
+   *
+   * @return a region for each pixmap, in the same order
+   */
+  public TextureRegion[] pack(Pixmap[] pixmaps) {
+    String[] names = new String[pixmaps.length];
+    for (int i = 0; i < pixmaps.length; i++) {
+      Pixmap pixmap = pixmaps[i];
+      if (!fits(pixmap)) continue;
+      String name = names[i] = Integer.toString(numRegions++);
+      packer.pack(name, pixmap);
+    }
+
+    packer.updatePageTextures(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest, false);
+
+    TextureRegion[] regions = new TextureRegion[pixmaps.length];
+    for (int i = 0; i < pixmaps.length; i++) {
+      String name = names[i];
+      if (name == null) {
+        regions[i] = new TextureRegion(newTexture(pixmaps[i]));
+        continue;
+      }
+
+      PixmapPacker.Page page = packer.getPages().get(packer.getPageIndex(name));
+      Rectangle rect = page.getRects().get(name);
+      regions[i] = new TextureRegion(page.getTexture(),
+          (int) rect.x, (int) rect.y, (int) rect.width, (int) rect.height);
+    }
+
+    return regions;
+  }
+
+  private boolean fits(Pixmap pixmap) {
+    final int maxSize = pageSize - (PADDING << 1);
+    return pixmap.getWidth() <= maxSize && pixmap.getHeight() <= maxSize;
+  }
+
+  private Texture newTexture(Pixmap pixmap) {
+    Texture texture = new Texture(new PixmapTextureData(pixmap, null, false, false, false));
+    texture.setWrap(Texture.TextureWrap.ClampToEdge, Texture.TextureWrap.ClampToEdge);
+    oversized.add(texture);
+    return texture;
+  }
+
+  public int getNumPages() {
+    return packer.getPages().size;
+  }
+
+  public int getNumRegions() {
+    return numRegions;
+  }
+
+  @Override
+  public void dispose() {
+    packer.dispose();
+    for (Texture texture : oversized) texture.dispose();
+    oversized.clear();
+  }
+}
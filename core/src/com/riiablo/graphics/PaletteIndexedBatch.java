@@ -28,6 +28,9 @@ public class PaletteIndexedBatch extends SpriteBatch {
   private float gamma = 1.0f;
   private boolean disabled = false;
 
+  private int textureSwitches;
+  private int flushes;
+
   public PaletteIndexedBatch(int size, ShaderProgram shader) {
     super(size);
     this.shader = shader;
@@ -125,6 +128,39 @@ public class PaletteIndexedBatch extends SpriteBatch {
     return disabled;
   }
 
+  @Override
+  protected void switchTexture(Texture texture) {
+    textureSwitches++;
+    super.switchTexture(texture);
+  }
+
+  @Override
+  public void flush() {
+    final int renderCalls = this.renderCalls;
+    super.flush();
+    if (this.renderCalls != renderCalls) flushes++;
+  }
+
+  /**
+   * Number of times the bound sprite texture changed since the last {@link #resetStats()}.
+   */
+  public int getTextureSwitches() {
+    return textureSwitches;
+  }
+
+  /**
+   * Number of non-empty flushes, i.e., draw calls, since the last {@link #resetStats()}. Unlike
+   * {@link #renderCalls}, this isn't reset by {@link #begin()}, so it covers a whole frame.
+   */
+  public int getFlushes() {
+    return flushes;
+  }
+
+  public void resetStats() {
+    textureSwitches = 0;
+    flushes = 0;
+  }
+
   @Override
   public void begin() {
     if (disabled) {
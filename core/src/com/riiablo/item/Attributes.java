@@ -74,14 +74,12 @@ public class Attributes {
   private boolean op(CharData charData, Stat stat, ItemStatCost.Entry entry) {
     int op = entry.op;
     int op_base = entry.op_param > 0
-        ? charData.getStats().get(Riiablo.files.ItemStatCost.index(entry.op_base)).val
+        ? charData.getStats().get(entry.opBase).val
         : 1;
     int op_param = entry.op_param;
 
     int opCount = 0;
-    for (String op_stat : entry.op_stat) {
-      if (op_stat.isEmpty()) break;
-      int statId = Riiablo.files.ItemStatCost.index(op_stat);
+    for (int statId : entry.opStat) {
       Stat opstat = agg.get(statId);
       if (opstat != null) {
         opstat.val += op(charData, stat, base.get(statId), op, op_base, op_param);
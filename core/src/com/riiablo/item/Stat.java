@@ -845,7 +845,7 @@ public class Stat implements Comparable<Stat> {
 
   private int op(CharData charData, int value) {
     int op_base = entry.op_param > 0
-        ? Riiablo.charData.getStats().get(Riiablo.files.ItemStatCost.index(entry.op_base)).value()
+        ? Riiablo.charData.getStats().get(entry.opBase).value()
         : 1;
     switch (entry.op) {
       case 1:  return value;
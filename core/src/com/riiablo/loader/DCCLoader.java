@@ -9,6 +9,7 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
 
 import com.riiablo.codec.DCC;
+import com.riiablo.graphics.PaletteIndexedAtlas;
 
 public class DCCLoader extends AsynchronousAssetLoader<DCC, DCCLoader.DCCParameters> {
   DCC dcc;
@@ -19,8 +20,9 @@ public class DCCLoader extends AsynchronousAssetLoader<DCC, DCCLoader.DCCParamet
 
   @Override
   public void loadAsync(AssetManager assets, String fileName, FileHandle file, DCCParameters params) {
-    dcc = DCC.loadFromFile(file);
+    dcc = DCC.loadFromFile(file, params != null && params.lazy);
     if (params != null) {
+      dcc.setAtlas(params.atlas);
       int preload = params.preload;
       if (preload == DCCParameters.PRELOAD_ALL) {
         dcc.preloadDirections(params.combineFrames);
@@ -38,7 +40,8 @@ public class DCCLoader extends AsynchronousAssetLoader<DCC, DCCLoader.DCCParamet
   public DCC loadSync(AssetManager assets, String fileName, FileHandle file, DCCParameters params) {
     DCC dcc = this.dcc;
     if (dcc == null) {
-      dcc = DCC.loadFromFile(file);
+      dcc = DCC.loadFromFile(file, params != null && params.lazy);
+      if (params != null) dcc.setAtlas(params.atlas);
     } else {
       this.dcc = null;
     }
@@ -68,9 +71,12 @@ public class DCCLoader extends AsynchronousAssetLoader<DCC, DCCLoader.DCCParamet
     public static final int PRELOAD_ALL = -1;
 
     public static final DCCParameters COMBINE = new DCCParameters(PRELOAD_ALL).combineFrames();
+    public static final DCCParameters LAZY = new DCCParameters(0).lazy();
 
     public int preload;
     public boolean combineFrames;
+    public boolean lazy;
+    public PaletteIndexedAtlas atlas;
     public DCCParameters() {
       this(PRELOAD_ALL);
     }
@@ -78,11 +84,29 @@ public class DCCLoader extends AsynchronousAssetLoader<DCC, DCCLoader.DCCParamet
     public DCCParameters(int preload) {
       this.preload = preload;
       this.combineFrames = false;
+      this.lazy = false;
     }
 
     public DCCParameters combineFrames() {
       combineFrames = true;
       return this;
     }
+
+    /**
+     * Directions outside of {@link #preload} are decoded the first time they are loaded instead of
+     * when the asset is loaded.
+     */
+    public DCCParameters lazy() {
+      lazy = true;
+      return this;
+    }
+
+    /**
+     * Loaded directions are packed into the given atlas instead of one texture per frame.
+     */
+    public DCCParameters atlas(PaletteIndexedAtlas atlas) {
+      this.atlas = atlas;
+      return this;
+    }
   }
 }
@@ -0,0 +1,125 @@
+package com.riiablo.map;
+
+/**
+ * Packed copy of the {@link Map.Zone#flags(int, int) flags} of a zone with one bitset per flag,
+ * plus one marking sub-tiles with any flag set, i.e., those which aren't walkable. Bitsets are
+ * stored row-major in contiguous words, so a horizontal run of sub-tiles is tested a word at a
+ * time. The unwalkable bitset also has a column-major copy for vertical runs. Coordinates are world
+ * sub-tiles and must lie within the zone.
+ */
+public class FlagBits {
+  private static final String TAG = "FlagBits";
+
+  /** index of the bitset marking sub-tiles which have any flag set */
+  public static final int ANY = 8;
+
+  /** returned by searches which found no set bit */
+  public static final int NONE = Integer.MIN_VALUE;
+
+  final int x, y;
+  final int width, height;
+  final int stride;  // words per row
+  final int strideT; // words per column of blockedT
+
+  final long bits[][];   // [flag][row * stride + (x >> 6)], bit (x & 63)
+  final long blockedT[]; // bits[ANY] transposed, [column * strideT + (y >> 6)], bit (y & 63)
+
+  FlagBits(Map.Zone zone) {
+    x = zone.x;
+    y = zone.y;
+    width = zone.width;
+    height = zone.height;
+    stride = (width + 63) >>> 6;
+    strideT = (height + 63) >>> 6;
+    bits = new long[ANY + 1][stride * height];
+    blockedT = new long[strideT * width];
+    update(zone, x, y, width, height);
+  }
+
+  /**
+   * Copies the flags of the given rectangle of sub-tiles from {@code zone}.
+   */
+  void update(Map.Zone zone, int x, int y, int width, int height) {
+    final int x0 = Math.max(x - this.x, 0), x1 = Math.min(x - this.x + width, this.width);
+    final int y0 = Math.max(y - this.y, 0), y1 = Math.min(y - this.y + height, this.height);
+    final byte flags[][] = zone.flags;
+    final long blocked[] = bits[ANY];
+    for (int lx = x0; lx < x1; lx++) {
+      final byte column[] = flags[lx];
+      final int word = lx >>> 6;
+      final long bit = 1L << lx;
+      for (int ly = y0; ly < y1; ly++) {
+        final int value = column[ly] & 0xFF;
+        final int i = ly * stride + word;
+        for (int flag = 0; flag < ANY; flag++) {
+          if ((value & (1 << flag)) != 0) {
+            bits[flag][i] |= bit;
+          } else {
+            bits[flag][i] &= ~bit;
+          }
+        }
+
+        final int t = lx * strideT + (ly >>> 6);
+        if (value != 0) {
+          blocked[i] |= bit;
+          blockedT[t] |= 1L << ly;
+        } else {
+          blocked[i] &= ~bit;
+          blockedT[t] &= ~(1L << ly);
+        }
+      }
+    }
+  }
+
+  public boolean get(int flag, int x, int y) {
+    x -= this.x;
+    y -= this.y;
+    return (bits[flag][y * stride + (x >>> 6)] & (1L << x)) != 0;
+  }
+
+  public boolean isWalkable(int x, int y) {
+    return !get(ANY, x, y);
+  }
+
+  /**
+   * @return the first sub-tile of row {@code y} between {@code x0} and {@code x1}, inclusive, which
+   *         has {@code flag} set, or {@link #NONE}
+   */
+  public int firstSetInRow(int flag, int y, int x0, int x1) {
+    final int i = firstSet(bits[flag], (y - this.y) * stride, x0 - this.x, x1 - this.x);
+    return i == NONE ? NONE : this.x + i;
+  }
+
+  /**
+   * @return the first unwalkable sub-tile of row {@code y} between {@code x0} and {@code x1},
+   *         inclusive, or {@link #NONE}
+   */
+  public int firstBlockedInRow(int y, int x0, int x1) {
+    return firstSetInRow(ANY, y, x0, x1);
+  }
+
+  /**
+   * @return the first unwalkable sub-tile of column {@code x} between {@code y0} and {@code y1},
+   *         inclusive, or {@link #NONE}
+   */
+  public int firstBlockedInColumn(int x, int y0, int y1) {
+    final int i = firstSet(blockedT, (x - this.x) * strideT, y0 - this.y, y1 - this.y);
+    return i == NONE ? NONE : this.y + i;
+  }
+
+  /**
+   * @return index of the first set bit between {@code from} and {@code to}, inclusive, of the
+   *         bitset starting at word {@code offset}, or {@link #NONE}
+   */
+  static int firstSet(long[] words, int offset, int from, int to) {
+    final int w1 = to >>> 6;
+    long mask = -1L << from;
+    for (int w = from >>> 6; w <= w1; w++, mask = -1L) {
+      long word = words[offset + w] & mask;
+      if (w == w1) word &= -1L >>> (63 - (to & 63));
+      if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    return NONE;
+  }
+}
@@ -0,0 +1,331 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.Arrays;
+
+/**
+ * A* over the sub-tile grid of a {@link Map} which reads walkability straight from
+ * {@link Map.Zone#flags(int, int) zone flags}. Searches are confined to a window around the source
+ * and destination, all per-node state lives in primitive arrays indexed by window position, and a
+ * generation stamp marks which entries belong to the current search so nothing is cleared between
+ * searches. Instances are not thread-safe, use {@link #get()} for the calling thread's instance.
+ * <p>
+ * The window is at most {@link #MAX_SIZE} sub-tiles on a side, so searches fail once the source and
+ * destination are {@code MAX_SIZE} or more sub-tiles apart along either axis, and paths detouring
+ * past the window aren't found. Longer searches go through {@link HierarchicalPathFinder}.
+ */
+public class GridPathFinder {
+  private static final String TAG = "GridPathFinder";
+
+  /** sub-tiles the search window extends past the bounding box of the source and destination */
+  public static final int PADDING = 64;
+
+  /** maximum width and height of the search window, searches with |dx| or |dy| of at least this fail */
+  public static final int MAX_SIZE = 512;
+
+  static final float DIAGONAL_COST = (float) Math.sqrt(2);
+
+  static final int[] DX = { -1, -1, -1,  0,  0,  1,  1,  1 };
+  static final int[] DY = { -1,  0,  1, -1,  1, -1,  0,  1 };
+
+  /** marks targets in {@link #dir} during {@link #distances}, which doesn't otherwise use it */
+  private static final byte TARGET = 8;
+
+  private static final ThreadLocal<GridPathFinder> INSTANCE = new ThreadLocal<GridPathFinder>() {
+    @Override
+    protected GridPathFinder initialValue() {
+      return new GridPathFinder();
+    }
+  };
+
+  public static GridPathFinder get() {
+    return INSTANCE.get();
+  }
+
+  int   generation;
+  int[] stamp = new int[0]; // generation + 1 once closed, generation once opened, otherwise stale
+  float g[]   = new float[0];
+  byte  dir[] = new byte[0]; // direction index of the step which reached each node
+
+  int   heapSize;
+  int[] heap     = new int[64];
+  float heapKey[] = new float[64];
+
+  int windowX, windowY;
+  int windowW, windowH;
+
+  Map.Zone zone;
+
+  int visitedNodes;
+
+  public boolean search(Map map, Vector2 src, Vector2 dst, GraphPath<MapGraph.Point2> path) {
+    return search(map, Map.round(src.x), Map.round(src.y), Map.round(dst.x), Map.round(dst.y), path);
+  }
+
+  /**
+   * Finds a path between the given sub-tiles, storing every sub-tile along it, source included, in
+   * {@code path}. The source sub-tile itself doesn't need to be walkable.
+   *
+   * @return whether or not a path was found, never if the sub-tiles are {@link #MAX_SIZE} or more
+   *         apart along either axis
+   */
+  public boolean search(Map map, int srcX, int srcY, int dstX, int dstY, GraphPath<MapGraph.Point2> path) {
+    path.clear();
+    visitedNodes = 0;
+    zone = null;
+    try {
+      if (!isWalkable(map, dstX, dstY)) return false;
+      if (!fitWindow(srcX, srcY, dstX, dstY)) return false;
+      nextGeneration();
+
+      final int src = index(srcX, srcY);
+      final int dst = index(dstX, dstY);
+      stamp[src] = generation;
+      g[src] = 0;
+      dir[src] = -1;
+      heapSize = 0;
+      push(src, heuristic(srcX, srcY, dstX, dstY));
+
+      final int closed = generation + 1;
+      while (heapSize > 0) {
+        final int node = pop();
+        if (stamp[node] == closed) continue;
+        stamp[node] = closed;
+        visitedNodes++;
+        if (node == dst) {
+          buildPath(dst, path);
+          return true;
+        }
+
+        final int x = windowX + node % windowW;
+        final int y = windowY + node / windowW;
+        final float cost = g[node];
+        for (int i = 0; i < 8; i++) {
+          final int nx = x + DX[i];
+          final int ny = y + DY[i];
+          if (nx < windowX || nx >= windowX + windowW || ny < windowY || ny >= windowY + windowH) continue;
+          final int next = index(nx, ny);
+          final int s = stamp[next];
+          if (s == closed) continue;
+          final float nextCost = cost + (DX[i] != 0 && DY[i] != 0 ? DIAGONAL_COST : 1);
+          if (s == generation && nextCost >= g[next]) continue;
+          if (s != generation && !isWalkable(map, nx, ny)) {
+            stamp[next] = closed;
+            continue;
+          }
+
+          stamp[next] = generation;
+          g[next] = nextCost;
+          dir[next] = (byte) i;
+          push(next, nextCost + heuristic(nx, ny, dstX, dstY));
+        }
+      }
+
+      return false;
+    } finally {
+      zone = null;
+    }
+  }
+
+  /**
+   * Computes the cost of the shortest path from the source to each target which doesn't leave the
+   * given bounds, or {@link Float#POSITIVE_INFINITY} for unreachable targets.
+   */
+  void distances(Map map, int srcX, int srcY, int x, int y, int width, int height,
+                 int[] targetsX, int[] targetsY, int numTargets, float[] costs) {
+    visitedNodes = 0;
+    zone = null;
+    try {
+      setWindow(x, y, width, height);
+      nextGeneration();
+
+      int remaining = 0;
+      for (int i = 0; i < numTargets; i++) {
+        final int target = index(targetsX[i], targetsY[i]);
+        if (dir[target] != TARGET) {
+          dir[target] = TARGET;
+          remaining++;
+        }
+      }
+
+      final int src = index(srcX, srcY);
+      stamp[src] = generation;
+      g[src] = 0;
+      heapSize = 0;
+      push(src, 0);
+
+      final int closed = generation + 1;
+      while (heapSize > 0) {
+        final int node = pop();
+        if (stamp[node] == closed) continue;
+        stamp[node] = closed;
+        visitedNodes++;
+        if (dir[node] == TARGET && --remaining == 0) break;
+
+        final int nodeX = windowX + node % windowW;
+        final int nodeY = windowY + node / windowW;
+        final float cost = g[node];
+        for (int i = 0; i < 8; i++) {
+          final int nx = nodeX + DX[i];
+          final int ny = nodeY + DY[i];
+          if (nx < windowX || nx >= windowX + windowW || ny < windowY || ny >= windowY + windowH) continue;
+          final int next = index(nx, ny);
+          final int s = stamp[next];
+          if (s == closed) continue;
+          final float nextCost = cost + (DX[i] != 0 && DY[i] != 0 ? DIAGONAL_COST : 1);
+          if (s == generation && nextCost >= g[next]) continue;
+          if (s != generation && !isWalkable(map, nx, ny)) {
+            stamp[next] = closed;
+            continue;
+          }
+
+          stamp[next] = generation;
+          g[next] = nextCost;
+          push(next, nextCost);
+        }
+      }
+
+      for (int i = 0; i < numTargets; i++) {
+        final int target = index(targetsX[i], targetsY[i]);
+        dir[target] = 0;
+        costs[i] = stamp[target] == closed && (target == src || isWalkable(map, targetsX[i], targetsY[i]))
+            ? g[target]
+            : Float.POSITIVE_INFINITY;
+      }
+    } finally {
+      zone = null;
+    }
+  }
+
+  public int getVisitedNodes() {
+    return visitedNodes;
+  }
+
+  private boolean isWalkable(Map map, int x, int y) {
+    Map.Zone zone = this.zone;
+    if (zone == null || !zone.contains(x, y)) {
+      zone = this.zone = map.getZone(x, y);
+      if (zone == null) return false;
+    }
+
+    return zone.flags(x, y) == 0;
+  }
+
+  private boolean fitWindow(int srcX, int srcY, int dstX, int dstY) {
+    int xMin = Math.min(srcX, dstX) - PADDING, xMax = Math.max(srcX, dstX) + PADDING;
+    int yMin = Math.min(srcY, dstY) - PADDING, yMax = Math.max(srcY, dstY) + PADDING;
+    if (xMax - xMin + 1 > MAX_SIZE) {
+      int excess = xMax - xMin + 1 - MAX_SIZE;
+      if (excess > PADDING << 1) return false;
+      xMin += excess >> 1;
+      xMax = xMin + MAX_SIZE - 1;
+    }
+
+    if (yMax - yMin + 1 > MAX_SIZE) {
+      int excess = yMax - yMin + 1 - MAX_SIZE;
+      if (excess > PADDING << 1) return false;
+      yMin += excess >> 1;
+      yMax = yMin + MAX_SIZE - 1;
+    }
+
+    setWindow(xMin, yMin, xMax - xMin + 1, yMax - yMin + 1);
+    return true;
+  }
+
+  private void setWindow(int x, int y, int width, int height) {
+    windowX = x;
+    windowY = y;
+    windowW = width;
+    windowH = height;
+
+    final int size = width * height;
+    if (stamp.length < size) {
+      stamp = new int[size];
+      g     = new float[size];
+      dir   = new byte[size];
+      generation = 0;
+    }
+  }
+
+  private void nextGeneration() {
+    generation += 2;
+    if (generation < 0) {
+      Arrays.fill(stamp, 0);
+      generation = 2;
+    }
+  }
+
+  private int index(int x, int y) {
+    return (y - windowY) * windowW + (x - windowX);
+  }
+
+  private void buildPath(int dst, GraphPath<MapGraph.Point2> path) {
+    int length = 1;
+    int x = windowX + dst % windowW;
+    int y = windowY + dst / windowW;
+    for (int node = dst, d; (d = dir[node]) != -1; length++) {
+      node = index(x -= DX[d], y -= DY[d]);
+    }
+
+    MapGraph.Point2[] nodes = new MapGraph.Point2[length];
+    x = windowX + dst % windowW;
+    y = windowY + dst / windowW;
+    for (int i = length - 1, node = dst; i >= 0; i--) {
+      nodes[i] = new MapGraph.Point2(x, y, -1);
+      int d = dir[node];
+      if (d == -1) break;
+      node = index(x -= DX[d], y -= DY[d]);
+    }
+
+    for (MapGraph.Point2 node : nodes) path.add(node);
+  }
+
+  /**
+   * Octile distance, exact for an unobstructed 8-connected grid.
+   */
+  static float heuristic(int x, int y, int dstX, int dstY) {
+    final int dx = Math.abs(dstX - x);
+    final int dy = Math.abs(dstY - y);
+    return dx < dy
+        ? (DIAGONAL_COST - 1) * dx + dy
+        : (DIAGONAL_COST - 1) * dy + dx;
+  }
+
+  private void push(int node, float key) {
+    if (heapSize == heap.length) {
+      heap    = Arrays.copyOf(heap, heapSize << 1);
+      heapKey = Arrays.copyOf(heapKey, heapSize << 1);
+    }
+
+    int i = heapSize++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heapKey[parent] <= key) break;
+      heap[i]    = heap[parent];
+      heapKey[i] = heapKey[parent];
+      i = parent;
+    }
+
+    heap[i]    = node;
+    heapKey[i] = key;
+  }
+
+  private int pop() {
+    final int result = heap[0];
+    final int last = heap[--heapSize];
+    final float key = heapKey[heapSize];
+    int i = 0;
+    for (int child; (child = (i << 1) + 1) < heapSize; i = child) {
+      if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) child++;
+      if (key <= heapKey[child]) break;
+      heap[i]    = heap[child];
+      heapKey[i] = heapKey[child];
+    }
+
+    heap[i]    = last;
+    heapKey[i] = key;
+    return result;
+  }
+}
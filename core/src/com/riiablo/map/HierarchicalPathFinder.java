@@ -0,0 +1,570 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical A* (HPA*) over the {@link Map.Preset preset} grids of a {@link Map}. Each preset
+ * cell of each zone is a cluster, walkable runs along cluster borders become pairs of linked
+ * entrances, and the costs between entrances of the same cluster are computed lazily. Long searches
+ * run A* over entrances and only refine the chosen corridor at sub-tile level with
+ * {@link GridPathFinder}, short searches go to {@link GridPathFinder} directly.
+ * <p>
+ * The abstract graph is shared, but the state of a search lives in a {@link Search} per thread, so
+ * searches run concurrently under the read side of {@link #lock}. Changes to the graph, and to the
+ * flags of the map it's built on, take the write side.
+ */
+public class HierarchicalPathFinder {
+  private static final String TAG = "HierarchicalPathFinder";
+
+  /** searches with an octile distance shorter than this skip the abstract graph */
+  public static final int SHORT_RANGE = 96;
+
+  /** walkable border runs at least this long get an entrance at each end instead of the middle */
+  static final int SPLIT_LENGTH = 6;
+
+  private static final ThreadLocal<Search> SEARCH = new ThreadLocal<Search>() {
+    @Override
+    protected Search initialValue() {
+      return new Search();
+    }
+  };
+
+  final Map map;
+  final ObjectMap<Map.Zone, Cluster[][]> clusters = new ObjectMap<>();
+  final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  volatile boolean built;
+
+  /** ids of removed entrances, reused before {@link #nextId} grows */
+  final IntArray freeIds = new IntArray();
+  int nextId = 1; // 0 is the goal of each search
+
+  public HierarchicalPathFinder(Map map) {
+    this.map = map;
+  }
+
+  /**
+   * Discards the whole abstract graph, e.g., after zones have been added or moved.
+   */
+  public void invalidate() {
+    lock.writeLock().lock();
+    try {
+      clusters.clear();
+      freeIds.clear();
+      nextId = 1;
+      built = false;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Rebuilds the entrances along the borders of the given preset cell and discards its cached
+   * costs after its flags have changed. Other clusters keep their costs unless an entrance they
+   * share with this cell moved.
+   */
+  public void invalidate(Map.Zone zone, int gridX, int gridY) {
+    lock.writeLock().lock();
+    try {
+      if (!built) return;
+      Cluster[][] clusters = this.clusters.get(zone);
+      if (clusters == null) return;
+      invalidate(clusters[gridX][gridY]);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void invalidate(Cluster cluster) {
+    cluster.costs = null;
+
+    Array<Cluster> neighbors = new Array<>(false, 4);
+    for (int y = cluster.y, yEnd = cluster.y + cluster.height; y < yEnd; y++) {
+      Cluster neighbor = clusterAt(cluster.x - 1, y);
+      if (neighbor != null && !neighbors.contains(neighbor, true)) neighbors.add(neighbor);
+    }
+
+    for (Cluster neighbor : neighbors) buildBorderX(neighbor);
+    neighbors.clear();
+    for (int x = cluster.x, xEnd = cluster.x + cluster.width; x < xEnd; x++) {
+      Cluster neighbor = clusterAt(x, cluster.y - 1);
+      if (neighbor != null && !neighbors.contains(neighbor, true)) neighbors.add(neighbor);
+    }
+
+    for (Cluster neighbor : neighbors) buildBorderY(neighbor);
+    buildBorderX(cluster);
+    buildBorderY(cluster);
+  }
+
+  public boolean search(Vector2 src, Vector2 dst, GraphPath<MapGraph.Point2> path) {
+    return search(Map.round(src.x), Map.round(src.y), Map.round(dst.x), Map.round(dst.y), path);
+  }
+
+  /**
+   * Finds a path between the given sub-tiles, storing every sub-tile along it, source included, in
+   * {@code path}. Paths crossing clusters are near-optimal rather than optimal.
+   *
+   * @return whether or not a path was found
+   */
+  public boolean search(int srcX, int srcY, int dstX, int dstY, GraphPath<MapGraph.Point2> path) {
+    final boolean shortRange = GridPathFinder.heuristic(srcX, srcY, dstX, dstY) < SHORT_RANGE;
+    if (!shortRange && !built) {
+      // read locks can't be upgraded, waiting for the write lock would block forever
+      if (lock.getReadHoldCount() > 0) throw new IllegalStateException("search called under the read lock before the graph was built");
+      lock.writeLock().lock();
+      try {
+        build();
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    lock.readLock().lock();
+    try {
+      GridPathFinder grid = GridPathFinder.get();
+      if (map.flags(dstX, dstY) != 0) {
+        path.clear();
+        return false;
+      }
+
+      if (shortRange || !built) {
+        return grid.search(map, srcX, srcY, dstX, dstY, path);
+      }
+
+      Search search = SEARCH.get();
+      Cluster srcCluster = clusterAt(srcX, srcY);
+      Cluster dstCluster = clusterAt(dstX, dstY);
+      if (srcCluster == null || dstCluster == null || srcCluster == dstCluster
+          || !searchCorridor(search, grid, srcCluster, srcX, srcY, dstCluster, dstX, dstY)
+          || !refine(search, grid, srcX, srcY, path)) {
+        return grid.search(map, srcX, srcY, dstX, dstY, path);
+      }
+
+      return true;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Runs A* over the entrances, storing the entrances along the cheapest route in
+   * {@link Search#corridor}.
+   */
+  private boolean searchCorridor(Search search, GridPathFinder grid,
+                                 Cluster srcCluster, int srcX, int srcY,
+                                 Cluster dstCluster, int dstX, int dstY) {
+    final float[] srcCosts = search.srcCosts = distances(search, grid, srcCluster, srcX, srcY, search.srcCosts);
+    final float[] dstCosts = search.dstCosts = distances(search, grid, dstCluster, dstX, dstY, search.dstCosts);
+
+    search.reset(nextId);
+    final Entrance goal = search.goal;
+    goal.x = dstX;
+    goal.y = dstY;
+
+    Array<Entrance> entrances = srcCluster.entrances;
+    for (int i = 0, s = entrances.size; i < s; i++) {
+      float cost = srcCosts[i];
+      if (cost != Float.POSITIVE_INFINITY) search.open(entrances.get(i), cost, null);
+    }
+
+    while (search.heapSize > 0) {
+      Entrance entrance = search.pop();
+      if (search.isClosed(entrance)) continue;
+      search.close(entrance);
+      final float g = search.g[entrance.id];
+      if (entrance == goal) {
+        Array<Entrance> corridor = search.corridor;
+        corridor.clear();
+        for (Entrance e = search.parent[goal.id]; e != null; e = search.parent[e.id]) corridor.add(e);
+        corridor.reverse();
+        return true;
+      }
+
+      Entrance link = entrance.link;
+      if (!search.isClosed(link)) search.open(link, g + 1, entrance);
+
+      Cluster cluster = entrance.cluster;
+      if (cluster == dstCluster) {
+        float cost = dstCosts[entrance.index];
+        if (cost != Float.POSITIVE_INFINITY) search.open(goal, g + cost, entrance);
+      }
+
+      float[] costs = costs(search, grid, cluster);
+      entrances = cluster.entrances;
+      final int size = entrances.size;
+      for (int i = 0, j = entrance.index * size; i < size; i++, j++) {
+        float cost = costs[j];
+        if (cost == Float.POSITIVE_INFINITY) continue;
+        Entrance next = entrances.get(i);
+        if (!search.isClosed(next)) search.open(next, g + cost, entrance);
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Expands {@link Search#corridor} into sub-tiles.
+   */
+  private boolean refine(Search search, GridPathFinder grid, int srcX, int srcY, GraphPath<MapGraph.Point2> path) {
+    final Array<Entrance> corridor = search.corridor;
+    final Entrance goal = search.goal;
+    final MapGraph.MapGraphPath segment = search.segment;
+    path.clear();
+    path.add(new MapGraph.Point2(srcX, srcY, -1));
+    int x = srcX, y = srcY;
+    for (int i = 0; i <= corridor.size; i++) {
+      Entrance next = i < corridor.size ? corridor.get(i) : goal;
+      if (Math.abs(next.x - x) <= 1 && Math.abs(next.y - y) <= 1 && map.flags(next.x, next.y) == 0) {
+        if (next.x != x || next.y != y) path.add(new MapGraph.Point2(next.x, next.y, -1));
+      } else {
+        if (!grid.search(map, x, y, next.x, next.y, segment)) return false;
+        for (int j = 1, s = segment.getCount(); j < s; j++) path.add(segment.get(j));
+      }
+
+      x = next.x;
+      y = next.y;
+    }
+
+    segment.clear();
+    return true;
+  }
+
+  /**
+   * Returns the costs from the given sub-tile to each entrance of {@code cluster}.
+   */
+  private float[] distances(Search search, GridPathFinder grid, Cluster cluster, int x, int y, float[] costs) {
+    final Array<Entrance> entrances = cluster.entrances;
+    final int size = entrances.size;
+    if (costs.length < size) costs = new float[size];
+    search.setTargets(entrances);
+    grid.distances(map, x, y, cluster.x, cluster.y, cluster.width, cluster.height,
+        search.targetsX, search.targetsY, size, costs);
+    return costs;
+  }
+
+  /**
+   * Returns the matrix of costs between the entrances of {@code cluster}, computing it if needed.
+   * Concurrent searches may both compute it, but they compute the same values.
+   */
+  private float[] costs(Search search, GridPathFinder grid, Cluster cluster) {
+    float[] costs = cluster.costs;
+    if (costs != null) return costs;
+    final Array<Entrance> entrances = cluster.entrances;
+    final int size = entrances.size;
+    costs = new float[size * size];
+    float[] row = new float[size];
+    search.setTargets(entrances);
+    for (int i = 0; i < size; i++) {
+      Entrance entrance = entrances.get(i);
+      grid.distances(map, entrance.x, entrance.y, cluster.x, cluster.y, cluster.width, cluster.height,
+          search.targetsX, search.targetsY, size, row);
+      System.arraycopy(row, 0, costs, i * size, size);
+    }
+
+    return cluster.costs = costs;
+  }
+
+  private void build() {
+    if (built) return;
+    for (Map.Zone zone : map.zones) {
+      final int gridsX = Math.max(zone.gridsX, 1);
+      final int gridsY = Math.max(zone.gridsY, 1);
+      final int clusterW = (zone.width  + gridsX - 1) / gridsX;
+      final int clusterH = (zone.height + gridsY - 1) / gridsY;
+      Cluster[][] clusters = new Cluster[gridsX][gridsY];
+      for (int gx = 0; gx < gridsX; gx++) {
+        for (int gy = 0; gy < gridsY; gy++) {
+          int x = gx * clusterW;
+          int y = gy * clusterH;
+          clusters[gx][gy] = new Cluster(zone,
+              zone.x + x, zone.y + y,
+              Math.max(Math.min(clusterW, zone.width  - x), 0),
+              Math.max(Math.min(clusterH, zone.height - y), 0));
+        }
+      }
+
+      this.clusters.put(zone, clusters);
+    }
+
+    built = true;
+    for (Cluster[][] clusters : this.clusters.values()) {
+      for (Cluster[] column : clusters) {
+        for (Cluster cluster : column) {
+          buildBorderX(cluster);
+          buildBorderY(cluster);
+        }
+      }
+    }
+  }
+
+  Cluster clusterAt(int x, int y) {
+    Map.Zone zone = map.getZone(x, y);
+    if (zone == null) return null;
+    Cluster[][] clusters = this.clusters.get(zone);
+    if (clusters == null) return null;
+    Cluster first = clusters[0][0];
+    int gx = Math.min((x - zone.x) / Math.max(first.width,  1), clusters.length - 1);
+    int gy = Math.min((y - zone.y) / Math.max(first.height, 1), clusters[0].length - 1);
+    return clusters[gx][gy];
+  }
+
+  /**
+   * Rebuilds the entrances between {@code cluster} and the clusters bordering its high x edge.
+   */
+  private void buildBorderX(Cluster cluster) {
+    clearBorder(cluster.borderX);
+    final int x = cluster.x + cluster.width;
+    Cluster other = null;
+    int start = 0;
+    for (int y = cluster.y, yEnd = cluster.y + cluster.height; y <= yEnd; y++) {
+      Cluster next = null;
+      if (y < yEnd && map.flags(x - 1, y) == 0 && map.flags(x, y) == 0) {
+        next = clusterAt(x, y);
+        if (next == cluster) next = null;
+      }
+
+      if (next != other) {
+        if (other != null) addEntrances(cluster, other, true, x, start, y);
+        other = next;
+        start = y;
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the entrances between {@code cluster} and the clusters bordering its high y edge.
+   */
+  private void buildBorderY(Cluster cluster) {
+    clearBorder(cluster.borderY);
+    final int y = cluster.y + cluster.height;
+    Cluster other = null;
+    int start = 0;
+    for (int x = cluster.x, xEnd = cluster.x + cluster.width; x <= xEnd; x++) {
+      Cluster next = null;
+      if (x < xEnd && map.flags(x, y - 1) == 0 && map.flags(x, y) == 0) {
+        next = clusterAt(x, y);
+        if (next == cluster) next = null;
+      }
+
+      if (next != other) {
+        if (other != null) addEntrances(cluster, other, false, y, start, x);
+        other = next;
+        start = x;
+      }
+    }
+  }
+
+  /**
+   * Adds linked entrances for the walkable run {@code [start, end)} along the border at
+   * {@code edge}, the first sub-tile outside of {@code cluster}.
+   */
+  private void addEntrances(Cluster cluster, Cluster other, boolean borderX, int edge, int start, int end) {
+    final int length = end - start;
+    if (length >= SPLIT_LENGTH) {
+      addEntrance(cluster, other, borderX, edge, start);
+      addEntrance(cluster, other, borderX, edge, end - 1);
+    } else {
+      addEntrance(cluster, other, borderX, edge, start + (length >> 1));
+    }
+  }
+
+  private void addEntrance(Cluster cluster, Cluster other, boolean borderX, int edge, int i) {
+    Entrance inside, outside;
+    if (borderX) {
+      inside  = new Entrance(nextId(), cluster, edge - 1, i);
+      outside = new Entrance(nextId(), other,   edge,     i);
+      cluster.borderX.add(inside);
+    } else {
+      inside  = new Entrance(nextId(), cluster, i, edge - 1);
+      outside = new Entrance(nextId(), other,   i, edge);
+      cluster.borderY.add(inside);
+    }
+
+    inside.link = outside;
+    outside.link = inside;
+    cluster.add(inside);
+    other.add(outside);
+  }
+
+  private void clearBorder(Array<Entrance> border) {
+    for (Entrance entrance : border) {
+      entrance.cluster.remove(entrance);
+      entrance.link.cluster.remove(entrance.link);
+      freeIds.add(entrance.id);
+      freeIds.add(entrance.link.id);
+    }
+
+    border.clear();
+  }
+
+  private int nextId() {
+    return freeIds.size > 0 ? freeIds.pop() : nextId++;
+  }
+
+  /**
+   * State of one search over the abstract graph, indexed by {@link Entrance#id}. A generation stamp
+   * marks which entries belong to the current search so nothing is cleared between searches.
+   */
+  static final class Search {
+    final Entrance goal = new Entrance(0, null, 0, 0);
+    final Array<Entrance> corridor = new Array<>();
+    final MapGraph.MapGraphPath segment = new MapGraph.MapGraphPath();
+
+    int        generation;
+    int[]      stamp  = new int[0]; // generation + 1 once closed, generation once opened
+    float[]    g      = new float[0];
+    Entrance[] parent = new Entrance[0];
+
+    int        heapSize;
+    Entrance[] heap    = new Entrance[64];
+    float[]    heapKey = new float[64];
+
+    int[]   targetsX = new int[16];
+    int[]   targetsY = new int[16];
+    float[] srcCosts = new float[16];
+    float[] dstCosts = new float[16];
+
+    void reset(int numIds) {
+      if (stamp.length < numIds) {
+        final int length = Math.max(numIds, stamp.length << 1);
+        stamp  = new int[length];
+        g      = new float[length];
+        parent = new Entrance[length];
+        generation = 0;
+      }
+
+      generation += 2;
+      heapSize = 0;
+      Arrays.fill(heap, null);
+    }
+
+    boolean isClosed(Entrance entrance) {
+      return stamp[entrance.id] == generation + 1;
+    }
+
+    void close(Entrance entrance) {
+      stamp[entrance.id] = generation + 1;
+    }
+
+    void open(Entrance entrance, float g, Entrance parent) {
+      final int id = entrance.id;
+      if (stamp[id] == generation && g >= this.g[id]) return;
+      stamp[id]       = generation;
+      this.g[id]      = g;
+      this.parent[id] = parent;
+      push(entrance, g + GridPathFinder.heuristic(entrance.x, entrance.y, goal.x, goal.y));
+    }
+
+    void setTargets(Array<Entrance> entrances) {
+      final int size = entrances.size;
+      if (targetsX.length < size) {
+        targetsX = new int[size];
+        targetsY = new int[size];
+      }
+
+      for (int i = 0; i < size; i++) {
+        Entrance entrance = entrances.get(i);
+        targetsX[i] = entrance.x;
+        targetsY[i] = entrance.y;
+      }
+    }
+
+    private void push(Entrance entrance, float key) {
+      if (heapSize == heap.length) {
+        heap    = Arrays.copyOf(heap, heapSize << 1);
+        heapKey = Arrays.copyOf(heapKey, heapSize << 1);
+      }
+
+      int i = heapSize++;
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (heapKey[parent] <= key) break;
+        heap[i]    = heap[parent];
+        heapKey[i] = heapKey[parent];
+        i = parent;
+      }
+
+      heap[i]    = entrance;
+      heapKey[i] = key;
+    }
+
+    Entrance pop() {
+      final Entrance result = heap[0];
+      final Entrance last = heap[--heapSize];
+      final float key = heapKey[heapSize];
+      heap[heapSize] = null;
+      int i = 0;
+      for (int child; (child = (i << 1) + 1) < heapSize; i = child) {
+        if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) child++;
+        if (key <= heapKey[child]) break;
+        heap[i]    = heap[child];
+        heapKey[i] = heapKey[child];
+      }
+
+      if (heapSize > 0) {
+        heap[i]    = last;
+        heapKey[i] = key;
+      }
+
+      return result;
+    }
+  }
+
+  static class Cluster {
+    final Map.Zone zone;
+    final int x, y;
+    final int width, height;
+
+    /** every entrance located inside this cluster, indexed by {@link Entrance#index} */
+    final Array<Entrance> entrances = new Array<>();
+
+    /** entrances created by the borders this cluster owns, its high x and high y edges */
+    final Array<Entrance> borderX = new Array<>();
+    final Array<Entrance> borderY = new Array<>();
+
+    /** costs between entrances, {@code entrances.size} squared, {@code null} until needed */
+    volatile float costs[];
+
+    Cluster(Map.Zone zone, int x, int y, int width, int height) {
+      this.zone   = zone;
+      this.x      = x;
+      this.y      = y;
+      this.width  = width;
+      this.height = height;
+    }
+
+    void add(Entrance entrance) {
+      entrance.index = entrances.size;
+      entrances.add(entrance);
+      costs = null;
+    }
+
+    void remove(Entrance entrance) {
+      entrances.removeIndex(entrance.index);
+      for (int i = entrance.index, s = entrances.size; i < s; i++) entrances.get(i).index = i;
+      costs = null;
+    }
+  }
+
+  static class Entrance {
+    final int id;
+    final Cluster cluster;
+    int x, y;
+    int index;
+    Entrance link;
+
+    Entrance(int id, Cluster cluster, int x, int y) {
+      this.id = id;
+      this.cluster = cluster;
+      this.x = x;
+      this.y = y;
+    }
+  }
+}
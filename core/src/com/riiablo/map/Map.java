@@ -5,7 +5,6 @@ import com.google.common.base.Preconditions;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.ai.pfa.GraphPath;
 import com.badlogic.gdx.ai.pfa.SmoothableGraphPath;
-import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
 import com.badlogic.gdx.ai.utils.Collision;
 import com.badlogic.gdx.ai.utils.Ray;
 import com.badlogic.gdx.assets.AssetDescriptor;
@@ -28,6 +27,7 @@ import com.riiablo.codec.excel.LvlTypes;
 import com.riiablo.codec.excel.MonStats;
 import com.riiablo.entity.Entity;
 import com.riiablo.entity.Monster;
+import com.riiablo.entity.SpatialHash;
 import com.riiablo.entity.Warp;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -298,8 +298,9 @@ public class Map implements Disposable {
   }
 
   public final int act;
-  // TODO: maybe replace with R-tree? // https://en.wikipedia.org/wiki/R-tree
   final Array<Zone>  zones = new Array<>();
+  ZoneIndex    zoneIndex;
+  final SpatialHash entities = new SpatialHash(); // entities placed by zones
   IntMap<DT1s> dt1s;
   final IntIntMap warpSubsts = new IntIntMap();
   public static Map instance; // TODO: remove
@@ -308,6 +309,18 @@ public class Map implements Disposable {
     this.act = act;
   }
 
+  /**
+   * Builds a map of a single walkable zone of {@code gridsX} by {@code gridsY} cells of
+   * {@code gridSize} tiles each, without presets, tiles or entities, so it doesn't need the game
+   * files, e.g., for tests.
+   */
+  public static Map blank(int act, int gridSize, int gridsX, int gridsY) {
+    Map map = new Map(act);
+    map.zones.add(new Zone(map, gridSize, gridsX, gridsY));
+    map.invalidateZones();
+    return map;
+  }
+
   public static Map build(MapLoader.MapParameters params) {
     return build(params.seed, params.act, params.diff);
   }
@@ -557,6 +570,7 @@ public class Map implements Disposable {
 
   @Override
   public void dispose() {
+    if (paths != null) paths.dispose();
     for (Zone zone : zones) {
       for (int x = 0; x < zone.gridsX; x++) {
         for (int y = 0; y < zone.gridsY; y++) {
@@ -586,19 +600,74 @@ public class Map implements Disposable {
   }
 
   public Zone getZone(int x, int y) {
-    for (Zone zone : zones) {
-      if (zone.contains(x, y)) {
-        return zone;
-      }
-    }
-
-    return null;
+    return zoneIndex().get(x, y);
   }
 
   public Zone getZone(Vector2 pos) {
     return getZone(Map.round(pos.x), Map.round(pos.y));
   }
 
+  /**
+   * Adds every entity placed by a zone to {@code dst}, zone by zone in the order they were loaded.
+   *
+   * @return {@code dst}
+   */
+  public Array<Entity> getEntities(Array<Entity> dst) {
+    for (Zone zone : new Array.ArrayIterator<>(zones)) dst.addAll(zone.entities);
+    return dst;
+  }
+
+  /**
+   * Adds every entity placed by a zone within the given rectangle of sub-tiles to {@code dst}.
+   *
+   * @return {@code dst}
+   */
+  public Array<Entity> getEntities(int x, int y, int width, int height, Array<Entity> dst) {
+    return entities.get(x, y, width, height, dst);
+  }
+
+  /**
+   * Adds every entity placed by a zone within {@code radius} sub-tiles of {@code position} to
+   * {@code dst}.
+   *
+   * @return {@code dst}
+   */
+  public Array<Entity> getEntities(Vector2 position, float radius, Array<Entity> dst) {
+    return entities.get(position, radius, dst);
+  }
+
+  /**
+   * Adds every zone overlapping the given rectangle of sub-tiles to {@code zones}.
+   *
+   * @return {@code zones}
+   */
+  public Array<Zone> getZones(int x, int y, int width, int height, Array<Zone> zones) {
+    return zoneIndex().get(x, y, width, height, zones);
+  }
+
+  ZoneIndex zoneIndex() {
+    ZoneIndex zoneIndex = this.zoneIndex;
+    if (zoneIndex == null) zoneIndex = this.zoneIndex = new ZoneIndex(zones);
+    return zoneIndex;
+  }
+
+  void invalidateZones() {
+    zoneIndex = null;
+    if (pathFinder != null) pathFinder.invalidate();
+    if (paths != null) paths.invalidate();
+  }
+
+  /**
+   * Copies the zone bounds and flags into a new map which pathing can search from another thread
+   * while this one keeps changing.
+   */
+  Map snapshot() {
+    Map snapshot = new Map(act);
+    for (Zone zone : zones) snapshot.zones.add(new Zone(snapshot, zone));
+    snapshot.zoneIndex();
+    return snapshot;
+  }
+
   Zone addZone(Levels.Entry level, int diff, LvlPrest.Entry preset, int ds1) {
     assert preset.LevelId != 0 : "presets should have an assigned level id";
     Zone zone = addZone(level, diff, level.SizeX[diff], level.SizeY[diff]);
@@ -610,6 +679,7 @@ public class Map implements Disposable {
     Zone zone = new Zone(this, level, diff, gridSizeX, gridSizeY);
     if (DEBUG_ZONES) Gdx.app.debug(TAG, zone.toString());
     zones.add(zone);
+    invalidateZones();
     return zone;
   }
 
@@ -617,6 +687,7 @@ public class Map implements Disposable {
     Zone zone = new Zone(this, level, gridSizeX, gridSizeY, gridsX, gridsY);
     if (DEBUG_ZONES) Gdx.app.debug(TAG, zone.toString());
     zones.add(zone);
+    invalidateZones();
     return zone;
   }
 
@@ -668,11 +739,39 @@ public class Map implements Disposable {
     }
   }
 
-  private MapGraph                                mapGraph   = new MapGraph(this);
-  private IndexedAStarPathFinder<MapGraph.Point2> pathFinder = new IndexedAStarPathFinder<>(mapGraph, true);
+  private MapGraph mapGraph = new MapGraph(this);
+  final HierarchicalPathFinder pathFinder = new HierarchicalPathFinder(this);
+  PathService paths;
+
+  /**
+   * Returns the service which finds paths for this map's entities off of the calling thread.
+   */
+  public PathService paths() {
+    if (paths == null) paths = new PathService(this);
+    return paths;
+  }
 
   public boolean findPath(Vector2 src, Vector2 dst, GraphPath<MapGraph.Point2> path) {
-    return mapGraph.searchNodePath(pathFinder, src, dst, path);
+    if (dst == null) {
+      path.clear();
+      return false;
+    }
+
+    return pathFinder.search(src, dst, path);
+  }
+
+  /**
+   * Updates pathing after the flags of the given preset cell of {@code zone} have changed.
+   */
+  public void invalidatePathing(Zone zone, int gridX, int gridY) {
+    if (zone.bits != null) {
+      final int width  = zone.gridSizeX * DT1.Tile.SUBTILE_SIZE;
+      final int height = zone.gridSizeY * DT1.Tile.SUBTILE_SIZE;
+      zone.bits.update(zone, zone.x + gridX * width, zone.y + gridY * height, width, height);
+    }
+
+    pathFinder.invalidate(zone, gridX, gridY);
+    if (paths != null) paths.invalidate(zone, gridX, gridY);
   }
 
   public void smoothPath(SmoothableGraphPath<MapGraph.Point2, Vector2> path) {
@@ -701,6 +800,7 @@ public class Map implements Disposable {
     Preset         presets[][];
     Tile           tiles[][][];
     byte           flags[][];
+    FlagBits       bits;
     Array<Entity>  entities;
     IntIntMap      warps;
     boolean        town;
@@ -751,6 +851,55 @@ public class Map implements Disposable {
       warps    = EMPTY_INT_INT_MAP;
     }
 
+    /**
+     * Constructs a walkable zone without a level for {@link Map#blank(int, int, int, int)}
+     */
+    Zone(Map map, int gridSize, int gridsX, int gridsY) {
+      this.map       = map;
+      this.gridSizeX = gridSize;
+      this.gridSizeY = gridSize;
+      this.gridsX    = gridsX;
+      this.gridsY    = gridsY;
+
+      tilesX   = gridsX * gridSize;
+      tilesY   = gridsY * gridSize;
+      width    = tilesX * DT1.Tile.SUBTILE_SIZE;
+      height   = tilesY * DT1.Tile.SUBTILE_SIZE;
+      presets  = new Preset[gridsX][gridsY];
+      flags    = new byte[width][height];
+      entities = EMPTY_ENTITY_ARRAY;
+      warps    = EMPTY_INT_INT_MAP;
+    }
+
+    /**
+     * Copies the bounds and flags of {@code src} for {@link Map#snapshot()}
+     */
+    Zone(Map map, Zone src) {
+      this.map       = map;
+      this.level     = src.level;
+      this.type      = src.type;
+      this.x         = src.x;
+      this.y         = src.y;
+      this.width     = src.width;
+      this.height    = src.height;
+      this.gridSizeX = src.gridSizeX;
+      this.gridSizeY = src.gridSizeY;
+      this.gridsX    = src.gridsX;
+      this.gridsY    = src.gridsY;
+      this.tx        = src.tx;
+      this.ty        = src.ty;
+      this.tilesX    = src.tilesX;
+      this.tilesY    = src.tilesY;
+      this.town      = src.town;
+
+      presets  = src.presets;
+      flags    = new byte[width][];
+      for (int x = 0; x < width; x++) flags[x] = src.flags[x].clone();
+      bits     = new FlagBits(this); // built eagerly since snapshots are read from several threads
+      entities = EMPTY_ENTITY_ARRAY;
+      warps    = EMPTY_INT_INT_MAP;
+    }
+
     private void loadEntities(DS1 ds1, int gridX, int gridY) {
       final int x = this.x + (gridX * DT1.Tile.SUBTILE_SIZE);
       final int y = this.y + (gridY * DT1.Tile.SUBTILE_SIZE);
@@ -761,6 +910,7 @@ public class Map implements Disposable {
         if (entity == null) continue;
         entity.position().set(x + obj.x, y + obj.y);
         entities.add(entity);
+        map.entities.add(entity);
       }
     }
 
@@ -770,6 +920,7 @@ public class Map implements Disposable {
       if (entities == EMPTY_ENTITY_ARRAY) entities = new Array<>();
       Warp warp = new Warp(map, this, tile.cell.id, x, y);
       entities.add(warp);
+      map.entities.add(warp);
     }
 
     void setWarp(int src, int dst) {
@@ -790,6 +941,7 @@ public class Map implements Disposable {
       this.y = y;
       tx = x / DT1.Tile.SUBTILE_SIZE;
       ty = y / DT1.Tile.SUBTILE_SIZE;
+      map.invalidateZones();
     }
 
     // TODO: define entrance, exit to eliminate x,y
@@ -856,12 +1008,21 @@ public class Map implements Disposable {
 
     public int flags(int x, int y) {
       x -= this.x;
-      if (x < 0 || x > width ) return 0xFF;
+      if (x < 0 || x >= width ) return 0xFF;
       y -= this.y;
-      if (y < 0 || y > height) return 0xFF;
+      if (y < 0 || y >= height) return 0xFF;
       return flags[x][y] & 0xFF;
     }
 
+    /**
+     * Returns the flags of this zone packed into bitsets, which are built on first use after the
+     * zone has been loaded.
+     */
+    public FlagBits bits() {
+      if (bits == null) bits = new FlagBits(this);
+      return bits;
+    }
+
     void load(DT1s dt1s) {
       Preconditions.checkState(tiles == null, "tiles have already been loaded");
       tiles = new Tile[Map.MAX_LAYERS][][];
@@ -870,13 +1031,15 @@ public class Map implements Disposable {
           Preset preset = presets[x][y];
           if (preset == null) {
             if (generator != null) generator.generate(this, dt1s, gridX, gridY);
-            continue;
+          } else {
+            DS1 ds1 = Riiablo.assets.get(TILES_PATH + preset.ds1Path);
+            preset.set(ds1, dt1s);
+            preset.copyTo(this, gridX, gridY);
+            loadEntities(ds1, gridX, gridY);
           }
 
-          DS1 ds1 = Riiablo.assets.get(TILES_PATH + preset.ds1Path);
-          preset.set(ds1, dt1s);
-          preset.copyTo(this, gridX, gridY);
-          loadEntities(ds1, gridX, gridY);
+          // flags of the cell were rewritten, pathing may have searched the blank ones
+          map.invalidatePathing(this, x, y);
         }
       }
     }
@@ -28,12 +28,18 @@ public class MapGraph implements IndexedGraph<MapGraph.Point2> {
   Map                           map;
   IntMap<Point2>                points = new IntMap<>();
   MapRaycastCollisionDetector   rayCaster;
-  PathSmoother<Point2, Vector2> pathSmoother;
+
+  /** smoothers of the threads smoothing paths over this graph, each with its own ray caster */
+  final ThreadLocal<PathSmoother<Point2, Vector2>> pathSmoother = new ThreadLocal<PathSmoother<Point2, Vector2>>() {
+    @Override
+    protected PathSmoother<Point2, Vector2> initialValue() {
+      return new PathSmoother<>(new MapRaycastCollisionDetector(MapGraph.this));
+    }
+  };
 
   public MapGraph(Map map) {
     this.map = map;
     rayCaster = new MapRaycastCollisionDetector(this);
-    pathSmoother = new PathSmoother<>(rayCaster);
   }
 
   public GraphPath<Point2> path(Vector2 src, Vector2 dst, GraphPath<Point2> path) {
@@ -102,7 +108,7 @@ public class MapGraph implements IndexedGraph<MapGraph.Point2> {
   }
 
   public void smoothPath(SmoothableGraphPath<Point2, Vector2> path) {
-    pathSmoother.smoothPath(path);
+    pathSmoother.get().smoothPath(path);
   }
 
   @Override
@@ -155,9 +161,13 @@ public class MapGraph implements IndexedGraph<MapGraph.Point2> {
     static int indexes = 0;
 
     Point2(int x, int y) {
+      this(x, y, indexes++);
+    }
+
+    Point2(int x, int y, int index) {
       this.x = x;
       this.y = y;
-      index = indexes++;
+      this.index = index;
     }
 
     Point2(Vector2 src) {
@@ -241,9 +251,15 @@ public class MapGraph implements IndexedGraph<MapGraph.Point2> {
     }
   }
 
+  /**
+   * Traces rays along the same Bresenham lines as before, but tests each run of points sharing a
+   * row (or column, for steep lines) against the {@link FlagBits} of its zone a word at a time,
+   * instead of looking up the zone and flags of every point.
+   */
   static class MapRaycastCollisionDetector implements RaycastCollisionDetector<Vector2> {
     Map      map;
     MapGraph mapGraph;
+    Map.Zone zone;
 
     public MapRaycastCollisionDetector(MapGraph mapGraph) {
       this.mapGraph = mapGraph;
@@ -252,60 +268,20 @@ public class MapGraph implements IndexedGraph<MapGraph.Point2> {
 
     @Override
     public boolean collides(Ray<Vector2> ray) {
-      int x0 = (int) ray.start.x;
-      int y0 = (int) ray.start.y;
-      int x1 = (int) ray.end.x;
-      int y1 = (int) ray.end.y;
-
-      int tmp;
-      boolean steep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
-      if (steep) {
-        // Swap x0 and y0
-        tmp = x0;
-        x0 = y0;
-        y0 = tmp;
-        // Swap x1 and y1
-        tmp = x1;
-        x1 = y1;
-        y1 = tmp;
-      }
-      if (x0 > x1) {
-        // Swap x0 and x1
-        tmp = x0;
-        x0 = x1;
-        x1 = tmp;
-        // Swap y0 and y1
-        tmp = y0;
-        y0 = y1;
-        y1 = tmp;
-      }
-
-      int deltax = x1 - x0;
-      int deltay = Math.abs(y1 - y0);
-      int error = 0;
-      int y = y0;
-      int ystep = (y0 < y1 ? 1 : -1);
-      for (int x = x0; x <= x1; x++) {
-        // TODO: Why is this distinction needed?
-        if (steep) {
-          Map.Zone zone = map.getZone(y, x);
-          if (zone == null || zone.flags(y, x) != 0) return true; // We've hit a wall
-        } else {
-          Map.Zone zone = map.getZone(x, y);
-          if (zone == null || zone.flags(x, y) != 0) return true; // We've hit a wall
-        }
-        error += deltay;
-        if (error + error >= deltax) {
-          y += ystep;
-          error -= deltax;
-        }
-      }
-
-      return false;
+      return trace(ray, null);
     }
 
     @Override
     public boolean findCollision(Collision<Vector2> dst, Ray<Vector2> ray) {
+      return trace(ray, dst.point);
+    }
+
+    /**
+     * @param point set to the last walkable point before the collision, if not {@code null}
+     *
+     * @return whether or not the ray hit a wall
+     */
+    boolean trace(Ray<Vector2> ray, Vector2 point) {
       int x0 = (int) ray.start.x;
       int y0 = (int) ray.start.y;
       int x1 = (int) ray.end.x;
@@ -334,36 +310,74 @@ public class MapGraph implements IndexedGraph<MapGraph.Point2> {
         y1 = tmp;
       }
 
-      int deltax = x1 - x0;
-      int deltay = Math.abs(y1 - y0);
+      final int deltax = x1 - x0;
+      final int deltay = Math.abs(y1 - y0);
+      final int ystep = (y0 < y1 ? 1 : -1);
       int error = 0;
       int y = y0;
-      int ystep = (y0 < y1 ? 1 : -1);
-      dst.point.set(steep ? y0 : x0, steep ? x0 : y0);
-      //dst.normal.setZero();
-      for (int x = x0; x <= x1; x++) {
-        if (steep) {
-          Map.Zone zone = map.getZone(y, x);
-          if (zone == null || zone.flags(y, x) != 0) {
-            //dst.normal.set(y, x);
-            return true;
-          }
-        } else {
-          Map.Zone zone = map.getZone(x, y);
-          if (zone == null || zone.flags(x, y) != 0) {
-            //dst.normal.set(x, y);
+      int lastX = x0, lastY = y0;
+      try {
+        for (int x = x0; x <= x1; y += ystep) {
+          // points from x until the error crosses half a step share this y
+          final int remaining = deltax - (error << 1);
+          final int run = deltay == 0
+              ? x1 - x + 1
+              : Math.max(1, (remaining + (deltay << 1) - 1) / (deltay << 1));
+          final int end = Math.min(x + run - 1, x1);
+          final int hit = firstBlocked(steep, y, x, end);
+          if (hit != FlagBits.NONE) {
+            if (hit > x) {
+              lastX = hit - 1;
+              lastY = y;
+            }
+
             return true;
           }
+
+          lastX = end;
+          lastY = y;
+          error += run * deltay - deltax;
+          x = end + 1;
         }
-        dst.point.set(steep ? y : x, steep ? x : y);
-        error += deltay;
-        if (error + error >= deltax) {
-          y += ystep;
-          error -= deltax;
+
+        return false;
+      } finally {
+        zone = null;
+        if (point != null) point.set(steep ? lastY : lastX, steep ? lastX : lastY);
+      }
+    }
+
+    /**
+     * @return first point between {@code from} and {@code to}, inclusive, of row {@code line} (or
+     *         of column {@code line} if {@code steep}) which is unwalkable or outside every zone, or
+     *         {@link FlagBits#NONE}
+     */
+    private int firstBlocked(boolean steep, int line, int from, int to) {
+      while (from <= to) {
+        final int x = steep ? line : from;
+        final int y = steep ? from : line;
+        Map.Zone zone = this.zone;
+        if (zone == null || !zone.contains(x, y)) {
+          zone = this.zone = map.getZone(x, y);
+          if (zone == null) return from;
         }
+
+        final FlagBits bits = zone.bits();
+        final int end;
+        final int hit;
+        if (steep) {
+          end = Math.min(to, zone.y + zone.height - 1);
+          hit = bits.firstBlockedInColumn(line, from, end);
+        } else {
+          end = Math.min(to, zone.x + zone.width - 1);
+          hit = bits.firstBlockedInRow(line, from, end);
+        }
+
+        if (hit != FlagBits.NONE) return hit;
+        from = end + 1;
       }
 
-      return false;
+      return FlagBits.NONE;
     }
   }
 }
@@ -27,6 +27,7 @@ import com.badlogic.gdx.utils.Array;
 import com.riiablo.Riiablo;
 import com.riiablo.codec.excel.LvlPrest;
 import com.riiablo.codec.excel.LvlTypes;
+import com.riiablo.codec.excel.SecondaryIndex;
 
 public class MapLoader extends AsynchronousAssetLoader<Map, MapLoader.MapParameters> {
   Map map;
@@ -65,10 +66,13 @@ public class MapLoader extends AsynchronousAssetLoader<Map, MapLoader.MapParamet
       }
     }
 
-    for (LvlTypes.Entry type : Riiablo.files.LvlTypes) {
-      if ((type.Act - 1) == params.act && type.Id <= 3) {
-        for (int i = 0; type.File[i].charAt(0) != '0'; i++) {
-          dependencies.add(new AssetDescriptor<>(Map.TILES_PATH + type.File[i], DT1.class));
+    SecondaryIndex types = Riiablo.files.LvlTypes.getIndex("Act");
+    int act = types.find(params.act + 1);
+    for (int i = types.start(act), s = types.end(act); i < s; i++) {
+      LvlTypes.Entry type = Riiablo.files.LvlTypes.get(types.id(i));
+      if (type.Id <= 3) {
+        for (int j = 0; type.File[j].charAt(0) != '0'; j++) {
+          dependencies.add(new AssetDescriptor<>(Map.TILES_PATH + type.File[j], DT1.class));
         }
       }
     }
@@ -14,9 +14,12 @@ import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.IntMap;
 import com.riiablo.Riiablo;
 import com.riiablo.entity.Engine;
 import com.riiablo.entity.Entity;
+import com.riiablo.entity.EntityStore;
+import com.riiablo.entity.MovementSystem;
 import com.riiablo.entity.Object;
 import com.riiablo.graphics.BlendMode;
 import com.riiablo.graphics.PaletteIndexedBatch;
@@ -71,6 +74,11 @@ public class MapRenderer {
     }
   };
 
+  @SuppressWarnings("unchecked")
+  private static final Array<Entity>[] EMPTY_CACHE = new Array[] {
+      new Array<Entity>(0), new Array<Entity>(0), new Array<Entity>(0)
+  };
+
   private final Vector3    tmpVec3  = new Vector3();
   private final Vector2    tmpVec2a = new Vector2();
   private final Vector2    tmpVec2b = new Vector2();
@@ -121,7 +129,14 @@ public class MapRenderer {
   final Bits popped = new Bits();
 
   Engine entities;
+  EntityStore store; // moves entities when set, see setEntityStoreEnabled
   final Array<Entity> nearbyEntities = new Array<>();
+  final Array<Entity> tileEntities = new Array<>();
+
+  // entity caches of recently visible tiles, keyed by tile
+  final IntMap<TileCache> tileCaches = new IntMap<>();
+  int viewBufferSize;
+  int frame;
 
   public MapRenderer(PaletteIndexedBatch batch, float viewportWidth, float viewportHeight) {
     this.batch  = batch;
@@ -143,7 +158,9 @@ public class MapRenderer {
 
   public void setMap(Map map) {
     if (this.map != map) {
+      if (store != null) setStore(null);
       this.map = map;
+      tileCaches.clear();
     }
   }
 
@@ -158,7 +175,43 @@ public class MapRenderer {
   }
 
   public void setEntities(Engine entities) {
+    if (store != null) setStore(null);
     this.entities = entities;
+    tileCaches.clear();
+  }
+
+  /**
+   * Moves entities with an {@link EntityStore} and its {@link MovementSystem} instead of each
+   * {@link Entity#update(float)} when enabled.
+   *
+   * @see com.riiablo.Cvars.Client.Engine#EntityStore
+   */
+  public void setEntityStoreEnabled(boolean enabled) {
+    if (enabled == (store != null)) return;
+    if (enabled) {
+      EntityStore store = new EntityStore();
+      store.addSystem(new MovementSystem());
+      this.store = store;
+    } else {
+      setStore(null);
+    }
+  }
+
+  public boolean isEntityStoreEnabled() {
+    return store != null;
+  }
+
+  private void setStore(EntityStore store) {
+    if (map != null) {
+      for (Map.Zone zone : new Array.ArrayIterator<>(map.zones)) {
+        for (Entity entity : zone.entities) entity.setStore(store);
+      }
+    }
+    if (entities != null) {
+      for (Entity entity : entities) entity.setStore(store);
+    }
+
+    this.store = store;
   }
 
   public Array<Entity> getNearbyEntities() {
@@ -261,17 +314,13 @@ public class MapRenderer {
       Gdx.app.debug(TAG, "viewBuffer[" + len + "]=" + Arrays.toString(viewBuffer));
     }
 
+    viewBufferSize = 0;
     cache = new Array[viewBufferLen][][];
     for (int i = 0; i < viewBufferLen; i++) {
       int viewBufferRun = viewBuffer[i];
       cache[i] = new Array[viewBufferRun][];
-      for (int j = 0; j < viewBufferRun; j++) {
-        cache[i][j] = new Array[] {
-            new Array<Entity>(Tile.NUM_SUBTILES), // TODO: Really {@code (Tile.SUBTILE_SIZE - 1) * (Tile.SUBTILE_SIZE - 1)}
-            new Array<Entity>(1), // better size TBD
-            new Array<Entity>(Tile.SUBTILE_SIZE + Tile.SUBTILE_SIZE - 1), // only upper walls
-        };
-      }
+      Arrays.fill(cache[i], EMPTY_CACHE);
+      viewBufferSize += viewBufferRun;
     }
   }
 
@@ -377,14 +426,18 @@ public class MapRenderer {
   }
 
   private void updateEntities(float delta) {
+    final EntityStore store = this.store;
+    if (store != null) store.update(delta);
     for (Map.Zone zone : new Array.ArrayIterator<>(map.zones)) {
       for (Entity entity : zone.entities) {
+        if (store != null) entity.setStore(store);
         entity.update(delta);
         entity.act(delta);
       }
     }
     if (entities != null) {
       for (Entity entity : entities) {
+        if (store != null) entity.setStore(store);
         entity.update(delta);
         entity.act(delta);
       }
@@ -404,16 +457,14 @@ public class MapRenderer {
   }
 
   /**
-   * TODO: This is still a fairly expensive calculation because it needs to read all entities
-   *       viewbuffer size times -- this can be sped up using some kind of cache within entities
-   *       themselves (so each time position changes, update viewbuffer cache position) or by
-   *       storing the entity at its position in array within the zone (similar to how the collision
-   *       map works -- this may very well be how the actual game works, but some spaces might allow
-   *       more than 1 entity, e.g., player + item, or monsters that don't have collision -- I'll
-   *       look into this more when I add entity collision detection.
+   * Points each view buffer cell at the cache of the tile it's showing. Tile caches persist across
+   * frames and are only re-bucketed and sorted when the {@link com.riiablo.entity.SpatialHash}
+   * version of their tile changes, i.e., when an entity entered, left or moved within it, or changed
+   * its mode, so the cost scales with movement instead of entities times visible tiles.
    */
   void buildCaches() {
     int x, y;
+    frame++;
     int startX2 = startX;
     int startY2 = startY;
     for (y = 0; y < viewBuffer.length; y++) {
@@ -424,7 +475,7 @@ public class MapRenderer {
       int size = viewBuffer[y];
       for (x = 0; x < size; x++) {
         Map.Zone zone = map.getZone(stx, sty);
-        if (zone != null) buildCache(cache[y][x], zone, stx, sty);
+        cache[y][x] = zone != null ? getCache(tx, ty, stx, sty) : EMPTY_CACHE;
         tx++;
         stx += Tile.SUBTILE_SIZE;
       }
@@ -437,6 +488,8 @@ public class MapRenderer {
       }
     }
 
+    if (tileCaches.size > viewBufferSize << 1) evictCaches();
+
     nearbyEntities.size = 0;
     for (y = 0; y < viewBuffer.length; y++) {
       int size = viewBuffer[y];
@@ -448,29 +501,51 @@ public class MapRenderer {
     }
   }
 
-  void buildCache(Array<Entity>[] cache, Map.Zone zone, int stx, int sty) {
+  Array<Entity>[] getCache(int tx, int ty, int stx, int sty) {
+    final int key = (ty << 16) | (tx & 0xFFFF);
+    TileCache tileCache = tileCaches.get(key);
+    if (tileCache == null) tileCaches.put(key, tileCache = new TileCache());
+    tileCache.frame = frame;
+
+    final int mapVersion = map.entities.getVersion(stx, sty);
+    final int engineVersion = entities != null ? entities.getVersion(stx, sty) : 0;
+    if (tileCache.mapVersion != mapVersion || tileCache.engineVersion != engineVersion) {
+      tileCache.mapVersion = mapVersion;
+      tileCache.engineVersion = engineVersion;
+      buildCache(tileCache.cache, stx, sty);
+    }
+
+    return tileCache.cache;
+  }
+
+  private void evictCaches() {
+    for (Iterator<TileCache> it = tileCaches.values().iterator(); it.hasNext();) {
+      if (it.next().frame != frame) it.remove();
+    }
+  }
+
+  void buildCache(Array<Entity>[] cache, int stx, int sty) {
     cache[0].size = cache[1].size = cache[2].size = 0;
     int orderFlag;
-    for (Entity entity : zone.entities) {
+    Array<Entity> tileEntities = this.tileEntities;
+    tileEntities.size = 0;
+    map.getEntities(stx, sty, Tile.SUBTILE_SIZE, Tile.SUBTILE_SIZE, tileEntities);
+    for (Entity entity : tileEntities) {
       Vector2 pos = entity.position();
-      if ((stx <= pos.x && pos.x < stx + Tile.SUBTILE_SIZE)
-       && (sty <= pos.y && pos.y < sty + Tile.SUBTILE_SIZE)) {
-        if ((entity instanceof Object)) {
-          orderFlag = ((Object) entity).getOrderFlag();
-        } else {
-          orderFlag = stx == pos.x || sty == pos.y ? 2 : 0;
-        }
-
-        cache[orderFlag].add(entity);
+      if ((entity instanceof Object)) {
+        orderFlag = ((Object) entity).getOrderFlag();
+      } else {
+        orderFlag = stx == pos.x || sty == pos.y ? 2 : 0;
       }
+
+      cache[orderFlag].add(entity);
     }
     if (entities != null) {
-      for (Entity entity : entities) {
+      tileEntities.size = 0;
+      entities.getEntities(stx, sty, Tile.SUBTILE_SIZE, Tile.SUBTILE_SIZE, tileEntities);
+      for (Entity entity : tileEntities) {
         Vector2 pos = entity.position();
-        if ((stx <= pos.x && pos.x < stx + Tile.SUBTILE_SIZE)
-         && (sty <= pos.y && pos.y < sty + Tile.SUBTILE_SIZE)) {
-          cache[stx == pos.x || sty == pos.y ? 2 : 0].add(entity);
-        }
+        cache[stx == pos.x || sty == pos.y ? 2 : 0].add(entity);
       }
     }
     cache[0].sort(SUBTILE_ORDER);
@@ -478,6 +553,18 @@ public class MapRenderer {
     cache[2].sort(SUBTILE_ORDER);
   }
 
+  static final class TileCache {
+    @SuppressWarnings("unchecked")
+    final Array<Entity>[] cache = new Array[] {
+        new Array<Entity>(Tile.NUM_SUBTILES), // TODO: Really {@code (Tile.SUBTILE_SIZE - 1) * (Tile.SUBTILE_SIZE - 1)}
+        new Array<Entity>(1), // better size TBD
+        new Array<Entity>(Tile.SUBTILE_SIZE + Tile.SUBTILE_SIZE - 1), // only upper walls
+    };
+
+    int mapVersion = -1, engineVersion = -1;
+    int frame;
+  }
+
   void drawBackground() {
     int x, y;
     int startX2 = startX;
@@ -0,0 +1,288 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.riiablo.entity.Entity;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds paths for entities on worker threads so that a group of monsters re-pathing together
+ * doesn't stall the frame. Searches run against a read-only snapshot of the zone flags, at most
+ * {@link #getBudget() budget} searches are dispatched per tick, and finished paths are handed to
+ * their entities by {@link #update()} on the next tick. Repeated requests for the same target are
+ * dropped, a request for a new target replaces one which hasn't been dispatched yet, and requests
+ * are discarded if their entity was given a path directly in the meantime, or if a newer request
+ * was made for it.
+ * <p>
+ * The workers share the snapshot, each searching with its own state under the read lock of the
+ * snapshot's {@link HierarchicalPathFinder}. The first long search builds the abstract graph under
+ * the write lock, so workers must not hold the read lock when they call it. Changes to a preset
+ * cell are copied into the snapshot under the write lock, so the snapshot is only replaced when the
+ * zones themselves change.
+ */
+public class PathService implements Disposable {
+  private static final String TAG = "PathService";
+  private static final boolean DEBUG         = true;
+  private static final boolean DEBUG_METRICS = DEBUG && !true;
+
+  public static final int DEFAULT_BUDGET = 8;
+
+  static final int NUM_THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+
+  final Map map;
+  final ExecutorService executor;
+  final Array<Request> queued = new Array<>();
+  final ObjectMap<Entity, Request> pending = new ObjectMap<>();
+  final ConcurrentLinkedQueue<Request> completed = new ConcurrentLinkedQueue<>();
+
+  Map snapshot;
+  int budget = DEFAULT_BUDGET;
+  int inFlight;
+
+  int  delivered;
+  int  deduplicated;
+  long totalLatency;
+  long maxLatency;
+
+  PathService(Map map) {
+    this.map = map;
+    executor = Executors.newFixedThreadPool(NUM_THREADS, new ThreadFactory() {
+      int id;
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, TAG + "-" + id++);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Queues a search from the entity's current position to {@code dst}. The entity starts following
+   * the path once it's found, unless it has been given another path in the meantime.
+   */
+  public void request(Entity entity, Vector2 dst, int maxSteps) {
+    final int dstX = Map.round(dst.x);
+    final int dstY = Map.round(dst.y);
+    Request request = pending.get(entity);
+    if (request != null) {
+      if (request.version == entity.pathVersion()
+          && request.dstX == dstX && request.dstY == dstY && request.maxSteps == maxSteps) {
+        deduplicated++;
+        return;
+      }
+
+      if (!request.submitted) {
+        request.set(entity, dstX, dstY, maxSteps);
+        return;
+      }
+    }
+
+    request = new Request();
+    request.set(entity, dstX, dstY, maxSteps);
+    request.requested = TimeUtils.nanoTime();
+    pending.put(entity, request);
+    queued.add(request);
+  }
+
+  /**
+   * Hands out the paths completed since the last call and dispatches up to {@link #getBudget()}
+   * queued requests. Must be called once per tick on the thread which owns the entities.
+   */
+  public void update() {
+    for (Request request; (request = completed.poll()) != null;) {
+      inFlight--;
+      final boolean latest = pending.get(request.entity) == request;
+      if (latest) pending.remove(request.entity);
+      deliver(request, latest);
+    }
+
+    if (queued.size == 0) return;
+    Map snapshot = snapshot();
+    final int count = Math.min(budget, queued.size);
+    for (int i = 0; i < count; i++) {
+      final Request request = queued.get(i);
+      final Entity entity = request.entity;
+      if (entity.pathVersion() != request.version) {
+        if (pending.get(entity) == request) pending.remove(entity);
+        continue;
+      }
+
+      final Vector2 src = entity.position();
+      request.srcX = Map.round(src.x);
+      request.srcY = Map.round(src.y);
+      request.snapshot = snapshot;
+      request.submitted = true;
+      executor.execute(request);
+      inFlight++;
+    }
+
+    queued.removeRange(0, count - 1);
+  }
+
+  private void deliver(Request request, boolean latest) {
+    final Entity entity = request.entity;
+    final long latency = TimeUtils.nanoTime() - request.requested;
+    delivered++;
+    totalLatency += latency;
+    maxLatency = Math.max(maxLatency, latency);
+    if (DEBUG_METRICS) Gdx.app.debug(TAG, String.format("latency=%.2fms, queued=%d, inFlight=%d",
+        latency / 1e6f, queued.size, inFlight));
+    if (!latest || entity.pathVersion() != request.version) return;
+    if (request.success) {
+      entity.setPath(request.path);
+    }
+  }
+
+  Map snapshot() {
+    if (snapshot == null) snapshot = map.snapshot();
+    return snapshot;
+  }
+
+  /**
+   * Discards the snapshot of the zone flags so that requests dispatched from now on see the current
+   * ones.
+   */
+  public void invalidate() {
+    snapshot = null;
+  }
+
+  /**
+   * Copies the flags of the given preset cell of {@code zone} into the snapshot and updates the
+   * pathing of the snapshot around it.
+   */
+  public void invalidate(Map.Zone zone, int gridX, int gridY) {
+    final Map snapshot = this.snapshot;
+    if (snapshot == null) return;
+    final int index = map.zones.indexOf(zone, true);
+    if (index == -1) return;
+    final Map.Zone copy = snapshot.zones.get(index);
+    final int width  = zone.gridSizeX * DT1.Tile.SUBTILE_SIZE;
+    final int height = zone.gridSizeY * DT1.Tile.SUBTILE_SIZE;
+    final int x0 = gridX * width,  x1 = Math.min(x0 + width,  zone.width);
+    final int y0 = gridY * height, y1 = Math.min(y0 + height, zone.height);
+    final HierarchicalPathFinder pathFinder = snapshot.pathFinder;
+    pathFinder.lock.writeLock().lock();
+    try {
+      if (y1 > y0) {
+        for (int x = x0; x < x1; x++) System.arraycopy(zone.flags[x], y0, copy.flags[x], y0, y1 - y0);
+      }
+
+      copy.bits.update(copy, zone.x + x0, zone.y + y0, width, height);
+      pathFinder.invalidate(copy, gridX, gridY);
+    } finally {
+      pathFinder.lock.writeLock().unlock();
+    }
+  }
+
+  public int getBudget() {
+    return budget;
+  }
+
+  public void setBudget(int budget) {
+    this.budget = Math.max(budget, 1);
+  }
+
+  /**
+   * @return number of requests waiting to be dispatched or still being searched
+   */
+  public int getQueueDepth() {
+    return queued.size + inFlight;
+  }
+
+  public int getDelivered() {
+    return delivered;
+  }
+
+  public int getDeduplicated() {
+    return deduplicated;
+  }
+
+  /**
+   * @return average time in milliseconds between a request and its delivery
+   */
+  public float getAverageLatency() {
+    return delivered == 0 ? 0 : totalLatency / 1e6f / delivered;
+  }
+
+  /**
+   * @return longest time in milliseconds between a request and its delivery
+   */
+  public float getMaxLatency() {
+    return maxLatency / 1e6f;
+  }
+
+  public void resetStats() {
+    delivered = 0;
+    deduplicated = 0;
+    totalLatency = 0;
+    maxLatency = 0;
+  }
+
+  @Override
+  public void dispose() {
+    executor.shutdownNow();
+    queued.clear();
+    pending.clear();
+    completed.clear();
+  }
+
+  final class Request implements Runnable {
+    Entity entity;
+    int    version;
+    int    srcX, srcY;
+    int    dstX, dstY;
+    int    maxSteps;
+    long   requested;
+    Map    snapshot;
+    boolean submitted;
+
+    final MapGraph.MapGraphPath path = new MapGraph.MapGraphPath();
+    boolean success;
+
+    void set(Entity entity, int dstX, int dstY, int maxSteps) {
+      this.entity   = entity;
+      this.version  = entity.pathVersion();
+      this.dstX     = dstX;
+      this.dstY     = dstY;
+      this.maxSteps = maxSteps;
+    }
+
+    @Override
+    public void run() {
+      try {
+        // search locks on its own, it may need the write lock to build the graph first
+        success = snapshot.pathFinder.search(srcX, srcY, dstX, dstY, path);
+        if (success && maxSteps != -1 && path.getCount() > maxSteps) {
+          path.clear();
+          success = false;
+        }
+
+        if (success) {
+          final ReentrantReadWriteLock lock = snapshot.pathFinder.lock;
+          lock.readLock().lock();
+          try {
+            snapshot.smoothPath(path);
+          } finally {
+            lock.readLock().unlock();
+          }
+        }
+      } catch (Throwable t) {
+        success = false;
+        Gdx.app.error(TAG, t.getMessage(), t);
+      } finally {
+        completed.add(this);
+      }
+    }
+  }
+}
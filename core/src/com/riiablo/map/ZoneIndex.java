@@ -0,0 +1,118 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Uniform grid over the bounds of the zones of a {@link Map}. Each cell lists the zones overlapping
+ * it in the order they were added to the map, so a point query only tests the few zones sharing
+ * its cell and still returns the same zone a linear scan would. Immutable once built, the map
+ * rebuilds it whenever a zone is added or moved.
+ */
+class ZoneIndex {
+  private static final String TAG = "ZoneIndex";
+
+  /** cells are {@code 1 << CELL_SHIFT} sub-tiles along each axis */
+  static final int CELL_SHIFT = 6;
+
+  final Map.Zone[] zones;
+  final int   x, y;
+  final int   cellsX, cellsY;
+  final int[] offsets; // cell -> start of its run in indexes, cellsX * cellsY + 1 entries
+  final int[] indexes; // zone indexes, ascending within each cell
+
+  ZoneIndex(Array<Map.Zone> zones) {
+    this.zones = zones.toArray(Map.Zone.class);
+    if (this.zones.length == 0) {
+      x = y = 0;
+      cellsX = cellsY = 0;
+      offsets = new int[1];
+      indexes = new int[0];
+      return;
+    }
+
+    int xMin = Integer.MAX_VALUE, yMin = Integer.MAX_VALUE;
+    int xMax = Integer.MIN_VALUE, yMax = Integer.MIN_VALUE;
+    for (Map.Zone zone : this.zones) {
+      xMin = Math.min(xMin, zone.x);
+      yMin = Math.min(yMin, zone.y);
+      xMax = Math.max(xMax, zone.x + zone.width);
+      yMax = Math.max(yMax, zone.y + zone.height);
+    }
+
+    x = xMin;
+    y = yMin;
+    cellsX = ((xMax - xMin - 1) >> CELL_SHIFT) + 1;
+    cellsY = ((yMax - yMin - 1) >> CELL_SHIFT) + 1;
+
+    final int numCells = cellsX * cellsY;
+    offsets = new int[numCells + 1];
+    for (Map.Zone zone : this.zones) {
+      if (zone.width <= 0 || zone.height <= 0) continue;
+      int x0 = (zone.x - x) >> CELL_SHIFT, x1 = (zone.x + zone.width  - 1 - x) >> CELL_SHIFT;
+      int y0 = (zone.y - y) >> CELL_SHIFT, y1 = (zone.y + zone.height - 1 - y) >> CELL_SHIFT;
+      for (int cy = y0; cy <= y1; cy++) {
+        for (int cx = x0; cx <= x1; cx++) offsets[cy * cellsX + cx + 1]++;
+      }
+    }
+
+    for (int i = 0; i < numCells; i++) offsets[i + 1] += offsets[i];
+
+    indexes = new int[offsets[numCells]];
+    int[] next = new int[numCells];
+    System.arraycopy(offsets, 0, next, 0, numCells);
+    for (int i = 0; i < this.zones.length; i++) {
+      Map.Zone zone = this.zones[i];
+      if (zone.width <= 0 || zone.height <= 0) continue;
+      int x0 = (zone.x - x) >> CELL_SHIFT, x1 = (zone.x + zone.width  - 1 - x) >> CELL_SHIFT;
+      int y0 = (zone.y - y) >> CELL_SHIFT, y1 = (zone.y + zone.height - 1 - y) >> CELL_SHIFT;
+      for (int cy = y0; cy <= y1; cy++) {
+        for (int cx = x0; cx <= x1; cx++) indexes[next[cy * cellsX + cx]++] = i;
+      }
+    }
+  }
+
+  /**
+   * Returns the first zone containing the given sub-tile, or {@code null} if there isn't one.
+   */
+  Map.Zone get(int x, int y) {
+    final int cx = (x - this.x) >> CELL_SHIFT;
+    final int cy = (y - this.y) >> CELL_SHIFT;
+    if (cx < 0 || cx >= cellsX || cy < 0 || cy >= cellsY) return null;
+    final int cell = cy * cellsX + cx;
+    for (int i = offsets[cell], end = offsets[cell + 1]; i < end; i++) {
+      Map.Zone zone = zones[indexes[i]];
+      if (zone.contains(x, y)) return zone;
+    }
+
+    return null;
+  }
+
+  /**
+   * Adds every zone overlapping the given rectangle of sub-tiles to {@code dst}, each at most once.
+   *
+   * @return {@code dst}
+   */
+  Array<Map.Zone> get(int x, int y, int width, int height, Array<Map.Zone> dst) {
+    if (width <= 0 || height <= 0) return dst;
+    final int x0 = Math.max((x - this.x) >> CELL_SHIFT, 0);
+    final int y0 = Math.max((y - this.y) >> CELL_SHIFT, 0);
+    final int x1 = Math.min((x + width  - 1 - this.x) >> CELL_SHIFT, cellsX - 1);
+    final int y1 = Math.min((y + height - 1 - this.y) >> CELL_SHIFT, cellsY - 1);
+    for (int cy = y0; cy <= y1; cy++) {
+      for (int cx = x0; cx <= x1; cx++) {
+        final int cell = cy * cellsX + cx;
+        for (int i = offsets[cell], end = offsets[cell + 1]; i < end; i++) {
+          Map.Zone zone = zones[indexes[i]];
+          if (overlaps(zone, x, y, width, height) && !dst.contains(zone, true)) dst.add(zone);
+        }
+      }
+    }
+
+    return dst;
+  }
+
+  static boolean overlaps(Map.Zone zone, int x, int y, int width, int height) {
+    return zone.x < x + width  && x < zone.x + zone.width
+        && zone.y < y + height && y < zone.y + zone.height;
+  }
+}
@@ -11,12 +11,15 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import java.util.Objects;
 
 public class MPQ {
@@ -28,11 +31,26 @@ public class MPQ {
   final HashTable  hashTable;
   final BlockTable blockTable;
 
-  private MPQ(FileHandle file, Header header, HashTable hashTable, BlockTable blockTable) {
+  /**
+   * Read-only mapping of the entire archive, or {@code null} if the archive could not be mapped,
+   * in which case reads fall back to positional reads on {@link #channel}. Neither is ever
+   * repositioned, so both can be shared by concurrent readers.
+   */
+  final ByteBuffer  map;
+  final FileChannel channel;
+
+  /**
+   * Cache of decompressed files shared with other archives, or {@code null} to always decompress.
+   */
+  MPQCache cache;
+
+  private MPQ(FileHandle file, Header header, HashTable hashTable, BlockTable blockTable, ByteBuffer map, FileChannel channel) {
     this.file       = file;
     this.header     = header;
     this.hashTable  = hashTable;
     this.blockTable = blockTable;
+    this.map        = map;
+    this.channel    = channel;
   }
 
   @Override
@@ -44,66 +62,137 @@ public class MPQ {
     return file;
   }
 
+  public void setCache(MPQCache cache) {
+    this.cache = cache;
+  }
+
+  public MPQCache getCache() {
+    return cache;
+  }
+
   public boolean contains(String fileName) {
-    fileName = fileName.replaceAll("/", "\\\\");
     return hashTable.contains(fileName);
   }
 
+  public long length(MPQFileHandle file) {
+    if (file.blockIndex < 0) return length(file.fileName);
+    return blockTable.get(file.blockIndex).FSize;
+  }
+
   public long length(String fileName) {
-    fileName = fileName.replaceAll("/", "\\\\");
+    BlockTable.Block block = blockTable.get(getBlockIndex(fileName));
+    assert block != null;
+    return block.FSize;
+  }
+
+  int getBlockIndex(String fileName) {
     HashTable.Entry entry = hashTable.getEntry(fileName);
+    if (DEBUG) Gdx.app.debug(TAG, "entry = " + Objects.toString(entry));
     if (entry == null) {
       throw new GdxRuntimeException("File not found: " + fileName);
     }
 
-    BlockTable.Block block = blockTable.get(entry.blockIndex);
-    assert block != null;
-    return block.FSize;
+    return entry.blockIndex;
   }
 
   public InputStream read(MPQFileHandle file) {
-    return read(file.fileName);
+    if (file.blockIndex < 0) return read(file.fileName);
+    return read(file.fileName, file.blockIndex);
   }
 
   public InputStream read(String fileName) {
-    fileName = fileName.replaceAll("/", "\\\\");
-    Gdx.app.log(TAG, "Reading " + fileName + "...");
-    HashTable.Entry entry = hashTable.getEntry(fileName);
-    if (DEBUG) Gdx.app.debug(TAG, "entry = " + Objects.toString(entry));
-    if (entry == null) {
-      throw new GdxRuntimeException("File not found: " + fileName);
-    }
+    return read(fileName, getBlockIndex(fileName));
+  }
 
-    final BlockTable.Block block = blockTable.get(entry.blockIndex);
+  InputStream read(String fileName, int blockIndex) {
+    Gdx.app.log(TAG, "Reading " + fileName + "...");
+    final BlockTable.Block block = blockTable.get(blockIndex);
     if (DEBUG) Gdx.app.debug(TAG, "block = " + Objects.toString(block));
     assert block != null;
 
+    final MPQCache cache = this.cache;
+    if (cache != null && block.FSize <= cache.maxEntrySize()) {
+      return new ByteArrayInputStream(readBytes(cache, fileName, blockIndex, block));
+    }
+
     return new MPQInputStream(this, fileName, block);
   }
 
   public byte[] readBytes(MPQFileHandle file) {
-    return readBytes(file.fileName);
+    if (file.blockIndex < 0) return readBytes(file.fileName);
+    return readBytes(file.fileName, file.blockIndex);
   }
 
   public byte[] readBytes(String fileName) {
-    fileName = fileName.replaceAll("/", "\\\\");
-    Gdx.app.log(TAG, "Reading " + fileName + "...");
-    HashTable.Entry entry = hashTable.getEntry(fileName);
-    if (DEBUG) Gdx.app.debug(TAG, "entry = " + Objects.toString(entry));
-    if (entry == null) {
-      throw new GdxRuntimeException("File not found: " + fileName);
-    }
+    return readBytes(fileName, getBlockIndex(fileName));
+  }
 
-    final BlockTable.Block block = blockTable.get(entry.blockIndex);
+  byte[] readBytes(String fileName, int blockIndex) {
+    Gdx.app.log(TAG, "Reading " + fileName + "...");
+    final BlockTable.Block block = blockTable.get(blockIndex);
     if (DEBUG) Gdx.app.debug(TAG, "block = " + Objects.toString(block));
     assert block != null;
 
+    final MPQCache cache = this.cache;
+    if (cache != null && block.FSize <= cache.maxEntrySize()) {
+      // cached arrays are shared, hand out a copy in case the caller modifies it
+      byte[] bytes = readBytes(cache, fileName, blockIndex, block);
+      return Arrays.copyOf(bytes, bytes.length);
+    }
+
     return MPQInputStream.readBytes(this, fileName, block);
   }
 
+  private byte[] readBytes(MPQCache cache, String fileName, int blockIndex, BlockTable.Block block) {
+    byte[] bytes = cache.get(this, blockIndex);
+    if (bytes == null) {
+      bytes = MPQInputStream.readBytes(this, fileName, block);
+      cache.put(this, blockIndex, bytes);
+    }
+
+    return bytes;
+  }
+
+  /**
+   * Returns a little-endian view of {@code length} bytes of the archive starting at
+   * {@code position}. The view shares the archive mapping when available, otherwise the bytes are
+   * read into a new heap buffer.
+   */
+  ByteBuffer slice(long position, int length) throws IOException {
+    if (map != null) {
+      ByteBuffer slice = map.duplicate();
+      slice.limit((int) position + length);
+      slice.position((int) position);
+      return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    ByteBuffer slice = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    read(position, slice);
+    slice.flip();
+    return slice;
+  }
+
+  /**
+   * Fills the remaining bytes of {@code dst} with the bytes of the archive starting at
+   * {@code position}.
+   */
+  void read(long position, ByteBuffer dst) throws IOException {
+    if (map != null) {
+      dst.put(slice(position, dst.remaining()));
+      return;
+    }
+
+    while (dst.hasRemaining()) {
+      int read = channel.read(dst, position);
+      if (read < 0) throw new EOFException("Unexpected end of archive at 0x" + Long.toHexString(position));
+      position += read;
+    }
+  }
+
   public static MPQ loadFromFile(FileHandle file) {
     Gdx.app.log(TAG, "Loading " + file.name() + "...");
     RandomAccessFile raf = null;
+    boolean keepOpen = false;
     try {
       raf = new RandomAccessFile(file.file(), "r");
       FileChannel fc = raf.getChannel();
@@ -128,11 +217,23 @@ public class MPQ {
 
       raf.seek(header.blockTableOffset);
       BlockTable blockTable = new BlockTable(header, fc);
-      return new MPQ(file, header, hashTable, blockTable);
+
+      ByteBuffer map = null;
+      if (fc.size() <= Integer.MAX_VALUE) {
+        try {
+          map = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+          Gdx.app.error(TAG, "Unable to map " + file.name() + ", falling back to positional reads", e);
+        }
+      }
+
+      // mapping remains valid after the channel is closed
+      keepOpen = map == null;
+      return new MPQ(file, header, hashTable, blockTable, map, keepOpen ? fc : null);
     } catch (Exception e) {
       throw new GdxRuntimeException("Couldn't load file: " + file, e);
     } finally {
-      StreamUtils.closeQuietly(raf);
+      if (!keepOpen) StreamUtils.closeQuietly(raf);
     }
   }
 
@@ -233,16 +334,16 @@ public class MPQ {
       return bestId;
     }
 
-    Entry getEntry(String file) {
+    Entry getEntry(CharSequence file) {
       int index = getIndex(File.key(file), File.offset(file), Entry.DEFAULT_LOCALE);
       return index != -1 ? entries[index] : null;
     }
 
-    public boolean contains(String file) {
+    public boolean contains(CharSequence file) {
       return getIndex(File.key(file), File.offset(file), Entry.DEFAULT_LOCALE) != -1;
     }
 
-    public int getBlockIndex(String file) {
+    public int getBlockIndex(CharSequence file) {
       Entry entry = getEntry(file);
       if (entry == null) {
         throw new GdxRuntimeException("File not found: " + file);
@@ -254,14 +355,14 @@ public class MPQ {
     }
 
     static class File {
-      static long key(String file) {
-        int key1 = Decryptor.HASH_TABLE_KEY1.hash(file);
-        int key2 = Decryptor.HASH_TABLE_KEY2.hash(file);
+      static long key(CharSequence file) {
+        int key1 = Decryptor.HASH_TABLE_KEY1.hashFileName(file);
+        int key2 = Decryptor.HASH_TABLE_KEY2.hashFileName(file);
         return ((long) key2 << Integer.SIZE) | (key1 & 0xFFFFFFFFL);
       }
 
-      static int offset(String file) {
-        return Decryptor.HASH_TABLE_OFFSET.hash(file);
+      static int offset(CharSequence file) {
+        return Decryptor.HASH_TABLE_OFFSET.hashFileName(file);
       }
     }
     static class Entry {
@@ -0,0 +1,146 @@
+package com.riiablo.mpq;
+
+import com.google.common.base.Preconditions;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of decompressed MPQ files keyed by archive and block index. Cached arrays
+ * are shared, so callers must never modify an array returned by {@link #get}.
+ */
+public class MPQCache {
+  private static final String TAG = "MPQCache";
+
+  public static final long DEFAULT_BUDGET = 32L << 20;
+
+  private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+  private long budget;
+  private long size;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public MPQCache() {
+    this(DEFAULT_BUDGET);
+  }
+
+  public MPQCache(long budget) {
+    setBudget(budget);
+  }
+
+  /**
+   * Sets the maximum number of bytes retained by this cache, evicting least recently used entries
+   * if the cache is currently larger.
+   */
+  public synchronized void setBudget(long budget) {
+    Preconditions.checkArgument(budget >= 0, "budget(" + budget + ") < 0");
+    this.budget = budget;
+    trim();
+  }
+
+  public synchronized long budget() {
+    return budget;
+  }
+
+  /**
+   * Files larger than this are never cached, so that a single large file can't flush the rest of
+   * the cache.
+   */
+  public synchronized long maxEntrySize() {
+    return budget >> 2;
+  }
+
+  public synchronized byte[] get(MPQ mpq, int blockIndex) {
+    byte[] bytes = entries.get(new Key(mpq, blockIndex));
+    if (bytes != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+
+    return bytes;
+  }
+
+  public synchronized void put(MPQ mpq, int blockIndex, byte[] bytes) {
+    if (bytes.length > maxEntrySize()) return;
+    byte[] previous = entries.put(new Key(mpq, blockIndex), bytes);
+    if (previous != null) size -= previous.length;
+    size += bytes.length;
+    trim();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+  private void trim() {
+    Iterator<Map.Entry<Key, byte[]>> it = entries.entrySet().iterator();
+    while (size > budget && it.hasNext()) {
+      size -= it.next().getValue().length;
+      it.remove();
+      evictions++;
+    }
+  }
+
+  public synchronized long size() {
+    return size;
+  }
+
+  public synchronized int count() {
+    return entries.size();
+  }
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return new ToStringBuilder(this)
+        .append("size", size)
+        .append("budget", budget)
+        .append("count", entries.size())
+        .append("hits", hits)
+        .append("misses", misses)
+        .append("evictions", evictions)
+        .toString();
+  }
+
+  static final class Key {
+    final MPQ mpq;
+    final int blockIndex;
+
+    Key(MPQ mpq, int blockIndex) {
+      this.mpq = mpq;
+      this.blockIndex = blockIndex;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(mpq) + blockIndex;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof Key)) return false;
+      Key other = (Key) obj;
+      return mpq == other.mpq && blockIndex == other.blockIndex;
+    }
+  }
+}
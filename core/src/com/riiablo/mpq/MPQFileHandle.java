@@ -13,9 +13,20 @@ public class MPQFileHandle extends FileHandle {
   public final MPQ mpq;
   public final String fileName;
 
+  /**
+   * Block index of {@link #fileName} within {@link #mpq}, or {@code -1} if it has not been
+   * resolved yet.
+   */
+  public final int blockIndex;
+
   public MPQFileHandle(MPQ mpq, String fileName) {
+    this(mpq, fileName, -1);
+  }
+
+  public MPQFileHandle(MPQ mpq, String fileName, int blockIndex) {
     this.mpq = mpq;
     this.fileName = fileName;
+    this.blockIndex = blockIndex;
   }
 
   @Override
@@ -30,7 +41,7 @@ public class MPQFileHandle extends FileHandle {
 
   @Override
   public boolean exists() {
-    return mpq.contains(fileName);
+    return blockIndex >= 0 || mpq.contains(fileName);
   }
 
   @Override
@@ -40,7 +51,7 @@ public class MPQFileHandle extends FileHandle {
 
   @Override
   public long length() {
-    return mpq.length(fileName);
+    return mpq.length(this);
   }
 
   @Override
@@ -23,6 +23,8 @@ public class MPQFileHandleResolver implements FileHandleResolver {
   public final MPQ d2speech;
   public final MPQ d2video;
 
+  public final MPQCache cache = new MPQCache();
+
   public MPQFileHandleResolver() {
     this(Riiablo.home);
   }
@@ -43,34 +45,52 @@ public class MPQFileHandleResolver implements FileHandleResolver {
 
   private final CopyOnWriteArrayList<MPQ> mpqs = new CopyOnWriteArrayList<>();
 
-  public MPQ add(MPQ mpq) {
+  /** immutable, so resolving only reads this field, adding archives and rebuilding lock */
+  private volatile MPQIndex index;
+
+  public synchronized MPQ add(MPQ mpq) {
+    mpq.setCache(cache);
     mpqs.add(mpq);
+    index = null;
     return mpq;
   }
 
+  /**
+   * Returns the merged index of all added archives, building it if an archive was added since it
+   * was last built.
+   */
+  public MPQIndex index() {
+    MPQIndex index = this.index;
+    if (index != null) return index;
+    synchronized (this) {
+      index = this.index;
+      if (index == null) {
+        this.index = index = new MPQIndex(mpqs);
+        if (DEBUG) Gdx.app.debug(TAG, "Indexed " + index.size() + " files in " + mpqs.size() + " archives");
+      }
+
+      return index;
+    }
+  }
+
   public MPQ add(FileHandle file) {
     return add(MPQ.loadFromFile(file));
   }
 
   public boolean contains(String fileName) {
-    for (MPQ mpq : mpqs) {
-      if (mpq.contains(fileName)) {
-        return true;
-      }
-    }
-
-    return false;
+    return index().contains(fileName);
   }
 
   @Override
   public FileHandle resolve(String fileName) {
     if (DEBUG) Gdx.app.debug(TAG, "Resolving " + fileName);
     if (fileName == null) return null;
-    for (MPQ mpq : mpqs) {
-      if (mpq.contains(fileName)) {
-        if (DEBUG) Gdx.app.debug(TAG, fileName + " found in " + mpq);
-        return new MPQFileHandle(mpq, fileName);
-      }
+    MPQIndex index = index();
+    int slot = index.find(fileName);
+    if (slot != -1) {
+      MPQ mpq = index.archive(slot);
+      if (DEBUG) Gdx.app.debug(TAG, fileName + " found in " + mpq);
+      return new MPQFileHandle(mpq, fileName, index.blockIndex(slot));
     }
 
     //Gdx.app.error(TAG, "Could not resolve " + fileName);
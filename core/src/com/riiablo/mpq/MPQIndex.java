@@ -0,0 +1,131 @@
+package com.riiablo.mpq;
+
+import com.badlogic.gdx.math.MathUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Merged hash index over the hash tables of several archives. Each file key maps to the archive
+ * which would win a lookup in priority order and the block index of the file within that archive,
+ * so resolving a file is a single probe regardless of how many archives are mounted. Immutable once
+ * built.
+ */
+public class MPQIndex {
+  private static final String TAG = "MPQIndex";
+
+  private static final byte EMPTY = -1;
+
+  final MPQ[]  mpqs;
+  final long[] keys;
+  final int[]  blocks;
+  final byte[] archives;
+  final int    mask;
+
+  /**
+   * @param mpqs archives in priority order, files in earlier archives shadow later ones
+   */
+  public MPQIndex(List<MPQ> mpqs) {
+    this.mpqs = mpqs.toArray(new MPQ[mpqs.size()]);
+    if (this.mpqs.length > Byte.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many archives: " + this.mpqs.length);
+    }
+
+    int count = 0;
+    for (MPQ mpq : this.mpqs) {
+      for (MPQ.HashTable.Entry entry : mpq.hashTable.entries) {
+        if (entry.blockIndex >= 0) count++;
+      }
+    }
+
+    int capacity = MathUtils.nextPowerOfTwo(Math.max(count << 1, 16));
+    mask     = capacity - 1;
+    keys     = new long[capacity];
+    blocks   = new int[capacity];
+    archives = new byte[capacity];
+    Arrays.fill(archives, EMPTY);
+
+    short[] locales = new short[capacity];
+    for (byte archive = 0; archive < this.mpqs.length; archive++) {
+      final MPQ.HashTable.Entry[] entries = this.mpqs[archive].hashTable.entries;
+      final int start = probeStart(entries);
+      for (int i = 0, tableMask = entries.length - 1; i < entries.length; i++) {
+        final MPQ.HashTable.Entry entry = entries[(start + i) & tableMask];
+        if (entry.blockIndex < 0) continue;
+        int index = probe(entry.key);
+        if (archives[index] == EMPTY) {
+          keys[index]     = entry.key;
+          blocks[index]   = entry.blockIndex;
+          archives[index] = archive;
+          locales[index]  = entry.locale;
+        } else if (archives[index] == archive
+            && locales[index] != MPQ.HashTable.Entry.DEFAULT_LOCALE
+            && entry.locale == MPQ.HashTable.Entry.DEFAULT_LOCALE) {
+          // same preference as MPQ.HashTable#getIndex: default locale beats any other locale
+          blocks[index]  = entry.blockIndex;
+          locales[index] = entry.locale;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the slot after the first unused one of {@code entries}. Probe chains stop at unused
+   * slots, so visiting entries from there in order, wrapping around, visits the entries sharing a
+   * key in the order {@link MPQ.HashTable#getIndex} would probe them.
+   */
+  private static int probeStart(MPQ.HashTable.Entry[] entries) {
+    for (int i = 0; i < entries.length; i++) {
+      if (entries[i].blockIndex == MPQ.HashTable.Entry.UNUSED) return (i + 1) & (entries.length - 1);
+    }
+
+    return 0;
+  }
+
+  /**
+   * Returns the slot containing {@code key} or the empty slot where it would be inserted.
+   */
+  private int probe(long key) {
+    int index = (int) (key ^ (key >>> Integer.SIZE)) & mask;
+    while (archives[index] != EMPTY && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+
+    return index;
+  }
+
+  public static long key(CharSequence fileName) {
+    return MPQ.HashTable.File.key(fileName);
+  }
+
+  /**
+   * Returns the slot of the file with the given {@link #key(CharSequence) key}, or {@code -1} if
+   * no mounted archive contains it.
+   */
+  public int find(long key) {
+    int index = probe(key);
+    return archives[index] == EMPTY ? -1 : index;
+  }
+
+  public int find(CharSequence fileName) {
+    return find(key(fileName));
+  }
+
+  public boolean contains(CharSequence fileName) {
+    return find(fileName) != -1;
+  }
+
+  public MPQ archive(int slot) {
+    return mpqs[archives[slot]];
+  }
+
+  public int blockIndex(int slot) {
+    return blocks[slot];
+  }
+
+  public int size() {
+    int size = 0;
+    for (byte archive : archives) if (archive != EMPTY) size++;
+    return size;
+  }
+}
@@ -2,22 +2,19 @@ package com.riiablo.mpq;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.utils.GdxRuntimeException;
-import com.badlogic.gdx.utils.StreamUtils;
 import com.riiablo.mpq.util.Decompressor;
 import com.riiablo.mpq.util.Decryptor;
-import com.riiablo.mpq.util.Exploder;
 import com.riiablo.util.BufferUtils;
 
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.channels.FileChannel;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class MPQInputStream extends InputStream {
   private static final String TAG = "MPQInputStream";
@@ -25,7 +22,13 @@ public class MPQInputStream extends InputStream {
 
   private static final int[] ZERO_ARRAY = new int[] { 0 };
 
-  final FileChannel          fc;
+  /**
+   * Blocks at least this large are decompressed in parallel by {@link #readBytes}, smaller blocks
+   * are not worth the fork overhead.
+   */
+  static final int PARALLEL_THRESHOLD = 1 << 18;
+
+  final MPQ                  mpq;
   final MPQ.BlockTable.Block block;
   final ByteBuffer           sector;
   final ByteBuffer           buffer;
@@ -41,14 +44,7 @@ public class MPQInputStream extends InputStream {
   int read = 0;
 
   public MPQInputStream(MPQ mpq, String fileName, MPQ.BlockTable.Block block) {
-    try {
-      RandomAccessFile raf = new RandomAccessFile(mpq.file.file(), "r");
-      fc = raf.getChannel();
-      fc.position(block.filePos);
-    } catch (Exception e) {
-      throw new GdxRuntimeException("Unable to read block: " + block, e);
-    }
-
+    this.mpq = mpq;
     this.block = block;
     sectorSize = mpq.header.sectorSize;
     sectorCount = (block.FSize + sectorSize - 1) / sectorSize;
@@ -73,28 +69,7 @@ public class MPQInputStream extends InputStream {
     //if (!block.hasFlag(MPQ.BlockTable.Block.FLAG_SINGLE_UNIT)) {
     if (block.hasFlag(MPQ.BlockTable.Block.FLAG_COMPRESSED)
      || block.hasFlag(MPQ.BlockTable.Block.FLAG_IMPLODE)) {
-      if (DEBUG) Gdx.app.debug(TAG, "Populating sector offsets table");
-      sectorOffsets = new int[sectorCount + 1];
-      ByteBuffer sectors = ByteBuffer.wrap(new byte[(sectorCount + 1) << 2]).order(ByteOrder.LITTLE_ENDIAN);
-      try {
-        IOUtils.readFully(fc, sectors);
-        sectors.flip();
-      } catch (IOException e) {
-        throw new GdxRuntimeException("Unable to read sector offsets: " + block, e);
-      }
-
-      if (block.hasFlag(MPQ.BlockTable.Block.FLAG_ENCRYPTED)) {
-        if (DEBUG) Gdx.app.debug(TAG, "Decrypting sector offsets table");
-        Decryptor.decrypt(key - 1, sectors);
-        sectors.flip();
-      }
-
-      for (int i = 0; i < sectorCount; i++) {
-        sectorOffsets[i] = sectors.getInt();
-      }
-
-      sectorOffsets[sectorCount] = block.CSize;
-      if (DEBUG) Gdx.app.debug(TAG, "sector offsets = " + Arrays.toString(sectorOffsets));
+      sectorOffsets = readSectorOffsets(mpq, block, key, sectorCount);
     } else {
       sectorOffsets = ZERO_ARRAY;
     }
@@ -165,7 +140,7 @@ public class MPQInputStream extends InputStream {
 
       assert sector.position() == 0;
       assert sector.limit() == block.CSize;
-      IOUtils.readFully(fc, sector);
+      mpq.read(block.filePos, sector);
       sector.flip();
 
       if (block.hasFlag(MPQ.BlockTable.Block.FLAG_ENCRYPTED)) {
@@ -184,14 +159,12 @@ public class MPQInputStream extends InputStream {
     } else if (block.hasFlag(MPQ.BlockTable.Block.FLAG_COMPRESSED)) {
       assert curSector < sectorCount;
       if (DEBUG) Gdx.app.debug(TAG, "Reading sector " + (curSector + 1) + " / " + sectorCount);
-      fc.position(block.filePos + sectorOffsets[curSector]);
-
       final int start = sectorOffsets[curSector];
       final int end   = sectorOffsets[curSector + 1];
       final int CSize = end - start;
       sector.clear();
       sector.limit(CSize);
-      IOUtils.readFully(fc, sector);
+      mpq.read(block.filePos + start, sector);
       sector.rewind();
 
       if (block.hasFlag(MPQ.BlockTable.Block.FLAG_ENCRYPTED)) {
@@ -212,14 +185,12 @@ public class MPQInputStream extends InputStream {
     } else if (block.hasFlag(MPQ.BlockTable.Block.FLAG_IMPLODE)) {
       assert curSector < sectorCount;
       if (DEBUG) Gdx.app.debug(TAG, "Reading sector " + (curSector + 1) + " / " + sectorCount + " " + block.getFlags());
-      fc.position(block.filePos + sectorOffsets[curSector]);
-
       final int start = sectorOffsets[curSector];
       final int end = sectorOffsets[curSector + 1];
       final int CSize = end - start;
       sector.clear();
       sector.limit(CSize);
-      IOUtils.readFully(fc, sector);
+      mpq.read(block.filePos + start, sector);
       sector.rewind();
 
       if (block.hasFlag(MPQ.BlockTable.Block.FLAG_ENCRYPTED)) {
@@ -234,7 +205,7 @@ public class MPQInputStream extends InputStream {
       if (CSize == sectorSize) {
         buffer.put(sector);
       } else {
-        Exploder.pkexplode(sector, buffer);
+        Decompressor.explode(sector, buffer);
       }
       if (DEBUG) Gdx.app.debug(TAG, "Exploded to " + buffer.position() + " bytes");
       buffer.rewind();
@@ -248,7 +219,7 @@ public class MPQInputStream extends InputStream {
 
       final int FSize = Math.min(block.FSize - finalSize, sectorSize);
       buffer.rewind().limit(FSize);
-      IOUtils.readFully(fc, buffer);
+      mpq.read(block.filePos + finalSize, buffer);
       buffer.rewind();
 
       finalSize += sectorSize;
@@ -270,17 +241,13 @@ public class MPQInputStream extends InputStream {
   }
 
   public static byte[] readBytes(MPQ mpq, String fileName, MPQ.BlockTable.Block block) {
-    RandomAccessFile raf = null;
     try {
-      raf = new RandomAccessFile(mpq.file.file(), "r");
-      FileChannel fc = raf.getChannel();
-      fc.position(block.filePos);
-
       final int sectorSize = mpq.header.sectorSize;
       final int sectorCount = (block.FSize + sectorSize - 1) / sectorSize;
-      final ByteBuffer sector = ByteBuffer.allocate(sectorSize).order(ByteOrder.LITTLE_ENDIAN);
+      final Decompressor.Context context = Decompressor.context();
+      final ByteBuffer sector = context.sector(sectorSize);
       final ByteBuffer buffer = ByteBuffer.allocate(block.FSize).order(ByteOrder.LITTLE_ENDIAN);
-      final ByteBuffer scratch = ByteBuffer.allocate(sectorSize).order(ByteOrder.LITTLE_ENDIAN);
+      final ByteBuffer scratch = context.scratch(sectorSize);
 
       int tmp = 0;
       if (block.hasFlag(MPQ.BlockTable.Block.FLAG_ENCRYPTED)) {
@@ -294,7 +261,7 @@ public class MPQInputStream extends InputStream {
       final int key = tmp;
       if (block.hasFlag(MPQ.BlockTable.Block.FLAG_SINGLE_UNIT)) {
         if (DEBUG) Gdx.app.debug(TAG, "Reading as single unit...");
-        IOUtils.readFully(fc, sector);
+        mpq.read(block.filePos, sector);
         sector.flip();
 
         if (block.hasFlag(MPQ.BlockTable.Block.FLAG_ENCRYPTED)) {
@@ -305,77 +272,29 @@ public class MPQInputStream extends InputStream {
 
         if (block.hasFlag(MPQ.BlockTable.Block.FLAG_COMPRESSED)) {
           if (DEBUG) Gdx.app.debug(TAG, "Decompressing...");
-          Decompressor.decompress(sector, buffer, scratch, block.CSize, block.FSize);
+          Decompressor.decompress(context, sector, buffer, scratch, block.CSize, block.FSize);
           assert buffer.position() == block.FSize;
           buffer.flip();
         }
 
         buffer.flip();
       } else if (block.hasFlag(MPQ.BlockTable.Block.FLAG_COMPRESSED) || block.hasFlag(MPQ.BlockTable.Block.FLAG_IMPLODE)) {
-        if (DEBUG) Gdx.app.debug(TAG, "Populating sector offsets table");
-        final int[] sectorOffsets = new int[sectorCount + 1];
-        ByteBuffer sectors = ByteBuffer.wrap(new byte[(sectorCount + 1) << 2]).order(ByteOrder.LITTLE_ENDIAN);
-        try {
-          IOUtils.readFully(fc, sectors);
-          sectors.flip();
-        } catch (IOException e) {
-          throw new GdxRuntimeException("Unable to read sector offsets: " + block, e);
-        }
-
-        if (block.hasFlag(MPQ.BlockTable.Block.FLAG_ENCRYPTED)) {
-          if (DEBUG) Gdx.app.debug(TAG, "Decrypting sector offsets table");
-          Decryptor.decrypt(key - 1, sectors);
-          sectors.flip();
-        }
-
-        for (int i = 0; i < sectorCount; i++) {
-          sectorOffsets[i] = sectors.getInt();
-        }
-
-        sectorOffsets[sectorCount] = block.CSize;
-        if (DEBUG) Gdx.app.debug(TAG, "sector offsets = " + Arrays.toString(sectorOffsets));
-
-        int finalSize = 0;
-        for (int curSector = 0; curSector < sectorCount; curSector++) {
-          if (DEBUG) Gdx.app.debug(TAG, "Reading sector " + (curSector + 1) + " / " + sectorCount + " " + block.getFlags());
-          fc.position(block.filePos + sectorOffsets[curSector]);
-
-          final int start = sectorOffsets[curSector];
-          final int end = sectorOffsets[curSector + 1];
-          final int CSize = end - start;
-          sector.clear();
-          sector.limit(CSize);
-          IOUtils.readFully(fc, sector);
-          sector.rewind();
-
-          if (block.hasFlag(MPQ.BlockTable.Block.FLAG_ENCRYPTED)) {
-            if (DEBUG) Gdx.app.debug(TAG, "Decrypting sector...");
-            Decryptor.decrypt(key + curSector, sector);
-            sector.flip();
-          }
-
-          if (block.hasFlag(MPQ.BlockTable.Block.FLAG_COMPRESSED)) {
-            if (DEBUG) Gdx.app.debug(TAG, "Decompressing sector...");
-            final int FSize = Math.min(block.FSize - finalSize, sectorSize);
-            ByteBuffer slice = BufferUtils.slice(buffer, FSize);
-            Decompressor.decompress(sector, slice, scratch, CSize, FSize);
-            if (DEBUG) Gdx.app.debug(TAG, "Decompressed " + slice.limit() + " bytes");
-            buffer.position(buffer.position() + slice.limit());
-          } else {
-            assert block.hasFlag(MPQ.BlockTable.Block.FLAG_IMPLODE);
-            if (DEBUG) Gdx.app.debug(TAG, "Exploding sector...");
+        final int[] sectorOffsets = readSectorOffsets(mpq, block, key, sectorCount);
+
+        if (sectorCount > 1 && block.FSize >= PARALLEL_THRESHOLD) {
+          if (DEBUG) Gdx.app.debug(TAG, "Reading " + sectorCount + " sectors in parallel " + block.getFlags());
+          SectorTask.POOL.invoke(new SectorTask(mpq, block, key, sectorOffsets, buffer.array(), 0, sectorCount));
+          buffer.position(block.FSize);
+        } else {
+          int finalSize = 0;
+          for (int curSector = 0; curSector < sectorCount; curSector++) {
+            if (DEBUG) Gdx.app.debug(TAG, "Reading sector " + (curSector + 1) + " / " + sectorCount + " " + block.getFlags());
             final int FSize = Math.min(block.FSize - finalSize, sectorSize);
             ByteBuffer slice = BufferUtils.slice(buffer, FSize);
-            if (CSize == sectorSize) {
-              slice.put(sector);
-            } else {
-              Exploder.pkexplode(sector, slice);
-            }
-            if (DEBUG) Gdx.app.debug(TAG, "Exploded to " + slice.limit() + " bytes");
+            readSector(context, mpq, block, key, sectorOffsets, curSector, slice);
             buffer.position(buffer.position() + slice.limit());
+            finalSize += sectorSize;
           }
-
-          finalSize += sectorSize;
         }
       } else {
         throw new UnsupportedOperationException("File has unsupported flags " + block.getFlags());
@@ -400,8 +319,119 @@ public class MPQInputStream extends InputStream {
       return buffer.array();
     } catch (Exception e) {
       throw new GdxRuntimeException("Unable to read file: " + fileName, e);
-    } finally {
-      StreamUtils.closeQuietly(raf);
+    }
+  }
+
+  static int[] readSectorOffsets(MPQ mpq, MPQ.BlockTable.Block block, int key, int sectorCount) {
+    if (DEBUG) Gdx.app.debug(TAG, "Populating sector offsets table");
+    final int[] sectorOffsets = new int[sectorCount + 1];
+    ByteBuffer sectors = ByteBuffer.wrap(new byte[(sectorCount + 1) << 2]).order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      mpq.read(block.filePos, sectors);
+      sectors.flip();
+    } catch (IOException e) {
+      throw new GdxRuntimeException("Unable to read sector offsets: " + block, e);
+    }
+
+    sectors.asIntBuffer().get(sectorOffsets);
+    if (block.hasFlag(MPQ.BlockTable.Block.FLAG_ENCRYPTED)) {
+      if (DEBUG) Gdx.app.debug(TAG, "Decrypting sector offsets table");
+      Decryptor.decrypt(key - 1, sectorOffsets, 0, sectorOffsets.length);
+    }
+
+    sectorOffsets[sectorCount] = block.CSize;
+    if (DEBUG) Gdx.app.debug(TAG, "sector offsets = " + Arrays.toString(sectorOffsets));
+    return sectorOffsets;
+  }
+
+  /**
+   * Reads, decrypts and decompresses sector {@code curSector} of a multi-sector block into
+   * {@code slice}, which must have exactly the decompressed size of the sector remaining.
+   */
+  static void readSector(Decompressor.Context context, MPQ mpq, MPQ.BlockTable.Block block, int key,
+                         int[] sectorOffsets, int curSector, ByteBuffer slice) throws IOException {
+    final int sectorSize = mpq.header.sectorSize;
+    final int start = sectorOffsets[curSector];
+    final int end = sectorOffsets[curSector + 1];
+    final int CSize = end - start;
+    final ByteBuffer sector = context.sector(sectorSize);
+    sector.limit(CSize);
+    mpq.read(block.filePos + start, sector);
+    sector.rewind();
+
+    if (block.hasFlag(MPQ.BlockTable.Block.FLAG_ENCRYPTED)) {
+      if (DEBUG) Gdx.app.debug(TAG, "Decrypting sector...");
+      Decryptor.decrypt(key + curSector, sector);
+      sector.flip();
+    }
+
+    final int FSize = slice.remaining();
+    if (block.hasFlag(MPQ.BlockTable.Block.FLAG_COMPRESSED)) {
+      if (DEBUG) Gdx.app.debug(TAG, "Decompressing sector...");
+      Decompressor.decompress(context, sector, slice, context.scratch(sectorSize), CSize, FSize);
+      if (DEBUG) Gdx.app.debug(TAG, "Decompressed " + slice.limit() + " bytes");
+    } else {
+      assert block.hasFlag(MPQ.BlockTable.Block.FLAG_IMPLODE);
+      if (DEBUG) Gdx.app.debug(TAG, "Exploding sector...");
+      if (CSize == sectorSize) {
+        slice.put(sector);
+      } else {
+        Decompressor.explode(sector, slice);
+      }
+      if (DEBUG) Gdx.app.debug(TAG, "Exploded to " + slice.limit() + " bytes");
+    }
+  }
+
+  /**
+   * Splits the sectors of a block across {@link #POOL}. Sectors are independent once the offsets
+   * table has been read, so each worker decompresses directly into its slot of {@code dst} using
+   * its own {@link Decompressor.Context}.
+   */
+  static class SectorTask extends RecursiveAction {
+    static final ForkJoinPool POOL = new ForkJoinPool();
+
+    static final int SECTORS_PER_TASK = 4;
+
+    final MPQ                  mpq;
+    final MPQ.BlockTable.Block block;
+    final int                  key;
+    final int[]                sectorOffsets;
+    final byte[]               dst;
+    final int                  from;
+    final int                  to;
+
+    SectorTask(MPQ mpq, MPQ.BlockTable.Block block, int key, int[] sectorOffsets, byte[] dst, int from, int to) {
+      this.mpq = mpq;
+      this.block = block;
+      this.key = key;
+      this.sectorOffsets = sectorOffsets;
+      this.dst = dst;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > SECTORS_PER_TASK) {
+        int mid = (from + to) >>> 1;
+        invokeAll(
+            new SectorTask(mpq, block, key, sectorOffsets, dst, from, mid),
+            new SectorTask(mpq, block, key, sectorOffsets, dst, mid, to));
+        return;
+      }
+
+      final int sectorSize = mpq.header.sectorSize;
+      final Decompressor.Context context = Decompressor.context();
+      for (int curSector = from; curSector < to; curSector++) {
+        final int offset = curSector * sectorSize;
+        final int FSize = Math.min(block.FSize - offset, sectorSize);
+        ByteBuffer slice = ByteBuffer.wrap(dst, offset, FSize).slice().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+          readSector(context, mpq, block, key, sectorOffsets, curSector, slice);
+        } catch (IOException e) {
+          throw new GdxRuntimeException("Unable to read sector " + curSector + ": " + block, e);
+        }
+      }
     }
   }
 }
@@ -37,19 +37,29 @@ public class ADPCM {
     byte  stepIndex;
   }
 
-  private static final Channel[] state = new Channel[2];
-  static {
-    for (int i = 0; i < CHANNELS; i++) {
-      state[i] = new Channel();
+  /**
+   * Per-channel decoder state. Not thread-safe, each decoding thread should own its own instance.
+   */
+  public static final class State {
+    final Channel[] channels = new Channel[CHANNELS];
+
+    public State() {
+      for (int i = 0; i < CHANNELS; i++) {
+        channels[i] = new Channel();
+      }
     }
   }
 
   public static void decompress(ByteBuffer in, ByteBuffer out, int numChannels) {
+    decompress(in, out, numChannels, new State());
+  }
+
+  public static void decompress(ByteBuffer in, ByteBuffer out, int numChannels, State state) {
     assert in.order() == ByteOrder.LITTLE_ENDIAN && out.order() == ByteOrder.LITTLE_ENDIAN : "in.order() = " + in.order() + "; out.order() = " + out.order();
 
     byte stepshift = (byte) (in.getShort() >>> Byte.SIZE);
     for (int i = 0; i < numChannels; i++) {
-      Channel c = state[i];
+      Channel c = state.channels[i];
       c.stepIndex = INITIAL_ADPCM_STEP_INDEX;
       c.sampleValue = in.getShort();
       out.putShort(c.sampleValue);
@@ -58,7 +68,7 @@ public class ADPCM {
     int current = 0;
     while (in.hasRemaining()) {
       byte op = in.get();
-      Channel channel = state[current];
+      Channel channel = state.channels[current];
       if ((op & 0x80) != 0) {
         switch (op & 0x7F) {
           case 0: // write current value
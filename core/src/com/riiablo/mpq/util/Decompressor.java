@@ -3,7 +3,7 @@ package com.riiablo.mpq.util;
 import com.badlogic.gdx.Gdx;
 
 import java.nio.ByteBuffer;
-import java.util.concurrent.atomic.AtomicReference;
+import java.nio.ByteOrder;
 
 public class Decompressor {
   private Decompressor() {}
@@ -24,9 +24,66 @@ public class Decompressor {
 
   private static final byte ADPCM_MASK   = FLAG_ADPCM1C | FLAG_ADPCM2C;
 
-  private static AtomicReference<Huffman> huffman = new AtomicReference<>();
+  /**
+   * Working state used while decompressing sectors. Contexts are confined to the thread that
+   * created them, so sectors can be decompressed concurrently from many threads without locking.
+   */
+  public static final class Context {
+    final Huffman     huffman    = new Huffman();
+    final byte[]      dictionary = Exploder.newDictionary();
+    final ADPCM.State adpcm      = new ADPCM.State();
+
+    ByteBuffer sector;
+    ByteBuffer scratch;
+
+    Context() {}
+
+    /**
+     * Returns a cleared little-endian buffer with at least {@code size} bytes remaining which may be
+     * used to hold a compressed sector. Its contents are only valid until the next call.
+     */
+    public ByteBuffer sector(int size) {
+      return sector = ensureCapacity(sector, size);
+    }
+
+    /**
+     * Returns a cleared little-endian buffer with at least {@code size} bytes remaining which may be
+     * used as scratch space by {@link Decompressor#decompress}. Its contents are only valid until the next call.
+     */
+    public ByteBuffer scratch(int size) {
+      return scratch = ensureCapacity(scratch, size);
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int size) {
+      if (buffer == null || buffer.capacity() < size) {
+        buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+      }
+
+      buffer.clear().limit(size);
+      return buffer;
+    }
+  }
+
+  private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<Context>() {
+    @Override
+    protected Context initialValue() {
+      return new Context();
+    }
+  };
+
+  public static Context context() {
+    return CONTEXT.get();
+  }
+
+  public static int explode(ByteBuffer in, ByteBuffer out) {
+    return Exploder.pkexplode(in, out, CONTEXT.get().dictionary);
+  }
 
   public static void decompress(ByteBuffer sector, ByteBuffer buffer, ByteBuffer scratch, int CSize, int FSize) {
+    decompress(CONTEXT.get(), sector, buffer, scratch, CSize, FSize);
+  }
+
+  public static void decompress(Context context, ByteBuffer sector, ByteBuffer buffer, ByteBuffer scratch, int CSize, int FSize) {
     if (CSize == FSize) {
       buffer.put(sector);
       buffer.rewind();
@@ -48,7 +105,7 @@ public class Decompressor {
       } else if ((compressionFlags & FLAG_BZIP2) == FLAG_BZIP2) {
         throw new UnsupportedOperationException("FLAG_BZIP2");
       } else if ((compressionFlags & FLAG_IMPLODE) == FLAG_IMPLODE) {
-        Exploder.pkexplode(sector, buffer);
+        Exploder.pkexplode(sector, buffer, context.dictionary);
         sector.rewind().position(1);
         if (DEBUG) Gdx.app.debug(TAG, "Exploded to " + buffer.position() + " bytes");
         buffer.rewind();
@@ -60,13 +117,12 @@ public class Decompressor {
       }
 
       if ((compressionFlags & FLAG_HUFFMAN) == FLAG_HUFFMAN) {
-        huffman.compareAndSet(null, new Huffman());
         if (flip) {
           sector.clear();
-          huffman.get().decompress(buffer, sector);
+          context.huffman.decompress(buffer, sector);
         } else {
           buffer.clear();
-          huffman.get().decompress(sector, buffer);
+          context.huffman.decompress(sector, buffer);
         }
 
         sector.rewind();
@@ -77,11 +133,11 @@ public class Decompressor {
       if ((compressionFlags & ADPCM_MASK) != 0) {
         int channels = ((compressionFlags & FLAG_ADPCM1C) == FLAG_ADPCM1C) ? 1 : 2;
         if (flip) {
-          ADPCM.decompress(buffer, scratch, channels);
+          ADPCM.decompress(buffer, scratch, channels, context.adpcm);
           buffer.rewind();
           scratch.rewind();
         } else {
-          ADPCM.decompress(sector, scratch, channels);
+          ADPCM.decompress(sector, scratch, channels, context.adpcm);
           sector.rewind();
           scratch.rewind();
         }
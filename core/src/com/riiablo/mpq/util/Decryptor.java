@@ -235,8 +235,42 @@ public class Decryptor {
 
   private static final int BLOCK_SIZE = Integer.SIZE / Byte.SIZE;
 
+  /**
+   * Decrypts the remaining bytes of {@code in} in place and advances its position to its limit.
+   * Blocks are read and written using absolute int accesses, so unlike
+   * {@link #decrypt(int, ByteBuffer, ByteBuffer)} no view of the buffer is allocated.
+   */
   public static ByteBuffer decrypt(int key, ByteBuffer in) {
-    return decrypt(key, in, in.duplicate());
+    in.order(ByteOrder.LITTLE_ENDIAN);
+    final int[] table = ENCRYPTION.table;
+    final int position = in.position();
+    final int end = position + (in.remaining() & ~(BLOCK_SIZE - 1));
+    int seed = SEED2;
+    for (int i = position; i < end; i += BLOCK_SIZE) {
+      seed += table[key & 0xFF];
+      int block = in.getInt(i) ^ (key + seed);
+      seed += block + (seed << 5) + 3;
+      key = (~key << 0x15) + 0x11111111 | key >>> 0x0B;
+      in.putInt(i, block);
+    }
+
+    in.position(in.limit());
+    return in;
+  }
+
+  /**
+   * Decrypts {@code length} ints of {@code data} starting at {@code offset} in place.
+   */
+  public static void decrypt(int key, int[] data, int offset, int length) {
+    final int[] table = ENCRYPTION.table;
+    int seed = SEED2;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      seed += table[key & 0xFF];
+      int block = data[i] ^ (key + seed);
+      seed += block + (seed << 5) + 3;
+      key = (~key << 0x15) + 0x11111111 | key >>> 0x0B;
+      data[i] = block;
+    }
   }
 
   public static ByteBuffer decrypt(int key, ByteBuffer in, ByteBuffer out) {
@@ -262,7 +296,7 @@ public class Decryptor {
   }
 
   public static class LookupTable {
-    int[] table;
+    final int[] table;
 
     LookupTable(int table) {
       this.table = LOOKUP_TABLE[table];
@@ -276,6 +310,30 @@ public class Decryptor {
       return hash(str.toUpperCase().getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Hashes a file name the same way as {@link #hash(String)} after converting {@code '/'} to
+     * {@code '\\'}, without allocating for ASCII file names.
+     */
+    public int hashFileName(CharSequence fileName) {
+      int seed1 = SEED1;
+      int seed2 = SEED2;
+      for (int i = 0, len = fileName.length(); i < len; i++) {
+        int ch = fileName.charAt(i);
+        if (ch >= 0x80) {
+          return hash(fileName.toString().replace('/', '\\'));
+        } else if (ch == '/') {
+          ch = '\\';
+        } else if ('a' <= ch && ch <= 'z') {
+          ch -= 'a' - 'A';
+        }
+
+        seed1 = table[ch] ^ (seed1 + seed2);
+        seed2 = ch + seed1 + seed2 + (seed2 << 5) + 3;
+      }
+
+      return seed1;
+    }
+
     public int hash(byte[] bytes) {
       int seed1 = SEED1;
       int seed2 = SEED2;
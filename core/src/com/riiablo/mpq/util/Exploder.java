@@ -153,7 +153,21 @@ public class Exploder {
             0x08, 0x08, 0x08, 0x08, 0x08, 0x08, 0x08, 0x08, 0x08, 0x08, 0x08, 0x08, 0x08, 0x08, 0x08, 0x08
         };
 
+    public static byte[] newDictionary() {
+        return new byte[0x1000];
+    }
+
     public static int pkexplode(ByteBuffer in, ByteBuffer out) {
+        return pkexplode(in, out, newDictionary());
+    }
+
+    /**
+     * Explodes {@code in} into {@code out} using {@code Dict} as the sliding dictionary. The
+     * dictionary does not need to be cleared between calls, so it can be reused by the same thread.
+     *
+     * @see #newDictionary()
+     */
+    public static int pkexplode(ByteBuffer in, ByteBuffer out, byte[] Dict) {
         if (in.remaining() < 4) {
             throw new IllegalArgumentException("PK_ERR_INCOMPLETE_INPUT: Incomplete input");
         }
@@ -175,7 +189,6 @@ public class Exploder {
         int nDictSize = 64 << nDictSizeByte;
 
         // Initialize dictionary position
-        byte[] Dict = new byte[0x1000]; // Sliding dictionary used for compression and decompression
         int pDictPos = 0;
 
         // Initialize current dictionary size to zero
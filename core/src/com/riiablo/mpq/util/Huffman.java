@@ -4,6 +4,15 @@ import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.TreeMap;
 
+/**
+ * Adaptive huffman decoder. Instances keep mutable tree state between calls and are not
+ * thread-safe, see {@link Decompressor.Context}.
+ * <p>
+ * Symbols are decoded {@link #LOOKUP_BITS} bits at a time through a lookup table built from the
+ * current tree once it has stopped changing for {@link #LOOKUP_THRESHOLD} symbols. Codes longer
+ * than the table resolve to the internal node they reach and finish walking the tree bit by bit,
+ * as does every symbol decoded while the tree is still being adjusted.
+ */
 public class Huffman {
   private static class Node {
     Node parent;
@@ -102,6 +111,22 @@ public class Huffman {
 
   private Node root = null;
 
+  private static final int LOOKUP_BITS      = 10;
+  private static final int LOOKUP_SIZE      = 1 << LOOKUP_BITS;
+  private static final int LOOKUP_MASK      = LOOKUP_SIZE - 1;
+
+  static final int LOOKUP_THRESHOLD = 64;
+
+  private final Node[] lookup     = new Node[LOOKUP_SIZE];
+  private final byte[] lookupBits = new byte[LOOKUP_SIZE];
+  private boolean lookupValid;
+  private int     unchanged;
+
+  /** symbols the tree must stay unchanged for before the lookup table is used */
+  int lookupThreshold = LOOKUP_THRESHOLD;
+  /** number of times the lookup table has been built */
+  int lookupBuilds;
+
   private int bitBuffer;
   private byte bitNumber;
   private ByteBuffer source;
@@ -125,6 +150,61 @@ public class Huffman {
     return result;
   }
 
+  /**
+   * Ensures at least {@code bits} bits are buffered without reading past the end of the source.
+   *
+   * @return {@code false} if the source does not contain enough bits
+   */
+  private boolean fillBits(int bits) {
+    while (bitNumber < bits) {
+      if (!source.hasRemaining()) return false;
+      bitBuffer |= ((int) source.get() & 0xFF) << bitNumber;
+      bitNumber += 8;
+    }
+
+    return true;
+  }
+
+  private void treeChanged() {
+    lookupValid = false;
+    unchanged = 0;
+  }
+
+  private void buildLookup(Node node, int depth, int code) {
+    if (node.value != -1 || depth == LOOKUP_BITS) {
+      for (int i = code; i < LOOKUP_SIZE; i += 1 << depth) {
+        lookup[i] = node;
+        lookupBits[i] = (byte) depth;
+      }
+
+      return;
+    }
+
+    buildLookup(node.child[0], depth + 1, code);
+    buildLookup(node.child[1], depth + 1, code | (1 << depth));
+  }
+
+  private Node decodeNode() {
+    Node current = root;
+    if (unchanged >= lookupThreshold && fillBits(LOOKUP_BITS)) {
+      if (!lookupValid) {
+        buildLookup(root, 0, 0);
+        lookupValid = true;
+        lookupBuilds++;
+      }
+
+      int index = bitBuffer & LOOKUP_MASK;
+      int bits = lookupBits[index];
+      current = lookup[index];
+      bitBuffer >>>= bits;
+      bitNumber -= bits;
+    }
+
+    while (current.value == -1)
+      current = current.child[getBits(1)];
+    return current;
+  }
+
   private Node getNode() {
     Node node;
     if (nodes == null) node = new Node();
@@ -163,6 +243,8 @@ public class Huffman {
   }
 
   private Node addValueToTree(int value) {
+    treeChanged();
+
     // create leaf node
     Node node = getNode();
     node.value = value;
@@ -212,6 +294,7 @@ public class Huffman {
       else where = root;
 
       if (where != node) {
+        treeChanged();
         node.listSwap(where);
         node.treeSwap(where);
 
@@ -230,6 +313,7 @@ public class Huffman {
 
     // destroy any existing tree
     if (root != null) destroyTree(root);
+    treeChanged();
 
     // generate leaves
     for (int i = 0; i < 0x102; i++) {
@@ -268,7 +352,7 @@ public class Huffman {
     root.parent = null;
   }
 
-  synchronized void decompress(ByteBuffer in, ByteBuffer out) {
+  void decompress(ByteBuffer in, ByteBuffer out) {
     setSource(in);
     byte type = (byte) getBits(8);
     buildTree(type);
@@ -276,10 +360,7 @@ public class Huffman {
     boolean adjustProbability = type == 0;
 
     for (;;) {
-      Node current = root;
-      while (current.value == -1)
-        current = current.child[getBits(1)];
-
+      Node current = decodeNode();
       if (current.value == 0x101) {
         int value = getBits(8);
         current = addValueToTree(value);
@@ -294,6 +375,8 @@ public class Huffman {
       if (adjustProbability) {
         incrementProbability(current);
       }
+
+      unchanged++;
     }
 
   }
@@ -35,6 +35,7 @@ import com.riiablo.Client;
 import com.riiablo.Cvars;
 import com.riiablo.Keys;
 import com.riiablo.Riiablo;
+import com.riiablo.ai.AIScheduler;
 import com.riiablo.codec.DC6;
 import com.riiablo.codec.excel.MonStats;
 import com.riiablo.cvar.Cvar;
@@ -128,6 +129,7 @@ public class GameScreen extends ScreenAdapter implements LoadingScreen.Loadable
   final AssetDescriptor<Map> mapDescriptor = new AssetDescriptor<>("Act 1", Map.class, MapLoader.MapParameters.of(0, 0, 0));
   Map map;
   MapRenderer mapRenderer;
+  AIScheduler aiScheduler;
   MapListener mapListener;
   InputProcessor inputProcessorTest;
   public final Array<Actor> labels = new Array<>();
@@ -143,6 +145,8 @@ public class GameScreen extends ScreenAdapter implements LoadingScreen.Loadable
 
   public TextArea input;
   Client.ScreenBoundsListener screenBoundsListener;
+  Cvar.StateListener<Boolean> entityStoreListener;
+  Cvar.StateListener<Integer> aiBudgetListener;
   TextArea output;
 
   public Player player;
@@ -581,6 +585,9 @@ public class GameScreen extends ScreenAdapter implements LoadingScreen.Loadable
     }
     */
 
+    aiScheduler.update(delta);
+    map.paths().update();
+
     Map.Zone prevZone = curZone;
     mapRenderer.update();
     curZone = player.curZone = map.getZone(player.position());
@@ -651,6 +658,19 @@ public class GameScreen extends ScreenAdapter implements LoadingScreen.Loadable
     }
     mapRenderer.resize();
     mapListener = new MapListener(this, map, mapRenderer);
+    aiScheduler = new AIScheduler(map, Riiablo.engine);
+    Cvars.Client.Engine.EntityStore.addStateListener(entityStoreListener = new CvarStateAdapter<Boolean>() {
+      @Override
+      public void onChanged(Cvar<Boolean> cvar, Boolean from, Boolean to) {
+        mapRenderer.setEntityStoreEnabled(to);
+      }
+    });
+    Cvars.Client.Engine.AIBudget.addStateListener(aiBudgetListener = new CvarStateAdapter<Integer>() {
+      @Override
+      public void onChanged(Cvar<Integer> cvar, Integer from, Integer to) {
+        aiScheduler.setBudget(to);
+      }
+    });
 
     GridPoint2 origin = map.find(Map.ID.TOWN_ENTRY_1);
     player.position().set(origin.x, origin.y);
@@ -743,6 +763,9 @@ public class GameScreen extends ScreenAdapter implements LoadingScreen.Loadable
     Riiablo.input.removeProcessor(inputProcessorTest);
     Riiablo.client.removeScreenBoundsListener(screenBoundsListener);
     Cvars.Client.Display.KeepControlPanelGrouped.clearStateListeners();
+    Cvars.Client.Engine.EntityStore.removeStateListener(entityStoreListener);
+    Cvars.Client.Engine.AIBudget.removeStateListener(aiBudgetListener);
+    if (aiScheduler != null) aiScheduler.dispose();
 
     //updateTask.cancel();
   }
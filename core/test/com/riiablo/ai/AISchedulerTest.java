@@ -0,0 +1,202 @@
+package com.riiablo.ai;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.riiablo.CharacterClass;
+import com.riiablo.Riiablo;
+import com.riiablo.audio.Audio;
+import com.riiablo.codec.excel.MonStats;
+import com.riiablo.codec.excel.MonStats2;
+import com.riiablo.entity.Engine;
+import com.riiablo.entity.Entity;
+import com.riiablo.entity.Monster;
+import com.riiablo.entity.Player;
+import com.riiablo.map.Map;
+import com.riiablo.map.PathService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the same seeded scenario, a player surrounded by zombies on a blank map, with and without
+ * thinking on worker threads, and checks both runs made the same decisions and left every monster
+ * in the same place and mode.
+ */
+public class AISchedulerTest {
+  private static final String TAG = "AISchedulerTest";
+
+  static final long  SEED         = 0x5EEDL;
+  static final int   NUM_MONSTERS = 512;
+  static final int   TICKS        = 250;
+  static final float DELTA        = 1 / 25f;
+  static final int   NUM_THREADS  = 3; // regardless of cores, so batches really interleave
+
+  Audio audio;
+
+  @Before
+  public void setUp() throws Exception {
+    HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+    new HeadlessApplication(new ApplicationAdapter() {}, config);
+    audio = Riiablo.audio;
+    Riiablo.audio = new Audio(null) {
+      @Override
+      public Instance play(String id, boolean global) {
+        return null;
+      }
+    };
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Riiablo.audio = audio;
+    Gdx.app.exit();
+  }
+
+  @Test
+  public void parallelMatchesSerial() {
+    Scenario serial = new Scenario(false).run();
+    Scenario parallel = new Scenario(true).run();
+    assertTrue(parallel.scheduler.isParallel());
+    Gdx.app.log(TAG, "checksum=" + Integer.toHexString(serial.checksum) + ", moved=" + serial.moved());
+
+    assertNotEquals("nothing was decided", 0, serial.checksum);
+    assertTrue("nothing moved", serial.moved() > 0);
+    assertEquals("checksum", serial.checksum, parallel.checksum);
+    for (int i = 0; i < NUM_MONSTERS; i++) {
+      Monster expected = serial.monsters.get(i), actual = parallel.monsters.get(i);
+      assertEquals("position of " + i, expected.position(), actual.position());
+      assertEquals("mode of " + i, expected.getMode(), actual.getMode());
+    }
+  }
+
+  /**
+   * A player just outside the map's only zone occupies no zone, like one across a zone border.
+   */
+  @Test
+  public void playersKeepNearbyMonstersAwake() {
+    Map map = Map.blank(0, 8, 4, 4);
+    Engine engine = new Engine();
+    Player player = new Player("player", CharacterClass.BARBARIAN);
+    player.position().set(-8, 80);
+    engine.add(player);
+
+    MonStats2.Entry monstats2 = new MonStats2.Entry();
+    monstats2.components = new byte[0][];
+    Monster near = Monster.create(map, null, Scenario.zombie(4), monstats2);
+    near.position().set(AIScheduler.ACTIVE_RANGE - 16, 80);
+    engine.add(near);
+    Monster far = Monster.create(map, null, Scenario.zombie(4), monstats2);
+    far.position().set(AIScheduler.ACTIVE_RANGE + 16, 80);
+    engine.add(far);
+
+    AIScheduler scheduler = new AIScheduler(map, engine, SEED, 0);
+    try {
+      scheduler.update(DELTA);
+      assertEquals(1, scheduler.getHibernating());
+      assertEquals(1, scheduler.getTicked());
+      assertTrue(scheduler.hibernates(far));
+      assertFalse(scheduler.hibernates(near));
+    } finally {
+      scheduler.dispose();
+      map.paths().dispose();
+    }
+  }
+
+  static final class Scenario {
+    final Map map = Map.blank(0, 8, 4, 4);
+    final Engine engine = new Engine();
+    final Array<Monster> monsters = new Array<>(NUM_MONSTERS);
+    final Vector2[] spawns = new Vector2[NUM_MONSTERS];
+    final AIScheduler scheduler = new AIScheduler(map, engine, SEED, NUM_THREADS);
+    int checksum;
+
+    Scenario(boolean parallel) {
+      scheduler.setParallel(parallel);
+      Player player = new Player("player", CharacterClass.BARBARIAN);
+      player.position().set(80, 80);
+      engine.add(player);
+
+      MonStats2.Entry monstats2 = new MonStats2.Entry();
+      monstats2.MeleeRng = 1;
+      monstats2.components = new byte[0][];
+
+      Random random = new Random(SEED);
+      for (int i = 0; i < NUM_MONSTERS; i++) {
+        Monster monster = Monster.create(map, null, zombie(random.nextInt(16)), monstats2);
+        monster.position().set(random.nextInt(160), random.nextInt(160));
+        spawns[i] = monster.position().cpy();
+        monsters.add(monster);
+        engine.add(monster);
+      }
+    }
+
+    static MonStats.Entry zombie(int aidel) {
+      MonStats.Entry monstats = new MonStats.Entry();
+      monstats.Id         = "zombie";
+      monstats.Code       = "ZM";
+      monstats.NameStr    = "dummy";
+      monstats.AI         = "Zombie";
+      monstats.MonSound   = "zombie";
+      monstats.spawnMode  = -1;
+      monstats.Velocity   = 3;
+      monstats.Run        = 5;
+      monstats.aidel      = new int[] { aidel, aidel, aidel };
+      monstats.aip1       = new int[] { 50, 50, 50 }; // chance to approach
+      monstats.aip2       = new int[] { 40, 40, 40 }; // approach range
+      monstats.aip3       = new int[] { 0, 0, 0 };
+      monstats.aip4       = new int[] { 50, 50, 50 }; // chance of A2 over A1
+      monstats.aip5       = new int[] { 0, 0, 0 };
+      monstats.aip6       = new int[] { 0, 0, 0 };
+      monstats.aip7       = new int[] { 0, 0, 0 };
+      monstats.aip8       = new int[] { 0, 0, 0 };
+      return monstats;
+    }
+
+    /**
+     * Waits for every path requested during a tick before the next one, so paths arrive at the
+     * same tick regardless of how long the searches took.
+     */
+    Scenario run() {
+      PathService paths = map.paths();
+      paths.setBudget(Integer.MAX_VALUE);
+      try {
+        for (int tick = 0; tick < TICKS; tick++) {
+          scheduler.update(DELTA);
+          do {
+            paths.update();
+            Thread.yield();
+          } while (paths.getQueueDepth() > 0);
+
+          for (Entity entity : engine) entity.update(DELTA);
+        }
+      } finally {
+        scheduler.dispose();
+        paths.dispose();
+      }
+
+      checksum = scheduler.getChecksum();
+      return this;
+    }
+
+    int moved() {
+      int moved = 0;
+      for (int i = 0; i < NUM_MONSTERS; i++) {
+        if (!monsters.get(i).position().equals(spawns[i])) moved++;
+      }
+
+      return moved;
+    }
+  }
+}
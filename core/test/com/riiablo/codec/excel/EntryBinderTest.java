@@ -0,0 +1,166 @@
+package com.riiablo.codec.excel;
+
+import com.badlogic.gdx.utils.IntMap;
+import com.riiablo.Files;
+import com.riiablo.codec.TXT;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parses seeded random tables for every excel loaded by {@link Files} with the generated
+ * {@link EntryBinder} of its entries and with reflective {@link Binder binders}, and checks both
+ * produce equal entries.
+ */
+public class EntryBinderTest {
+  private static final int ROWS = 256;
+
+  /** columns indexing arrays in {@link Excel#put}, which only take small values */
+  private static final Map<Class, List<String>> SMALL = new HashMap<>();
+  static {
+    SMALL.put(Obj.class, Arrays.asList("act", "type", "id"));
+  }
+
+  /**
+   * @return a tab-delimited table with every column bound by the entries of {@code excelClass},
+   *         and {@code rows} rows of random cells, a quarter of them blank
+   */
+  static byte[] table(Class<? extends Excel> excelClass, int rows, long seed) {
+    final Class<Excel.Entry> entryClass = Excel.getEntryClass(excelClass);
+    final LinkedHashMap<String, Class> columns = new LinkedHashMap<>(); // lower case name -> type
+    int minColumns = 0;
+    for (Field field : entryClass.getFields()) {
+      final Excel.Entry.Column column = field.getAnnotation(Excel.Entry.Column.class);
+      if (column == null) continue;
+      final Class type = field.getType().isArray() ? field.getType().getComponentType() : field.getType();
+      if (column.columnIndex() >= 0) {
+        minColumns = Math.max(minColumns, column.columnIndex() + 1);
+        continue;
+      }
+
+      for (String name : Excel.columnNames(field, column)) {
+        final String key = name.toLowerCase();
+        if (!columns.containsKey(key)) columns.put(key, type);
+      }
+    }
+
+    final List<String> names = new ArrayList<>(columns.keySet());
+    final List<Class> types = new ArrayList<>(columns.values());
+    while (names.size() < minColumns) {
+      names.add("unused" + names.size());
+      types.add(String.class);
+    }
+
+    final List<String> small = SMALL.containsKey(excelClass) ? SMALL.get(excelClass) : new ArrayList<String>();
+    final Random random = new Random(seed);
+    final StringBuilder builder = new StringBuilder(rows * names.size() * 4);
+    join(builder, names);
+    final List<String> cells = new ArrayList<>(names.size());
+    for (int row = 0; row < rows; row++) {
+      cells.clear();
+      for (int i = 0, s = names.size(); i < s; i++) {
+        cells.add(small.contains(names.get(i))
+            ? Integer.toString(1 + random.nextInt(2))
+            : cell(random, types.get(i), row));
+      }
+      join(builder, cells);
+    }
+
+    return builder.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static void join(StringBuilder builder, List<String> cells) {
+    for (int i = 0, s = cells.size(); i < s; i++) {
+      if (i > 0) builder.append('\t');
+      builder.append(cells.get(i));
+    }
+
+    builder.append("\r\n");
+  }
+
+  private static String cell(Random random, Class type, int row) {
+    if (random.nextInt(4) == 0) return "";
+    if (type == String.class) return random.nextBoolean() ? "row" + row : Long.toString(random.nextLong(), 36);
+    if (type == boolean.class) return Integer.toString(random.nextInt(2));
+    if (type == byte.class) return Integer.toString(random.nextInt(1 << 8) - (1 << 7));
+    if (type == short.class) return Integer.toString(random.nextInt(1 << 16) - (1 << 15));
+    if (type == int.class) return Integer.toString(random.nextInt());
+    if (type == long.class) return Long.toString(random.nextLong());
+    throw new AssertionError(type);
+  }
+
+  static Excel parse(Class<? extends Excel> excelClass, TXT txt, boolean generated) {
+    Excel.BIND_GENERATED = generated;
+    try {
+      return Excel.parse(txt, excelClass);
+    } finally {
+      Excel.BIND_GENERATED = true;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  static List<Class<? extends Excel>> excels() {
+    List<Class<? extends Excel>> excels = new ArrayList<>();
+    for (Field field : Files.class.getFields()) {
+      if (Excel.class.isAssignableFrom(field.getType())) excels.add((Class<? extends Excel>) field.getType());
+    }
+
+    return excels;
+  }
+
+  @After
+  public void tearDown() {
+    Excel.BIND_GENERATED = true;
+  }
+
+  @Test
+  public void generatedForEveryExcel() {
+    List<Class<? extends Excel>> excels = excels();
+    assertTrue(excels.size() > 40);
+    for (Class<? extends Excel> excelClass : excels) {
+      assertNotNull(excelClass.getName(), EntryBinder.of(Excel.getEntryClass(excelClass)));
+    }
+  }
+
+  @Test
+  public void generatedMatchesReflective() throws IllegalAccessException {
+    long seed = 0;
+    for (Class<? extends Excel> excelClass : excels()) {
+      final TXT txt = TXT.loadFromBytes(table(excelClass, ROWS, seed++));
+      assertEquals(excelClass.getName(), ROWS, txt.getRows());
+      final Excel expected = parse(excelClass, txt, false);
+      final Excel actual = parse(excelClass, txt, true);
+      assertEquals(excelClass.getName(), expected.size(), actual.size());
+      for (IntMap.Entry<Excel.Entry> entry : (IntMap.Entries<Excel.Entry>) expected.entries.entries()) {
+        final Excel.Entry other = (Excel.Entry) actual.get(entry.key);
+        assertNotNull(excelClass.getName() + "[" + entry.key + "]", other);
+        assertFieldsEqual(excelClass.getName() + "[" + entry.key + "]", entry.value, other);
+      }
+    }
+  }
+
+  private static void assertFieldsEqual(String message, Object expected, Object actual) throws IllegalAccessException {
+    assertEquals(message, expected.getClass(), actual.getClass());
+    for (Field field : expected.getClass().getFields()) {
+      if (Modifier.isStatic(field.getModifiers())) continue;
+      assertArrayEquals(message + "." + field.getName() + " " + Arrays.deepToString(new Object[] { field.get(actual) }),
+          new Object[] { field.get(expected) }, new Object[] { field.get(actual) });
+    }
+  }
+}
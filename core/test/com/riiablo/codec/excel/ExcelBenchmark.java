@@ -0,0 +1,48 @@
+package com.riiablo.codec.excel;
+
+import com.riiablo.codec.TXT;
+
+/**
+ * Compares parse times of {@link MonStats}, {@link ItemStatCost} and {@link Skills} with their
+ * generated {@link EntryBinder} against reflective {@link Binder binders}. Tables are seeded random
+ * tables from {@link EntryBinderTest#table} with as many rows as the game's, since the game files
+ * can't be shipped.
+ * <pre>
+ * java -cp ... com.riiablo.codec.excel.ExcelBenchmark
+ * </pre>
+ */
+public class ExcelBenchmark {
+  private static final String TAG = "ExcelBenchmark";
+
+  static final Class[] EXCELS = { MonStats.class, ItemStatCost.class, Skills.class };
+  static final int[]   ROWS   = { 734, 358, 357 };
+  static final int     WARMUP = 200;
+  static final int     PARSES = 500;
+  static final int     ROUNDS = 3;
+
+  @SuppressWarnings("unchecked")
+  public static void main(String[] args) {
+    for (int i = 0; i < EXCELS.length; i++) {
+      final Class<? extends Excel> excelClass = EXCELS[i];
+      final TXT txt = TXT.loadFromBytes(EntryBinderTest.table(excelClass, ROWS[i], i));
+      for (int round = 0; round < ROUNDS; round++) {
+        System.out.printf("%s %s round %d: reflective %.3f ms, generated %.3f ms%n",
+            TAG, excelClass.getSimpleName(), round,
+            run(excelClass, txt, false), run(excelClass, txt, true));
+      }
+    }
+  }
+
+  /**
+   * @return average milliseconds per parse
+   */
+  static double run(Class<? extends Excel> excelClass, TXT txt, boolean generated) {
+    int size = 0;
+    for (int i = 0; i < WARMUP; i++) size += EntryBinderTest.parse(excelClass, txt, generated).size();
+    final long start = System.nanoTime();
+    for (int i = 0; i < PARSES; i++) size += EntryBinderTest.parse(excelClass, txt, generated).size();
+    final double ms = (System.nanoTime() - start) / 1e6 / PARSES;
+    if (size == 0) throw new AssertionError(); // keeps the parses from being optimized away
+    return ms;
+  }
+}
@@ -0,0 +1,168 @@
+package com.riiablo.entity;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Compares ticks per second of {@link #NUM_ENTITIES} entities updated as individual objects, the
+ * way {@link Entity#update(float)} moves them, against an {@link EntityStore} with
+ * {@link MovementSystem}, {@link AnimationSystem} and {@link AiSystem}. Every entity walks random
+ * 8 node paths which it re-plans every 0.5-1.5s.
+ * <pre>
+ * java -cp ... com.riiablo.entity.EntityStoreBenchmark
+ * </pre>
+ */
+public class EntityStoreBenchmark {
+  private static final String TAG = "EntityStoreBenchmark";
+
+  static final int   NUM_ENTITIES = 10000;
+  static final int   PATH_LENGTH  = 8;
+  static final float DELTA        = 1 / 25f;
+  static final int   WARMUP       = 2000;
+  static final int   TICKS        = 5000;
+  static final int   ROUNDS       = 3;
+
+  public static void main(String[] args) {
+    for (int round = 0; round < ROUNDS; round++) {
+      System.out.printf("%s round %d: objects %.0f ticks/s, store %.0f ticks/s%n",
+          TAG, round, objects(), store());
+    }
+  }
+
+  static double objects() {
+    final Random random = new Random(1);
+    final Array<Walker> walkers = new Array<>(NUM_ENTITIES);
+    for (int i = 0; i < NUM_ENTITIES; i++) {
+      Walker walker = new Walker();
+      walker.position.set(random.nextInt(1000), random.nextInt(1000));
+      walker.numFrames = 8 + random.nextInt(8);
+      walker.aiDelay = 0.5f + random.nextFloat();
+      walker.aiTimer = walker.aiDelay;
+      walkers.add(walker);
+    }
+
+    walkers.shuffle(); // scatters them like entities loaded zone by zone
+    final Random brain = new Random(2);
+    return run(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0, s = walkers.size; i < s; i++) walkers.get(i).update(DELTA, brain);
+      }
+    });
+  }
+
+  static double store() {
+    final Random random = new Random(1);
+    final EntityStore store = new EntityStore();
+    store.addSystem(new MovementSystem());
+    store.addSystem(new AnimationSystem());
+    AiSystem ai = new AiSystem();
+    final Random brain = new Random(2);
+    final int[] xs = new int[PATH_LENGTH], ys = new int[PATH_LENGTH];
+    final byte walk = ai.addBrain(new AiSystem.Brain() {
+      @Override
+      public void think(EntityStore store, int id) {
+        int x = (int) store.getX(id), y = (int) store.getY(id);
+        for (int i = 0; i < PATH_LENGTH; i++) {
+          xs[i] = x += brain.nextInt(3) - 1;
+          ys[i] = y += brain.nextInt(3) - 1;
+        }
+
+        store.setPath(id, xs, ys, PATH_LENGTH);
+      }
+    });
+    store.addSystem(ai);
+
+    for (int i = 0; i < NUM_ENTITIES; i++) {
+      int id = store.create(random.nextInt(1000), random.nextInt(1000));
+      store.setSpeed(id, Walker.SPEED);
+      store.setModes(id, Walker.NEUTRAL, Walker.WALK);
+      store.setAnimation(id, 8 + random.nextInt(8), DELTA);
+      store.setBrain(id, walk, 0.5f + random.nextFloat());
+    }
+
+    return run(new Runnable() {
+      @Override
+      public void run() {
+        store.update(DELTA);
+      }
+    });
+  }
+
+  static double run(Runnable tick) {
+    for (int i = 0; i < WARMUP; i++) tick.run();
+    final long start = System.nanoTime();
+    for (int i = 0; i < TICKS; i++) tick.run();
+    return TICKS / ((System.nanoTime() - start) / 1e9);
+  }
+
+  /**
+   * Holds and moves its state like {@link Entity} does, which can't be created without assets.
+   */
+  static final class Walker {
+    static final float SPEED   = 6;
+    static final byte  NEUTRAL = 1;
+    static final byte  WALK    = 2;
+
+    final Vector2 position = new Vector2();
+    final Vector2 target   = new Vector2();
+    final Array<Vector2> path = new Array<>(PATH_LENGTH);
+    Iterator<Vector2> targets = Collections.emptyIterator();
+    byte  mode = NEUTRAL;
+    float animTime;
+    int   numFrames;
+    int   frame;
+    float aiTimer, aiDelay;
+
+    void update(float delta, Random brain) {
+      animTime += delta;
+      frame = (int) (animTime / DELTA) % numFrames;
+      if ((aiTimer -= delta) <= 0) {
+        aiTimer += aiDelay;
+        think(brain);
+      }
+
+      move(delta);
+    }
+
+    void think(Random brain) {
+      path.clear();
+      float x = position.x, y = position.y;
+      for (int i = 0; i < PATH_LENGTH; i++) {
+        path.add(new Vector2(x += brain.nextInt(3) - 1, y += brain.nextInt(3) - 1));
+      }
+
+      targets = new Array.ArrayIterator<>(path);
+      target.set(targets.next());
+    }
+
+    void move(float delta) {
+      if (position.epsilonEquals(target) && !targets.hasNext()) {
+        mode = NEUTRAL;
+        return;
+      }
+
+      mode = WALK;
+      float distance = SPEED * delta;
+      float traveled = 0;
+      while (traveled < distance) {
+        float targetLen = position.dst(target);
+        float part = Math.min(distance - traveled, targetLen);
+        if (part == 0) break;
+        position.lerp(target, part / targetLen);
+        traveled += part;
+        if (part == targetLen) {
+          if (targets.hasNext()) {
+            target.set(targets.next());
+          } else {
+            break;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.math.Vector2;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Compares paths per second and bytes allocated per search of {@link GridPathFinder} against the
+ * {@link IndexedAStarPathFinder} over {@link MapGraph} it replaced, on the random maps of
+ * {@link GridPathFinderTest} with the same seeded searches for both. Allocations are measured with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ * <pre>
+ * java -cp ... com.riiablo.map.GridPathFinderBenchmark
+ * </pre>
+ */
+public class GridPathFinderBenchmark {
+  private static final String TAG = "GridPathFinderBenchmark";
+
+  static final long SEED     = 0x6A1DL;
+  static final int  SEARCHES = 500;
+  static final int  WARMUP   = 2;
+  static final int  PASSES   = 4;
+  static final int  ROUNDS   = 3;
+
+  static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  public static void main(String[] args) {
+    final Random random = new Random(SEED);
+    final Map map = GridPathFinderTest.map(random);
+    final Map.Zone zone = map.zones.first();
+    final int[] searches = new int[SEARCHES * 4];
+    for (int i = 0; i < searches.length; ) {
+      final int srcX = random.nextInt(zone.width), srcY = random.nextInt(zone.height);
+      if (map.flags(srcX, srcY) != 0) continue;
+      searches[i++] = srcX;
+      searches[i++] = srcY;
+      searches[i++] = random.nextInt(zone.width);
+      searches[i++] = random.nextInt(zone.height);
+    }
+
+    final MapGraph graph = new MapGraph(map);
+    final IndexedAStarPathFinder<MapGraph.Point2> indexed = new IndexedAStarPathFinder<>(graph, true);
+    for (int round = 0; round < ROUNDS; round++) {
+      System.out.printf("%s round %d: indexed %s, grid %s%n", TAG, round,
+          run(map, graph, indexed, searches), run(map, null, null, searches));
+    }
+  }
+
+  /**
+   * Runs every search {@link #PASSES} times, with {@code indexed} if set, otherwise with
+   * {@link GridPathFinder}.
+   */
+  static String run(Map map, MapGraph graph, IndexedAStarPathFinder<MapGraph.Point2> indexed, int[] searches) {
+    final MapGraph.MapGraphPath path = new MapGraph.MapGraphPath();
+    final Vector2 src = new Vector2(), dst = new Vector2();
+    final long thread = Thread.currentThread().getId();
+    int found = 0;
+    for (int i = 0; i < WARMUP; i++) found += pass(map, graph, indexed, searches, path, src, dst);
+    final long bytes = THREADS.getThreadAllocatedBytes(thread);
+    final long start = System.nanoTime();
+    for (int i = 0; i < PASSES; i++) found += pass(map, graph, indexed, searches, path, src, dst);
+    final double seconds = (System.nanoTime() - start) / 1e9;
+    final double allocated = THREADS.getThreadAllocatedBytes(thread) - bytes;
+    if (found == 0) throw new AssertionError(); // keeps the searches from being optimized away
+    final int count = PASSES * SEARCHES;
+    return String.format("%.0f paths/s %.0f bytes/search", count / seconds, allocated / count);
+  }
+
+  static int pass(Map map, MapGraph graph, IndexedAStarPathFinder<MapGraph.Point2> indexed, int[] searches,
+                  MapGraph.MapGraphPath path, Vector2 src, Vector2 dst) {
+    final GridPathFinder grid = GridPathFinder.get();
+    int found = 0;
+    for (int i = 0; i < searches.length; i += 4) {
+      final boolean success = indexed != null
+          ? graph.searchNodePath(indexed, src.set(searches[i], searches[i + 1]), dst.set(searches[i + 2], searches[i + 3]), path)
+          : grid.search(map, searches[i], searches[i + 1], searches[i + 2], searches[i + 3], path);
+      if (success) found++;
+    }
+
+    return found;
+  }
+}
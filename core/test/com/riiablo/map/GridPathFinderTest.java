@@ -0,0 +1,111 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.math.Vector2;
+import com.riiablo.map.DT1.Tile;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Searches seeded random paths across random maps with {@link GridPathFinder} and with the
+ * {@link IndexedAStarPathFinder} over {@link MapGraph} it replaced, which must agree on which paths
+ * exist within the window of {@link GridPathFinder}. Paths found may not be longer than the old
+ * ones, a few of which are slightly longer than optimal. Maps are 200x200 sub-tiles, small
+ * enough that the lossy {@link MapGraph.Point2#hash} of the old graph has no collisions.
+ */
+public class GridPathFinderTest {
+  private static final long  SEED     = 0x6A1DL;
+  private static final int   MAPS     = 8;
+  private static final int   SEARCHES = 256;
+  private static final int   WALLS    = 24;
+  private static final float DENSITY  = 0.15f;
+
+  static Map map(Random random) {
+    Map map = Map.blank(0, 8, 5, 5);
+    Map.Zone zone = map.zones.first();
+    for (int x = 0; x < zone.width; x++) {
+      for (int y = 0; y < zone.height; y++) {
+        if (random.nextFloat() < DENSITY) zone.flags[x][y] = Tile.FLAG_BLOCK_WALK;
+      }
+    }
+
+    HierarchicalPathFinderTest.walls(random, zone, WALLS);
+    return map;
+  }
+
+  /**
+   * @return whether or not every sub-tile of {@code path} is within the window
+   *         {@link GridPathFinder} searches for the given sub-tiles
+   */
+  static boolean inWindow(MapGraph.MapGraphPath path, int srcX, int srcY, int dstX, int dstY) {
+    final int xMin = Math.min(srcX, dstX) - GridPathFinder.PADDING, xMax = Math.max(srcX, dstX) + GridPathFinder.PADDING;
+    final int yMin = Math.min(srcY, dstY) - GridPathFinder.PADDING, yMax = Math.max(srcY, dstY) + GridPathFinder.PADDING;
+    for (int i = 0, s = path.getCount(); i < s; i++) {
+      MapGraph.Point2 point = path.get(i);
+      if (point.x < xMin || point.x > xMax || point.y < yMin || point.y > yMax) return false;
+    }
+
+    return true;
+  }
+
+  @Test
+  public void matchesIndexedAStar() {
+    Random random = new Random(SEED);
+    final MapGraph.MapGraphPath expected = new MapGraph.MapGraphPath();
+    final MapGraph.MapGraphPath actual = new MapGraph.MapGraphPath();
+    final Vector2 src = new Vector2(), dst = new Vector2();
+    int found = 0, shorter = 0;
+    for (int i = 0; i < MAPS; i++) {
+      Map map = map(random);
+      Map.Zone zone = map.zones.first();
+      MapGraph graph = new MapGraph(map);
+      IndexedAStarPathFinder<MapGraph.Point2> indexed = new IndexedAStarPathFinder<>(graph);
+      for (int j = 0; j < SEARCHES; ) {
+        final int srcX = random.nextInt(zone.width), srcY = random.nextInt(zone.height);
+        final int dstX = random.nextInt(zone.width), dstY = random.nextInt(zone.height);
+        if (map.flags(srcX, srcY) != 0) continue;
+        j++;
+
+        final String message = srcX + "," + srcY + " -> " + dstX + "," + dstY;
+        final boolean success = graph.searchNodePath(indexed, src.set(srcX, srcY), dst.set(dstX, dstY), expected);
+        final boolean inWindow = success && inWindow(expected, srcX, srcY, dstX, dstY);
+        final boolean grid = GridPathFinder.get().search(map, srcX, srcY, dstX, dstY, actual);
+        if (success && !inWindow) {
+          // only detours past the window may be missed
+          if (grid) HierarchicalPathFinderTest.cost(map, actual, srcX, srcY, dstX, dstY);
+          continue;
+        }
+
+        assertEquals(message, success, grid);
+        if (!success) continue;
+
+        found++;
+        final float indexedCost = HierarchicalPathFinderTest.cost(map, expected, srcX, srcY, dstX, dstY);
+        final float gridCost = HierarchicalPathFinderTest.cost(map, actual, srcX, srcY, dstX, dstY);
+        assertTrue(message + " " + gridCost + " > " + indexedCost, gridCost <= indexedCost + 1e-3f);
+        if (gridCost < indexedCost - 1e-3f) shorter++;
+      }
+    }
+
+    assertTrue(found > MAPS * SEARCHES / 2);
+    assertTrue(shorter + " of " + found, shorter < found / 100);
+  }
+
+  @Test
+  public void failsPastMaxSize() {
+    Map map = Map.blank(0, 8, 14, 1);
+    assertTrue(map.zones.first().width > GridPathFinder.MAX_SIZE);
+    final MapGraph.MapGraphPath path = new MapGraph.MapGraphPath();
+    final GridPathFinder grid = GridPathFinder.get();
+    assertTrue(grid.search(map, 0, 0, GridPathFinder.MAX_SIZE - 1, 0, path));
+    assertEquals(GridPathFinder.MAX_SIZE, path.getCount());
+    assertFalse(grid.search(map, 0, 0, GridPathFinder.MAX_SIZE, 0, path));
+    assertTrue(path.isEmpty());
+  }
+}
@@ -0,0 +1,238 @@
+package com.riiablo.map;
+
+import com.riiablo.map.DT1.Tile;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Searches seeded random long-range paths across the clusters of random maps with
+ * {@link HierarchicalPathFinder} and with an A* search of the whole zone, before and after
+ * cells of the map change. {@link GridPathFinder} isn't the reference since it doesn't search past
+ * its window and misses some long detours.
+ */
+public class HierarchicalPathFinderTest {
+  private static final long  SEED      = 0x48A7L;
+  private static final int   MAPS      = 4;
+  private static final int   SEARCHES  = 64;
+  private static final int   WALLS     = 48;
+
+  /** paths may be this much longer than optimal, and this much on average */
+  private static final float MAX_RATIO  = 2;
+  private static final float MEAN_RATIO = 1.1f;
+
+  private static final float DIAGONAL = (float) Math.sqrt(2);
+
+  static Map map(Random random) {
+    Map map = Map.blank(0, 8, 10, 10);
+    walls(random, map.zones.first(), WALLS);
+    return map;
+  }
+
+  /**
+   * Adds walls of random length and direction, which paths have to go around.
+   */
+  static void walls(Random random, Map.Zone zone, int count) {
+    for (int i = 0; i < count; i++) {
+      final boolean vertical = random.nextBoolean();
+      final int line = random.nextInt(vertical ? zone.width : zone.height);
+      final int length = vertical ? zone.height : zone.width;
+      final int from = random.nextInt(length), to = Math.min(length, from + 16 + random.nextInt(96));
+      for (int j = from; j < to; j++) {
+        if (vertical) {
+          zone.flags[line][j] = Tile.FLAG_BLOCK_WALK;
+        } else {
+          zone.flags[j][line] = Tile.FLAG_BLOCK_WALK;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the cost of {@code path}, after checking it connects the given sub-tiles through
+   *         adjacent walkable ones
+   */
+  static float cost(Map map, MapGraph.MapGraphPath path, int srcX, int srcY, int dstX, int dstY) {
+    assertEquals(srcX, path.get(0).x);
+    assertEquals(srcY, path.get(0).y);
+    MapGraph.Point2 last = path.get(path.getCount() - 1);
+    assertEquals(dstX, last.x);
+    assertEquals(dstY, last.y);
+
+    float cost = 0;
+    for (int i = 1, s = path.getCount(); i < s; i++) {
+      MapGraph.Point2 a = path.get(i - 1), b = path.get(i);
+      final int dx = Math.abs(b.x - a.x), dy = Math.abs(b.y - a.y);
+      assertTrue(a + " -> " + b, Math.max(dx, dy) == 1);
+      assertEquals(b.toString(), 0, map.flags(b.x, b.y));
+      cost += dx + dy == 2 ? DIAGONAL : 1;
+    }
+
+    return cost;
+  }
+
+  /**
+   * A* search of the whole zone, without the window of {@link GridPathFinder}.
+   *
+   * @return cost of the shortest path between the given sub-tiles within {@code zone}, or
+   *         {@link Float#POSITIVE_INFINITY} if there's none
+   */
+  static float distance(Map.Zone zone, int srcX, int srcY, int dstX, int dstY) {
+    final float[] costs = new float[zone.width * zone.height];
+    Arrays.fill(costs, Float.POSITIVE_INFINITY);
+    final PriorityQueue<float[]> open = new PriorityQueue<>(1024, new Comparator<float[]>() {
+      @Override
+      public int compare(float[] a, float[] b) {
+        return Float.compare(a[0], b[0]);
+      }
+    });
+
+    costs[srcX * zone.height + srcY] = 0;
+    open.add(new float[] { GridPathFinder.heuristic(srcX, srcY, dstX, dstY), 0, srcX, srcY });
+    while (!open.isEmpty()) {
+      final float[] node = open.poll();
+      final float g = node[1];
+      final int x = (int) node[2], y = (int) node[3];
+      if (g > costs[x * zone.height + y]) continue;
+      if (x == dstX && y == dstY) return g;
+      for (int i = 0; i < 8; i++) {
+        final int nx = x + GridPathFinder.DX[i], ny = y + GridPathFinder.DY[i];
+        if (nx < 0 || nx >= zone.width || ny < 0 || ny >= zone.height || zone.flags[nx][ny] != 0) continue;
+        final float cost = g + (nx != x && ny != y ? DIAGONAL : 1);
+        if (cost < costs[nx * zone.height + ny]) {
+          costs[nx * zone.height + ny] = cost;
+          open.add(new float[] { cost + GridPathFinder.heuristic(nx, ny, dstX, dstY), cost, nx, ny });
+        }
+      }
+    }
+
+    return Float.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Compares {@code searches} random long-range searches of the map's {@link HierarchicalPathFinder}
+   * with the optimal paths of the whole grid, and if {@code rebuilt}, with the paths of a finder
+   * which builds its graph from scratch, which an invalidated graph should match exactly.
+   *
+   * @return number of paths found
+   */
+  static int compare(Random random, Map map, int searches, boolean rebuilt) {
+    final Map.Zone zone = map.zones.first();
+    final HierarchicalPathFinder pathFinder = map.pathFinder;
+    final HierarchicalPathFinder reference = rebuilt ? new HierarchicalPathFinder(map) : null;
+    final MapGraph.MapGraphPath actual = new MapGraph.MapGraphPath();
+    final MapGraph.MapGraphPath expected = new MapGraph.MapGraphPath();
+    float ratios = 0;
+    int found = 0;
+    for (int i = 0; i < searches; ) {
+      final int srcX = random.nextInt(zone.width), srcY = random.nextInt(zone.height);
+      final int dstX = random.nextInt(zone.width), dstY = random.nextInt(zone.height);
+      if (GridPathFinder.heuristic(srcX, srcY, dstX, dstY) < HierarchicalPathFinder.SHORT_RANGE) continue;
+      if (map.flags(srcX, srcY) != 0 || map.flags(dstX, dstY) != 0) continue;
+      i++;
+
+      final String message = srcX + "," + srcY + " -> " + dstX + "," + dstY;
+      final float optimal = distance(zone, srcX, srcY, dstX, dstY);
+      final boolean success = optimal != Float.POSITIVE_INFINITY;
+      assertEquals(message, success, pathFinder.search(srcX, srcY, dstX, dstY, actual));
+      assertTrue(pathFinder.built);
+      if (!success) continue;
+
+      found++;
+      final float cost = cost(map, actual, srcX, srcY, dstX, dstY);
+      assertTrue(message + " " + cost + " < " + optimal, cost >= optimal - 1e-3f);
+      assertTrue(message + " " + cost + " > " + optimal, cost <= optimal * MAX_RATIO);
+      ratios += cost / optimal;
+      if (reference != null) {
+        assertTrue(message, reference.search(srcX, srcY, dstX, dstY, expected));
+        assertEquals(message, cost(map, expected, srcX, srcY, dstX, dstY), cost, 1e-3f);
+      }
+    }
+
+    assertTrue(ratios / found + " > " + MEAN_RATIO, found == 0 || ratios / found <= MEAN_RATIO);
+    return found;
+  }
+
+  @Test
+  public void matchesGrid() {
+    Random random = new Random(SEED);
+    for (int i = 0; i < MAPS; i++) {
+      assertTrue(compare(random, map(random), SEARCHES, false) > SEARCHES / 2);
+    }
+  }
+
+  @Test
+  public void matchesGridAfterInvalidatingCells() {
+    Random random = new Random(SEED);
+    for (int i = 0; i < MAPS; i++) {
+      Map map = map(random);
+      Map.Zone zone = map.zones.first();
+      compare(random, map, SEARCHES / 4, false);
+
+      // wall off some cells entirely and clear others, so their entrances move or disappear
+      final int size = zone.gridSizeX * Tile.SUBTILE_SIZE;
+      for (int j = 0; j < 8; j++) {
+        final int gridX = random.nextInt(zone.gridsX), gridY = random.nextInt(zone.gridsY);
+        final boolean block = j % 2 == 0;
+        for (int x = gridX * size, xEnd = x + size; x < xEnd; x++) {
+          for (int y = gridY * size, yEnd = y + size; y < yEnd; y++) {
+            zone.flags[x][y] = (byte) (block && (x == gridX * size || y == gridY * size) ? Tile.FLAG_BLOCK_WALK : 0);
+          }
+        }
+
+        map.invalidatePathing(zone, gridX, gridY);
+      }
+
+      assertTrue(compare(random, map, SEARCHES, true) > SEARCHES / 2);
+    }
+  }
+
+  @Test
+  public void loadInvalidatesPathing() {
+    Random random = new Random(SEED);
+    Map map = map(random);
+    final Map.Zone zone = map.zones.first();
+    zone.bits();
+    compare(random, map, SEARCHES / 4, false);
+    final PathService paths = map.paths();
+    try {
+      assertNotNull(paths.snapshot());
+
+      final Random walls = new Random(SEED);
+      zone.generator = new Map.Zone.Generator() {
+        @Override
+        public void generate(Map.Zone zone, DT1s dt1s, int tx, int ty) {
+          final int size = zone.gridSizeX * Tile.SUBTILE_SIZE;
+          final int x0 = tx * Tile.SUBTILE_SIZE, y0 = ty * Tile.SUBTILE_SIZE;
+          for (int x = x0; x < x0 + size; x++) {
+            for (int y = y0; y < y0 + size; y++) {
+              zone.flags[x][y] = (byte) (walls.nextInt(8) == 0 ? Tile.FLAG_BLOCK_WALK : 0);
+            }
+          }
+        }
+      };
+      zone.load(null);
+
+      final FlagBits bits = zone.bits();
+      final Map.Zone copy = paths.snapshot.zones.first();
+      for (int x = 0; x < zone.width; x++) {
+        for (int y = 0; y < zone.height; y++) {
+          assertEquals(x + "," + y, zone.flags[x][y] == 0, bits.isWalkable(x, y));
+          assertEquals(x + "," + y, zone.flags[x][y], copy.flags[x][y]);
+        }
+      }
+
+      compare(random, map, SEARCHES / 4, true);
+    } finally {
+      paths.dispose();
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.ai.utils.Collision;
+import com.badlogic.gdx.ai.utils.Ray;
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.Random;
+
+/**
+ * Compares nanoseconds per ray of {@link MapGraph.MapRaycastCollisionDetector}, which tests rows of
+ * sub-tiles against {@link FlagBits}, against the per-point Bresenham walk it replaced, for both
+ * {@code collides} and {@code findCollision}. Maps and rays are the seeded random ones of
+ * {@link MapRaycastCollisionDetectorTest}, at each of its densities.
+ * <pre>
+ * java -cp ... com.riiablo.map.MapRaycastCollisionDetectorBenchmark
+ * </pre>
+ */
+public class MapRaycastCollisionDetectorBenchmark {
+  private static final String TAG = "MapRaycastCollisionDetectorBenchmark";
+
+  static final long    SEED      = 0x4A7L;
+  static final float[] DENSITY   = { 0, 0.002f, 0.02f, 0.2f };
+  static final int     RAYS      = 4096;
+  static final int     WARMUP    = 200;
+  static final int     PASSES    = 500;
+  static final int     ROUNDS    = 3;
+
+  /** keeps the traces from being optimized away */
+  static volatile int sink;
+
+  public static void main(String[] args) {
+    final Random random = new Random(SEED);
+    for (float density : DENSITY) {
+      final Map map = MapRaycastCollisionDetectorTest.map(random, density);
+      final MapGraph.MapRaycastCollisionDetector detector
+          = new MapGraph.MapRaycastCollisionDetector(new MapGraph(map));
+      @SuppressWarnings("unchecked")
+      final Ray<Vector2>[] rays = new Ray[RAYS];
+      for (int i = 0; i < RAYS; i++) rays[i] = MapRaycastCollisionDetectorTest.ray(random);
+      for (int round = 0; round < ROUNDS; round++) {
+        System.out.printf("%s density %.3f round %d: collides per-point %.1f ns/ray, bits %.1f ns/ray;"
+            + " findCollision per-point %.1f ns/ray, bits %.1f ns/ray%n",
+            TAG, density, round,
+            run(map, null, rays, false), run(map, detector, rays, false),
+            run(map, null, rays, true), run(map, detector, rays, true));
+      }
+    }
+  }
+
+  /**
+   * @return average nanoseconds per ray, with {@code detector} if set, otherwise walking every point
+   */
+  static double run(Map map, MapGraph.MapRaycastCollisionDetector detector, Ray<Vector2>[] rays, boolean find) {
+    final Collision<Vector2> collision = new Collision<>(new Vector2(), new Vector2());
+    int hits = 0;
+    for (int i = 0; i < WARMUP; i++) hits += pass(map, detector, rays, find ? collision : null);
+    final long start = System.nanoTime();
+    for (int i = 0; i < PASSES; i++) hits += pass(map, detector, rays, find ? collision : null);
+    final double ns = (double) (System.nanoTime() - start) / PASSES / rays.length;
+    sink = hits;
+    return ns;
+  }
+
+  static int pass(Map map, MapGraph.MapRaycastCollisionDetector detector, Ray<Vector2>[] rays, Collision<Vector2> collision) {
+    int hits = 0;
+    for (Ray<Vector2> ray : rays) {
+      final boolean hit;
+      if (detector != null) {
+        hit = collision != null ? detector.findCollision(collision, ray) : detector.collides(ray);
+      } else {
+        hit = MapRaycastCollisionDetectorTest.findCollision(map, collision, ray);
+      }
+
+      if (hit) hits++;
+    }
+
+    return hits;
+  }
+}
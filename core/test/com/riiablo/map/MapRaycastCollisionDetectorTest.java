@@ -0,0 +1,183 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.ai.utils.Collision;
+import com.badlogic.gdx.ai.utils.Ray;
+import com.badlogic.gdx.math.Vector2;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Traces seeded random rays across random maps with {@link MapGraph.MapRaycastCollisionDetector}
+ * and with the per-point Bresenham walk it replaced, which looked up the zone and flags of every
+ * point. Each map has two adjacent zones and a third past a gap, so rays cross zone borders, leave
+ * every zone and start or end off the map.
+ */
+public class MapRaycastCollisionDetectorTest {
+  private static final long  SEED    = 0x4A7L;
+  private static final int   MAPS    = 16;
+  private static final int   RAYS    = 4096;
+  private static final float DENSITY[] = { 0, 0.002f, 0.02f, 0.2f };
+
+  /** sub-tiles rays may start or end at beyond the bounds of the zones */
+  private static final int MARGIN = 8;
+
+  static Map map(Random random, float density) {
+    Map map = Map.blank(0, 8, 2, 4);
+    Map.Zone right = new Map.Zone(map, 8, 2, 4);
+    right.setPosition(80, 0);
+    map.zones.add(right);
+    Map.Zone far = new Map.Zone(map, 8, 2, 4);
+    far.setPosition(180, 0);
+    map.zones.add(far);
+    map.invalidateZones();
+
+    for (Map.Zone zone : map.zones) {
+      for (int x = 0; x < zone.width; x++) {
+        for (int y = 0; y < zone.height; y++) {
+          if (random.nextFloat() < density) zone.flags[x][y] = (byte) (1 << random.nextInt(8));
+        }
+      }
+
+      // a few walls, so long rays hit something at low densities too
+      for (int i = 0; i < 2; i++) {
+        final boolean vertical = random.nextBoolean();
+        final int line = random.nextInt(vertical ? zone.width : zone.height);
+        final int length = vertical ? zone.height : zone.width;
+        final int from = random.nextInt(length / 2), to = from + random.nextInt(length / 2);
+        for (int j = from; j < to; j++) {
+          if (vertical) {
+            zone.flags[line][j] = DT1.Tile.FLAG_BLOCK_WALK;
+          } else {
+            zone.flags[j][line] = DT1.Tile.FLAG_BLOCK_WALK;
+          }
+        }
+      }
+    }
+
+    return map;
+  }
+
+  static Ray<Vector2> ray(Random random) {
+    final int width = 260 + 2 * MARGIN, height = 160 + 2 * MARGIN;
+    Vector2 start = new Vector2(
+        random.nextFloat() * width - MARGIN,
+        random.nextFloat() * height - MARGIN);
+    Vector2 end = new Vector2();
+    switch (random.nextInt(4)) {
+      case 0: // horizontal
+        end.set(random.nextFloat() * width - MARGIN, start.y);
+        break;
+      case 1: // vertical
+        end.set(start.x, random.nextFloat() * height - MARGIN);
+        break;
+      case 2: // diagonal
+        final float d = random.nextFloat() * 64 - 32;
+        end.set(start.x + d, start.y + (random.nextBoolean() ? d : -d));
+        break;
+      default:
+        if (random.nextBoolean()) {
+          end.set(random.nextFloat() * width - MARGIN, random.nextFloat() * height - MARGIN);
+        } else {
+          end.set(start.x + random.nextFloat() * 32 - 16, start.y + random.nextFloat() * 32 - 16);
+        }
+    }
+
+    return new Ray<>(start, end);
+  }
+
+  @Test
+  public void traceMatchesPerPoint() {
+    final Random random = new Random(SEED);
+    int hits = 0, misses = 0, blockedStarts = 0;
+    for (int i = 0; i < MAPS; i++) {
+      final float density = DENSITY[i % DENSITY.length];
+      final Map map = map(random, density);
+      final MapGraph.MapRaycastCollisionDetector detector
+          = new MapGraph.MapRaycastCollisionDetector(new MapGraph(map));
+      final Collision<Vector2> actual = new Collision<>(new Vector2(), new Vector2());
+      final Collision<Vector2> expected = new Collision<>(new Vector2(), new Vector2());
+      for (int j = 0; j < RAYS; j++) {
+        final Ray<Vector2> ray = ray(random);
+        final String message = "map " + i + " (density " + density + ") ray " + ray.start + " -> " + ray.end;
+        final boolean hit = collides(map, ray);
+        assertEquals(message, hit, detector.collides(ray));
+        assertEquals(message, hit, findCollision(map, expected, ray));
+        assertEquals(message, hit, detector.findCollision(actual, ray));
+        assertEquals(message, expected.point, actual.point);
+        if (!hit) {
+          misses++;
+        } else {
+          hits++;
+          if (map.flags((int) ray.start.x, (int) ray.start.y) != 0) blockedStarts++;
+        }
+      }
+    }
+
+    assertTrue("hits=" + hits, hits > MAPS * RAYS / 8);
+    assertTrue("misses=" + misses, misses > MAPS * RAYS / 8);
+    assertTrue("blockedStarts=" + blockedStarts, blockedStarts > 0);
+  }
+
+  /**
+   * The per-point walk of {@code MapRaycastCollisionDetector#collides} before rows of points were
+   * tested against {@link FlagBits}.
+   */
+  static boolean collides(Map map, Ray<Vector2> ray) {
+    return findCollision(map, null, ray);
+  }
+
+  /**
+   * The per-point walk of {@code MapRaycastCollisionDetector#findCollision} before rows of points
+   * were tested against {@link FlagBits}.
+   */
+  static boolean findCollision(Map map, Collision<Vector2> dst, Ray<Vector2> ray) {
+    int x0 = (int) ray.start.x;
+    int y0 = (int) ray.start.y;
+    int x1 = (int) ray.end.x;
+    int y1 = (int) ray.end.y;
+
+    int tmp;
+    boolean steep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
+    if (steep) {
+      tmp = x0;
+      x0 = y0;
+      y0 = tmp;
+      tmp = x1;
+      x1 = y1;
+      y1 = tmp;
+    }
+    if (x0 > x1) {
+      tmp = x0;
+      x0 = x1;
+      x1 = tmp;
+      tmp = y0;
+      y0 = y1;
+      y1 = tmp;
+    }
+
+    int deltax = x1 - x0;
+    int deltay = Math.abs(y1 - y0);
+    int error = 0;
+    int y = y0;
+    int ystep = (y0 < y1 ? 1 : -1);
+    if (dst != null) dst.point.set(steep ? y0 : x0, steep ? x0 : y0);
+    for (int x = x0; x <= x1; x++) {
+      final int px = steep ? y : x, py = steep ? x : y;
+      Map.Zone zone = map.getZone(px, py);
+      if (zone == null || zone.flags(px, py) != 0) return true;
+      if (dst != null) dst.point.set(px, py);
+      error += deltay;
+      if (error + error >= deltax) {
+        y += ystep;
+        error -= deltax;
+      }
+    }
+
+    return false;
+  }
+}
@@ -0,0 +1,81 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.math.Vector2;
+import com.riiablo.CharacterClass;
+import com.riiablo.entity.Player;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Requests paths long enough to go through the abstract graph of {@link HierarchicalPathFinder},
+ * which each new snapshot builds on a worker thread for its first long search.
+ */
+public class PathServiceTest {
+  @Before
+  public void setUp() throws Exception {
+    new HeadlessApplication(new ApplicationAdapter() {}, new HeadlessApplicationConfiguration());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Gdx.app.exit();
+  }
+
+  /**
+   * Runs {@link PathService#update()} until every request has been delivered.
+   */
+  static void drain(PathService paths) throws InterruptedException {
+    while (paths.getQueueDepth() > 0) {
+      paths.update();
+      Thread.sleep(1);
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void longRangeOnNewSnapshot() throws InterruptedException {
+    Map map = Map.blank(1, 8, 10, 10);
+    PathService paths = map.paths();
+    try {
+      for (int i = 0; i < 2; i++) {
+        Player player = new Player("player", CharacterClass.BARBARIAN);
+        player.position().set(1, 1);
+        assertTrue(GridPathFinder.heuristic(1, 1, 300, 300) >= HierarchicalPathFinder.SHORT_RANGE);
+        player.requestPath(map, new Vector2(300, 300));
+        drain(paths);
+
+        assertTrue(paths.snapshot.pathFinder.built);
+        assertEquals(i + 1, paths.getDelivered());
+        MapGraph.MapGraphPath path = player.path();
+        assertFalse(path.isEmpty());
+        MapGraph.Point2 last = path.get(path.getCount() - 1);
+        assertEquals(300, last.x);
+        assertEquals(300, last.y);
+
+        paths.invalidate(); // the next request searches a new snapshot
+      }
+    } finally {
+      paths.dispose();
+    }
+  }
+
+  @Test(timeout = 10000, expected = IllegalStateException.class)
+  public void buildUnderReadLockFails() {
+    HierarchicalPathFinder pathFinder = Map.blank(1, 8, 10, 10).snapshot().pathFinder;
+    pathFinder.lock.readLock().lock();
+    try {
+      pathFinder.search(1, 1, 300, 300, new MapGraph.MapGraphPath());
+    } finally {
+      pathFinder.lock.readLock().unlock();
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.riiablo.map;
+
+import java.util.Random;
+
+/**
+ * Compares nanoseconds per {@link Map#getZone(int, int)} query of {@link ZoneIndex} against the
+ * linear scan over {@link Map#zones} it replaced, on random maps of {@link ZoneIndexTest} with 3, 30
+ * and 300 zones. Queries are seeded random points over the bounds of the zones.
+ * <pre>
+ * java -cp ... com.riiablo.map.ZoneIndexBenchmark
+ * </pre>
+ */
+public class ZoneIndexBenchmark {
+  private static final String TAG = "ZoneIndexBenchmark";
+
+  static final long  SEED    = 0x2031L;
+  static final int[] ZONES   = { 3, 30, 300 };
+  static final int   QUERIES = 1 << 16;
+  static final int   WARMUP  = 50;
+  static final int   PASSES  = 200;
+  static final int   ROUNDS  = 3;
+
+  public static void main(String[] args) {
+    final Random random = new Random(SEED);
+    for (int numZones : ZONES) {
+      final Map map = ZoneIndexTest.map(random, numZones);
+      final ZoneIndex index = map.zoneIndex();
+      final int[] queries = new int[QUERIES * 2];
+      for (int i = 0; i < queries.length; i++) queries[i] = random.nextInt(1024) - 256;
+      for (int round = 0; round < ROUNDS; round++) {
+        System.out.printf("%s %d zones round %d: scan %.1f ns/query, index %.1f ns/query%n",
+            TAG, numZones, round, run(map, null, queries), run(map, index, queries));
+      }
+    }
+  }
+
+  /**
+   * @return average nanoseconds per query, with {@code index} if set, otherwise scanning the zones
+   */
+  static double run(Map map, ZoneIndex index, int[] queries) {
+    int found = 0;
+    for (int i = 0; i < WARMUP; i++) found += pass(map, index, queries);
+    final long start = System.nanoTime();
+    for (int i = 0; i < PASSES; i++) found += pass(map, index, queries);
+    final double ns = (double) (System.nanoTime() - start) / PASSES / QUERIES;
+    if (found == 0) throw new AssertionError(); // keeps the queries from being optimized away
+    return ns;
+  }
+
+  static int pass(Map map, ZoneIndex index, int[] queries) {
+    int found = 0;
+    for (int i = 0; i < queries.length; i += 2) {
+      final Map.Zone zone = index != null
+          ? index.get(queries[i], queries[i + 1])
+          : ZoneIndexTest.scan(map, queries[i], queries[i + 1]);
+      if (zone != null) found++;
+    }
+
+    return found;
+  }
+}
@@ -0,0 +1,117 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.utils.Array;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Queries seeded random points and rectangles of random maps with {@link ZoneIndex} and with the
+ * linear scan over {@link Map#zones} it replaced. Zones overlap, some are empty, and some start at
+ * negative sub-tiles, so queries hit cells shared by several zones and fall off the index.
+ */
+public class ZoneIndexTest {
+  private static final long SEED    = 0x2031L;
+  private static final int  MAPS    = 32;
+  private static final int  QUERIES = 4096;
+  private static final int  SIZES[] = { 0, 1, 3, 30 };
+
+  /** sub-tiles queries may fall beyond the bounds of the zones */
+  private static final int MARGIN = 64;
+
+  static Map map(Random random, int numZones) {
+    Map map = Map.blank(0, 1, 0, 0);
+    map.zones.clear();
+    for (int i = 0; i < numZones; i++) {
+      final int gridsX = random.nextInt(8) == 0 ? 0 : 1 + random.nextInt(3);
+      Map.Zone zone = new Map.Zone(map, 1 + random.nextInt(8), gridsX, 1 + random.nextInt(3));
+      zone.setPosition(random.nextInt(1024) - 256, random.nextInt(1024) - 256);
+      map.zones.add(zone);
+    }
+
+    map.invalidateZones();
+    return map;
+  }
+
+  /**
+   * @return the first zone containing the given sub-tile, the way {@link Map#getZone} used to
+   */
+  static Map.Zone scan(Map map, int x, int y) {
+    for (Map.Zone zone : map.zones) {
+      if (zone.contains(x, y)) return zone;
+    }
+
+    return null;
+  }
+
+  @Test
+  public void getMatchesScan() {
+    Random random = new Random(SEED);
+    for (int i = 0; i < MAPS; i++) {
+      Map map = map(random, SIZES[i % SIZES.length]);
+      ZoneIndex index = new ZoneIndex(map.zones);
+      for (int j = 0; j < QUERIES; j++) {
+        final int x, y;
+        if (map.zones.size > 0 && random.nextBoolean()) {
+          // near a zone corner, where cells and zones begin and end
+          Map.Zone zone = map.zones.random();
+          x = zone.x + (random.nextBoolean() ? 0 : zone.width)  + random.nextInt(3) - 1;
+          y = zone.y + (random.nextBoolean() ? 0 : zone.height) + random.nextInt(3) - 1;
+        } else {
+          x = random.nextInt(1024 + 2 * MARGIN) - 256 - MARGIN;
+          y = random.nextInt(1024 + 2 * MARGIN) - 256 - MARGIN;
+        }
+
+        assertSame(x + "," + y, scan(map, x, y), index.get(x, y));
+        assertSame(x + "," + y, scan(map, x, y), map.getZone(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void getRectMatchesScan() {
+    Random random = new Random(SEED);
+    final Array<Map.Zone> zones = new Array<>();
+    for (int i = 0; i < MAPS; i++) {
+      Map map = map(random, SIZES[i % SIZES.length]);
+      ZoneIndex index = new ZoneIndex(map.zones);
+      for (int j = 0; j < QUERIES; j++) {
+        final int x = random.nextInt(1024 + 2 * MARGIN) - 256 - MARGIN;
+        final int y = random.nextInt(1024 + 2 * MARGIN) - 256 - MARGIN;
+        final int width = random.nextInt(256) - 8, height = random.nextInt(256) - 8;
+        final String message = x + "," + y + " " + width + "x" + height;
+        zones.clear();
+        index.get(x, y, width, height, zones);
+
+        int expected = 0;
+        for (Map.Zone zone : map.zones) {
+          final boolean overlaps = width > 0 && height > 0 && zone.width > 0 && zone.height > 0
+              && ZoneIndex.overlaps(zone, x, y, width, height);
+          if (overlaps) expected++;
+          assertEquals(message, overlaps, zones.contains(zone, true));
+        }
+
+        assertEquals(message, expected, zones.size);
+      }
+    }
+  }
+
+  @Test
+  public void rebuiltWhenZonesMove() {
+    Map map = map(new Random(SEED), 3);
+    Map.Zone zone = map.zones.first();
+    final int x = zone.x, y = zone.y;
+    assertSame(zone, map.getZone(x, y));
+    zone.setPosition(4096, 4096);
+    assertTrue(scan(map, x, y) != zone);
+    assertSame(scan(map, x, y), map.getZone(x, y));
+    assertSame(zone, map.getZone(4096, 4096));
+    assertNull(map.getZone(-4096, -4096));
+  }
+}
@@ -0,0 +1,143 @@
+package com.riiablo.mpq;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import com.riiablo.mpq.MPQ.HashTable.Entry;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fills {@link MPQCache} with arrays of known sizes and reads files of an archive written by
+ * {@link MPQIndexTest.Table} through it.
+ */
+public class MPQCacheTest {
+  private static final long SEED   = 0xCAC4EL;
+  private static final int  BUDGET = 400;
+  private static final int  PUTS   = 1024;
+
+  private static final String SMALL = "data\\global\\excel\\small.txt";
+  private static final String LARGE = "data\\global\\excel\\large.txt";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  MPQ mpq;
+  byte[] small, large;
+
+  @Before
+  public void setUp() throws Exception {
+    new HeadlessApplication(new ApplicationAdapter() {}, new HeadlessApplicationConfiguration());
+    Random random = new Random(SEED);
+    small = new byte[BUDGET / 4];
+    large = new byte[BUDGET / 4 + 1];
+    random.nextBytes(small);
+    random.nextBytes(large);
+
+    MPQIndexTest.Table table = new MPQIndexTest.Table(16);
+    table.insert(SMALL, Entry.DEFAULT_LOCALE, small);
+    table.insert(LARGE, Entry.DEFAULT_LOCALE, large);
+    mpq = MPQ.loadFromFile(new FileHandle(table.write(folder.newFile("cache.mpq"))));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Gdx.app.exit();
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    MPQCache cache = new MPQCache(BUDGET);
+    for (int i = 0; i < 4; i++) cache.put(mpq, i, new byte[BUDGET / 4]);
+    assertEquals(BUDGET, cache.size());
+    assertNotNull(cache.get(mpq, 0));
+    cache.put(mpq, 4, new byte[BUDGET / 4]);
+    assertNull(cache.get(mpq, 1));
+    assertNotNull(cache.get(mpq, 0));
+    assertNotNull(cache.get(mpq, 4));
+    assertEquals(1, cache.evictions());
+    assertEquals(4, cache.count());
+    assertEquals(BUDGET, cache.size());
+  }
+
+  @Test
+  public void staysWithinBudget() {
+    Random random = new Random(SEED);
+    MPQCache cache = new MPQCache(BUDGET);
+    for (int i = 0; i < PUTS; i++) {
+      cache.put(mpq, random.nextInt(16), new byte[random.nextInt((int) cache.maxEntrySize() + 1)]);
+      assertTrue(cache.toString(), cache.size() <= BUDGET);
+    }
+
+    long size = 0;
+    for (int i = 0; i < 16; i++) {
+      byte[] bytes = cache.get(mpq, i);
+      if (bytes != null) size += bytes.length;
+    }
+
+    assertEquals(size, cache.size());
+    cache.setBudget(BUDGET / 4);
+    assertTrue(cache.toString(), cache.size() <= BUDGET / 4);
+    assertEquals(BUDGET / 16, cache.maxEntrySize());
+  }
+
+  @Test
+  public void bypassesEntriesLargerThanMaxEntrySize() throws IOException {
+    MPQCache cache = new MPQCache(BUDGET);
+    cache.put(mpq, 0, new byte[BUDGET / 4]);
+    cache.put(mpq, 1, new byte[BUDGET / 4 + 1]);
+    assertNotNull(cache.get(mpq, 0));
+    assertNull(cache.get(mpq, 1));
+    assertEquals(BUDGET / 4, cache.size());
+
+    mpq.setCache(cache);
+    cache.clear();
+    assertArrayEquals(large, mpq.readBytes(LARGE));
+    try (InputStream in = mpq.read(LARGE)) {
+      assertArrayEquals(large, IOUtils.toByteArray(in));
+    }
+
+    assertEquals(0, cache.count());
+    assertEquals(0, cache.evictions());
+  }
+
+  @Test
+  public void copiesOnRead() throws IOException {
+    MPQCache cache = new MPQCache(BUDGET);
+    mpq.setCache(cache);
+    byte[] first = mpq.readBytes(SMALL);
+    assertArrayEquals(small, first);
+    assertEquals(1, cache.count());
+    assertEquals(small.length, cache.size());
+
+    first[0]++;
+    byte[] second = mpq.readBytes(SMALL);
+    assertNotSame(first, second);
+    assertArrayEquals(small, second);
+    try (InputStream in = mpq.read(SMALL)) {
+      assertArrayEquals(small, IOUtils.toByteArray(in));
+    }
+
+    assertEquals(2, cache.hits());
+    assertSame(cache.get(mpq, mpq.getBlockIndex(SMALL)), cache.get(mpq, mpq.getBlockIndex(SMALL)));
+  }
+}
@@ -0,0 +1,320 @@
+package com.riiablo.mpq;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import com.riiablo.mpq.MPQ.HashTable.Entry;
+import com.google.common.base.Preconditions;
+import com.riiablo.mpq.util.Decryptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Resolves files through {@link MPQIndex} and through the per-archive lookups it replaced, which
+ * asked each archive in priority order for the file in its default locale. Archives are seeded
+ * random hash tables written to disk, with files in several locales and archives, deleted entries
+ * and probe chains wrapping around the end of the table.
+ */
+public class MPQIndexTest {
+  private static final long SEED        = 0x3F9AL;
+  private static final int  FILES       = 48;
+  private static final int  ARCHIVES    = 4;
+  private static final int  TABLES      = 16;
+  private static final int  SECTOR_SIZE = MPQ.Header.DISK_SECTOR_SIZE << 3;
+
+  private static final short[] LOCALES = { Entry.DEFAULT_LOCALE, 0x407, 0x409, 0x40c };
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void setUp() throws Exception {
+    new HeadlessApplication(new ApplicationAdapter() {}, new HeadlessApplicationConfiguration());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Gdx.app.exit();
+  }
+
+  static String fileName(int i) {
+    return "data\\global\\excel\\file" + i + ".txt";
+  }
+
+  /**
+   * Hash table of an archive being written, entries are inserted the way MPQ editors do, at the
+   * first unused or deleted slot after the offset of their file name. Files inserted with contents
+   * are stored as a single uncompressed sector, the others are empty.
+   */
+  static class Table {
+    final long[]  keys;
+    final short[] locales;
+    final int[]   blockIndexes;
+    final Map<Integer, byte[]> contents = new HashMap<>();
+    int blocks;
+
+    Table(int size) {
+      keys = new long[size];
+      locales = new short[size];
+      blockIndexes = new int[size];
+      Arrays.fill(keys, -1);
+      Arrays.fill(locales, (short) -1);
+      Arrays.fill(blockIndexes, Entry.UNUSED);
+    }
+
+    int insert(String fileName, short locale) {
+      final int mask = keys.length - 1;
+      int index = MPQ.HashTable.File.offset(fileName) & mask;
+      while (blockIndexes[index] >= 0) index = (index + 1) & mask;
+      keys[index] = MPQ.HashTable.File.key(fileName);
+      locales[index] = locale;
+      blockIndexes[index] = blocks++;
+      return index;
+    }
+
+    int insert(String fileName, short locale, byte[] bytes) {
+      Preconditions.checkArgument(bytes.length <= SECTOR_SIZE, "bytes.length(" + bytes.length + ") > " + SECTOR_SIZE);
+      final int index = insert(fileName, locale);
+      contents.put(blockIndexes[index], bytes);
+      return index;
+    }
+
+    void delete(int index) {
+      blockIndexes[index] = Entry.DELETED;
+    }
+
+    File write(File file) throws IOException {
+      final int hashTableSize = keys.length * Entry.SIZE;
+      final int blockTableSize = Math.max(blocks, 1) * MPQ.BlockTable.Block.SIZE;
+      int filesSize = 0;
+      for (byte[] bytes : contents.values()) filesSize += 8 + bytes.length;
+      final ByteBuffer buffer = ByteBuffer.allocate(MPQ.Header.SIZE + hashTableSize + blockTableSize + filesSize)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      buffer.put(MPQ.Header.HEADER.getBytes(StandardCharsets.US_ASCII));
+      buffer.putInt(MPQ.Header.SIZE);
+      buffer.putInt(buffer.capacity());
+      buffer.putShort((short) 0); // formatVersion
+      buffer.putShort((short) 3); // blockSize, see SECTOR_SIZE
+      buffer.putInt(MPQ.Header.SIZE);
+      buffer.putInt(MPQ.Header.SIZE + hashTableSize);
+      buffer.putInt(keys.length);
+      buffer.putInt(Math.max(blocks, 1));
+      for (int i = 0; i < keys.length; i++) {
+        buffer.putLong(keys[i]);
+        buffer.putShort(locales[i]);
+        buffer.putShort(Entry.DEFAULT_PLATFORM);
+        buffer.putInt(blockIndexes[i]);
+      }
+
+      int filePos = MPQ.Header.SIZE + hashTableSize + blockTableSize;
+      for (int i = 0; i < blocks; i++) {
+        final byte[] bytes = contents.get(i);
+        if (bytes == null) {
+          buffer.position(buffer.position() + MPQ.BlockTable.Block.SIZE);
+          continue;
+        }
+
+        buffer.putInt(filePos);
+        buffer.putInt(8 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.putInt(MPQ.BlockTable.Block.FLAG_EXISTS | MPQ.BlockTable.Block.FLAG_COMPRESSED);
+        // sector offsets table followed by the sector, which is stored as-is since it's full size
+        buffer.putInt(filePos, 8);
+        buffer.putInt(filePos + 4, 8 + bytes.length);
+        System.arraycopy(bytes, 0, buffer.array(), filePos + 8, bytes.length);
+        filePos += 8 + bytes.length;
+      }
+
+      encrypt(Decryptor.HASH_TABLE_KEY, buffer, MPQ.Header.SIZE, hashTableSize);
+      encrypt(Decryptor.BLOCK_TABLE_KEY, buffer, MPQ.Header.SIZE + hashTableSize, blockTableSize);
+      try (OutputStream out = new FileOutputStream(file)) {
+        out.write(buffer.array());
+      }
+
+      return file;
+    }
+  }
+
+  /**
+   * Inverse of {@link Decryptor#decrypt(int, ByteBuffer)}.
+   */
+  static void encrypt(int key, ByteBuffer buffer, int offset, int length) {
+    final int[] table = Decryptor.LOOKUP_TABLE[4];
+    int seed = 0xEEEEEEEE;
+    for (int i = offset, end = offset + length; i < end; i += 4) {
+      seed += table[key & 0xFF];
+      final int block = buffer.getInt(i);
+      buffer.putInt(i, block ^ (key + seed));
+      seed += block + (seed << 5) + 3;
+      key = (~key << 0x15) + 0x11111111 | key >>> 0x0B;
+    }
+  }
+
+  /**
+   * @return a table with a random subset of the files in random locales, and a few deleted entries
+   */
+  static Table table(Random random, int size) {
+    final Table table = new Table(size);
+    final List<Integer> files = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) files.add(i);
+    Collections.shuffle(files, random);
+    final int count = Math.min(size * 3 / 4, FILES);
+    for (int i = 0; i < count; ) {
+      final String fileName = fileName(files.get(i % FILES));
+      if (random.nextInt(8) == 0) {
+        table.delete(table.insert(fileName, LOCALES[random.nextInt(LOCALES.length)]));
+      } else {
+        final int locales = Math.min(1 + random.nextInt(LOCALES.length), count - i);
+        final int first = random.nextInt(LOCALES.length);
+        for (int j = 0; j < locales; j++) {
+          table.insert(fileName, LOCALES[(first + j) % LOCALES.length]);
+        }
+
+        i += locales - 1;
+      }
+
+      i++;
+    }
+
+    return table;
+  }
+
+  MPQ load(Table table, String name) throws IOException {
+    return MPQ.loadFromFile(new FileHandle(table.write(folder.newFile(name))));
+  }
+
+  /**
+   * @return the archive the file used to resolve to, by asking each archive in order
+   */
+  static MPQ scan(List<MPQ> mpqs, String fileName) {
+    for (MPQ mpq : mpqs) {
+      if (mpq.contains(fileName)) return mpq;
+    }
+
+    return null;
+  }
+
+  static void assertResolves(List<MPQ> mpqs, MPQIndex index, String fileName) {
+    final MPQ expected = scan(mpqs, fileName);
+    final int slot = index.find(fileName);
+    assertEquals(fileName, expected != null, slot != -1);
+    assertEquals(fileName, expected != null, index.contains(fileName));
+    if (expected == null) return;
+    assertSame(fileName, expected, index.archive(slot));
+    assertEquals(fileName, expected.getBlockIndex(fileName), index.blockIndex(slot));
+  }
+
+  @Test
+  public void matchesPerArchiveLookup() throws IOException {
+    Random random = new Random(SEED);
+    for (int i = 0; i < TABLES; i++) {
+      final List<MPQ> mpqs = new ArrayList<>();
+      final int size = 1 << (4 + random.nextInt(3));
+      for (int j = 0; j < ARCHIVES; j++) mpqs.add(load(table(random, size), i + "-" + j + ".mpq"));
+
+      final MPQIndex index = new MPQIndex(mpqs);
+      for (int j = 0; j < FILES; j++) assertResolves(mpqs, index, fileName(j));
+      assertResolves(mpqs, index, "data\\global\\excel\\missing.txt");
+      assertResolves(mpqs, index, fileName(0).replace('\\', '/').toUpperCase());
+    }
+  }
+
+  @Test
+  public void defaultLocaleWins() throws IOException {
+    final String fileName = fileName(0);
+    final Table table = new Table(16);
+    table.insert(fileName, (short) 0x407);
+    final int expected = table.blocks;
+    table.insert(fileName, Entry.DEFAULT_LOCALE);
+    table.insert(fileName, (short) 0x409);
+    final MPQ mpq = load(table, "locales.mpq");
+    final MPQIndex index = new MPQIndex(Collections.singletonList(mpq));
+    assertEquals(expected, mpq.getBlockIndex(fileName));
+    assertEquals(expected, index.blockIndex(index.find(fileName)));
+  }
+
+  @Test
+  public void firstLocaleInProbeOrderWithoutDefault() throws IOException {
+    // occupy every slot from the offset of the file to the end of the table, so its entries are
+    // inserted into the last slot and then wrap around to the first one
+    final String fileName = fileName(0);
+    final Table table = new Table(16);
+    for (int i = MPQ.HashTable.File.offset(fileName) & 15, j = 1; i < 15; i++, j++) {
+      table.keys[i] = MPQ.HashTable.File.key(fileName(j));
+      table.locales[i] = Entry.DEFAULT_LOCALE;
+      table.blockIndexes[i] = table.blocks++;
+    }
+
+    assertEquals(15, table.insert(fileName, (short) 0x407));
+    assertEquals(0, table.insert(fileName, (short) 0x409));
+    final MPQ mpq = load(table, "wrapped.mpq");
+    final MPQIndex index = new MPQIndex(Collections.singletonList(mpq));
+    assertEquals(table.blockIndexes[15], mpq.getBlockIndex(fileName));
+    assertEquals(table.blockIndexes[15], index.blockIndex(index.find(fileName)));
+  }
+
+  @Test
+  public void resolverRebuildsOnAdd() throws IOException {
+    Random random = new Random(SEED);
+    final File home = folder.newFolder("home");
+    final String[] names = {
+        "patch_d2", "d2exp", "d2xmusic", "d2xtalk", "d2xvideo", "d2data",
+        "d2char", "d2sfx", "d2music", "d2speech", "d2video",
+    };
+    for (String name : names) table(random, 32).write(new File(home, name + ".mpq"));
+
+    final MPQFileHandleResolver resolver = new MPQFileHandleResolver(new FileHandle(home));
+    final List<MPQ> mpqs = new ArrayList<>(Arrays.asList(
+        resolver.patch_d2, resolver.d2exp, resolver.d2xmusic, resolver.d2xtalk, resolver.d2xvideo,
+        resolver.d2data, resolver.d2char, resolver.d2sfx, resolver.d2music, resolver.d2speech,
+        resolver.d2video));
+    assertSame(resolver.index(), resolver.index());
+    for (int i = 0; i < FILES; i++) {
+      final String fileName = fileName(i);
+      final MPQ expected = scan(mpqs, fileName);
+      final MPQFileHandle handle = (MPQFileHandle) resolver.resolve(fileName);
+      assertEquals(fileName, expected != null, handle != null);
+      assertEquals(fileName, expected != null, resolver.contains(fileName));
+      if (handle == null) continue;
+      assertSame(fileName, expected, handle.mpq);
+      assertEquals(fileName, expected.getBlockIndex(fileName), handle.blockIndex);
+    }
+
+    final Table table = new Table(16);
+    table.insert("data\\global\\excel\\added.txt", Entry.DEFAULT_LOCALE);
+    final MPQIndex before = resolver.index();
+    assertNull(resolver.resolve("data\\global\\excel\\added.txt"));
+    final MPQ added = resolver.add(load(table, "added.mpq"));
+    assertTrue(before != resolver.index());
+    final MPQFileHandle handle = (MPQFileHandle) resolver.resolve("data\\global\\excel\\added.txt");
+    assertNotNull(handle);
+    assertSame(added, handle.mpq);
+  }
+}
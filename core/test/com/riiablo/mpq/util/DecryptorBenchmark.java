@@ -0,0 +1,101 @@
+package com.riiablo.mpq.util;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Compares MB/s of {@link Decryptor#decrypt(int, ByteBuffer)} in place against decrypting into a
+ * duplicate of the buffer with {@link Decryptor#decrypt(int, ByteBuffer, ByteBuffer)}, the way it
+ * used to, on a hash table and on 4 KiB sectors. The hash table is read from the archive given as
+ * the first argument, e.g., {@code patch_d2.mpq}, otherwise it's {@link #TABLE_ENTRIES} random
+ * entries.
+ * <pre>
+ * java -cp ... com.riiablo.mpq.util.DecryptorBenchmark [patch_d2.mpq]
+ * </pre>
+ */
+public class DecryptorBenchmark {
+  private static final String TAG = "DecryptorBenchmark";
+
+  static final long SEED          = 0xDEC7L;
+  static final int  TABLE_ENTRIES = 1 << 15;
+  static final int  ENTRY_SIZE    = 16;
+  static final int  SECTOR_SIZE   = 4096;
+  static final int  SECTORS       = 256;
+  static final int  WARMUP        = 2000;
+  static final int  PASSES        = 4000;
+  static final int  ROUNDS        = 3;
+
+  /** keeps the decryption from being optimized away */
+  static volatile int sink;
+
+  public static void main(String[] args) throws IOException {
+    final Random random = new Random(SEED);
+    final ByteBuffer table = args.length > 0 ? hashTable(args[0]) : random(random, TABLE_ENTRIES * ENTRY_SIZE);
+    final ByteBuffer sectors = random(random, SECTORS * SECTOR_SIZE);
+    for (int round = 0; round < ROUNDS; round++) {
+      System.out.printf("%s hash table (%d KiB) round %d: copy %.0f MB/s, in place %.0f MB/s%n",
+          TAG, table.capacity() >> 10, round,
+          run(table, table.capacity(), false), run(table, table.capacity(), true));
+      System.out.printf("%s %d B sectors round %d: copy %.0f MB/s, in place %.0f MB/s%n",
+          TAG, SECTOR_SIZE, round,
+          run(sectors, SECTOR_SIZE, false), run(sectors, SECTOR_SIZE, true));
+    }
+  }
+
+  static ByteBuffer random(Random random, int size) {
+    final byte[] bytes = new byte[size];
+    random.nextBytes(bytes);
+    return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Reads the still encrypted hash table of the given archive.
+   */
+  static ByteBuffer hashTable(String path) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+      final ByteBuffer header = ByteBuffer.allocate(0x20).order(ByteOrder.LITTLE_ENDIAN);
+      file.readFully(header.array());
+      final long offset = header.getInt(0x10) & 0xFFFFFFFFL;
+      final int entries = header.getInt(0x18);
+      final byte[] bytes = new byte[entries * ENTRY_SIZE];
+      file.seek(offset);
+      file.readFully(bytes);
+      return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+  }
+
+  /**
+   * Decrypts {@code buffer} in blocks of {@code blockSize} bytes, each with its own key, the way
+   * sectors of a file are, for about {@link #PASSES} blocks or at least one pass.
+   *
+   * @return MB/s
+   */
+  static double run(ByteBuffer buffer, int blockSize, boolean inPlace) {
+    final int blocks = buffer.capacity() / blockSize;
+    final int passes = Math.max(PASSES / blocks, 1), warmup = Math.max(WARMUP / blocks, 1);
+    int checksum = 0;
+    for (int i = 0; i < warmup; i++) checksum += pass(buffer, blockSize, inPlace);
+    final long start = System.nanoTime();
+    for (int i = 0; i < passes; i++) checksum += pass(buffer, blockSize, inPlace);
+    final double seconds = (System.nanoTime() - start) / 1e9;
+    sink = checksum;
+    return (double) passes * blocks * blockSize / seconds / 1e6;
+  }
+
+  static int pass(ByteBuffer buffer, int blockSize, boolean inPlace) {
+    for (int i = 0, position = 0, limit = buffer.capacity(); position < limit; i++, position += blockSize) {
+      buffer.limit(position + blockSize).position(position);
+      if (inPlace) {
+        Decryptor.decrypt(Decryptor.HASH_TABLE_KEY + i, buffer);
+      } else {
+        Decryptor.decrypt(Decryptor.HASH_TABLE_KEY + i, buffer, buffer.duplicate());
+      }
+    }
+
+    buffer.clear();
+    return buffer.getInt(0);
+  }
+}
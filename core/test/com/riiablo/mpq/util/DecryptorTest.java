@@ -0,0 +1,78 @@
+package com.riiablo.mpq.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Decrypts seeded random buffers in place with {@link Decryptor#decrypt(int, ByteBuffer)} and with
+ * {@link Decryptor#decrypt(int, ByteBuffer, ByteBuffer)}, which it used to delegate to with a
+ * duplicate of the buffer. Buffers are heap and direct, start at non-zero positions and end with a
+ * partial block, which neither decrypts.
+ */
+public class DecryptorTest {
+  private static final long SEED    = 0xDEC7L;
+  private static final int  BUFFERS = 512;
+  private static final int  LENGTH  = 4096;
+
+  static ByteBuffer allocate(boolean direct, int capacity) {
+    return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+  }
+
+  @Test
+  public void inPlaceMatchesCopy() {
+    Random random = new Random(SEED);
+    for (int i = 0; i < BUFFERS; i++) {
+      final int key = random.nextInt();
+      final int length = random.nextInt(LENGTH);
+      final int position = random.nextInt(16), padding = random.nextInt(16);
+      final byte[] bytes = new byte[position + length + padding];
+      random.nextBytes(bytes);
+
+      ByteBuffer expected = ByteBuffer.wrap(bytes.clone());
+      expected.position(position).limit(position + length);
+      Decryptor.decrypt(key, expected.duplicate(), expected.duplicate());
+
+      ByteBuffer actual = allocate(random.nextBoolean(), bytes.length);
+      actual.put(bytes).position(position).limit(position + length);
+      assertEquals(actual, Decryptor.decrypt(key, actual));
+      assertEquals(position + length, actual.position());
+
+      actual.clear();
+      expected.clear();
+      assertEquals("key=" + key + " length=" + length, expected, actual);
+    }
+  }
+
+  @Test
+  public void intsMatchBytes() {
+    Random random = new Random(SEED);
+    for (int i = 0; i < BUFFERS; i++) {
+      final int key = random.nextInt();
+      final int length = random.nextInt(LENGTH / 4), offset = random.nextInt(4);
+      final int[] ints = new int[offset + length + random.nextInt(4)];
+      for (int j = 0; j < ints.length; j++) ints[j] = random.nextInt();
+
+      ByteBuffer expected = ByteBuffer.allocate(length * 4).order(ByteOrder.LITTLE_ENDIAN);
+      expected.asIntBuffer().put(ints, offset, length);
+      Decryptor.decrypt(key, expected);
+      final int[] original = ints.clone();
+      Decryptor.decrypt(key, ints, offset, length);
+      for (int j = 0; j < ints.length; j++) {
+        assertEquals("key=" + key + " [" + j + "]",
+            offset <= j && j < offset + length ? expected.getInt((j - offset) * 4) : original[j],
+            ints[j]);
+      }
+    }
+  }
+
+  @Test
+  public void tableKeys() {
+    assertEquals(Decryptor.HASH_TABLE_KEY, Decryptor.HASH_ENCRYPTION_KEY.hash("(hash table)"));
+    assertEquals(Decryptor.BLOCK_TABLE_KEY, Decryptor.HASH_ENCRYPTION_KEY.hash("(block table)"));
+  }
+}
@@ -0,0 +1,105 @@
+package com.riiablo.mpq.util;
+
+import org.junit.Test;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Decodes seeded random bitstreams with every probability table. Random bits decode to symbols at
+ * the rates implied by the current tree, so streams regularly hit 0x101 and add values, changing
+ * the tree after the lookup table has been built, and end on either 0x100 or underflow.
+ */
+public class HuffmanTest {
+  private static final int TYPES   = 9;
+  private static final int STREAMS = 32;
+  private static final int LENGTH  = 4096;
+
+  /** CRC32 of {@link #decodeAll} for each type using the original tree-walk decoder */
+  private static final long[] GOLDEN = {
+      0x8650A71AL, 0x4908F595L, 0xA844E3E2L, 0x31BC65D4L, 0x675BC9AFL,
+      0x519A73B1L, 0xA9B96825L, 0xBFBF1683L, 0xE52ED88BL,
+  };
+
+  static byte[] stream(int type, int seed) {
+    byte[] bytes = new byte[LENGTH];
+    new Random(31L * type + seed).nextBytes(bytes);
+    bytes[0] = (byte) type;
+    return bytes;
+  }
+
+  /**
+   * @return decoded bytes, followed by {@code 1} if the stream ended on 0x100, or {@code 0} if it
+   *         ran out of input
+   */
+  static byte[] decode(Huffman huffman, byte[] in) {
+    ByteBuffer out = ByteBuffer.allocate(in.length * 8 + 1);
+    boolean eof;
+    try {
+      huffman.decompress(ByteBuffer.wrap(in), out);
+      eof = true;
+    } catch (BufferUnderflowException e) {
+      eof = false;
+    }
+
+    out.put((byte) (eof ? 1 : 0));
+    return Arrays.copyOf(out.array(), out.position());
+  }
+
+  /**
+   * Decodes every stream of {@code type} with one decoder, as {@link Decompressor.Context} reuses
+   * its decoder across sectors.
+   */
+  static long decodeAll(Huffman huffman, int type) {
+    CRC32 crc = new CRC32();
+    for (int seed = 0; seed < STREAMS; seed++) crc.update(decode(huffman, stream(type, seed)));
+    return crc.getValue();
+  }
+
+  private static Huffman treeWalk() {
+    Huffman huffman = new Huffman();
+    huffman.lookupThreshold = Integer.MAX_VALUE;
+    return huffman;
+  }
+
+  @Test
+  public void lookupMatchesTreeWalk() {
+    for (int type = 0; type < TYPES; type++) {
+      Huffman expected = treeWalk(), lookup = new Huffman(), eager = new Huffman();
+      eager.lookupThreshold = 0;
+      for (int seed = 0; seed < STREAMS; seed++) {
+        byte[] in = stream(type, seed);
+        byte[] out = decode(expected, in);
+        assertArrayEquals("type " + type + " seed " + seed, out, decode(lookup, in));
+        assertArrayEquals("type " + type + " seed " + seed + " eager", out, decode(eager, in));
+      }
+
+      assertEquals(0, expected.lookupBuilds);
+    }
+  }
+
+  @Test
+  public void lookupRebuiltAfterTreeChanges() {
+    for (int type = 1; type < TYPES; type++) {
+      Huffman huffman = new Huffman();
+      decodeAll(huffman, type);
+      // at least one rebuild per stream, plus ones after values were added mid-stream
+      assertTrue("type " + type + " built " + huffman.lookupBuilds, huffman.lookupBuilds > STREAMS);
+    }
+  }
+
+  @Test
+  public void matchesGolden() {
+    for (int type = 0; type < TYPES; type++) {
+      assertEquals("type " + type + " tree walk", GOLDEN[type], decodeAll(treeWalk(), type));
+      assertEquals("type " + type + " lookup", GOLDEN[type], decodeAll(new Huffman(), type));
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package com.riiablo.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates an {@code EntryBinder} for the entry class of each {@code Excel} being compiled, which
+ * creates entries with {@code new} and assigns each of their public {@code @Column} fields,
+ * including inherited ones, directly instead of through {@link java.lang.reflect.Field}. The
+ * binder of {@code MonStats.Entry} is {@code MonStats_EntryBinder}, in the same package.
+ * <p>
+ * Annotations are matched by name, so this module doesn't depend on core.
+ */
+@SupportedAnnotationTypes(ExcelBinderProcessor.COLUMN)
+public class ExcelBinderProcessor extends AbstractProcessor {
+  static final String EXCEL  = "com.riiablo.codec.excel.Excel";
+  static final String ENTRY  = EXCEL + ".Entry";
+  static final String COLUMN = ENTRY + ".Column";
+  static final String BINDER = "com.riiablo.codec.excel.EntryBinder";
+  static final String TXT    = "com.riiablo.codec.TXT";
+  static final String SUFFIX = "Binder";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (annotations.isEmpty()) return false;
+    final Elements elements = processingEnv.getElementUtils();
+    final Types types = processingEnv.getTypeUtils();
+    final TypeElement excel = elements.getTypeElement(EXCEL);
+    final TypeElement entry = elements.getTypeElement(ENTRY);
+    if (excel == null || entry == null) return false;
+
+    final TypeMirror excelType = types.erasure(excel.asType());
+    final TypeMirror entryType = types.erasure(entry.asType());
+    for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+      if (type.getModifiers().contains(Modifier.ABSTRACT)) continue;
+      if (!types.isSubtype(types.erasure(type.asType()), excelType)) continue;
+      for (TypeElement member : ElementFilter.typesIn(type.getEnclosedElements())) {
+        if (!types.isSubtype(types.erasure(member.asType()), entryType)) continue;
+        // same as Excel.getEntryClass, the first declared class which is an entry
+        if (isInstantiable(member)) generate(member, entry, types);
+        break;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean isInstantiable(TypeElement type) {
+    final Set<Modifier> modifiers = type.getModifiers();
+    return type.getKind() == ElementKind.CLASS
+        && modifiers.contains(Modifier.STATIC)
+        && !modifiers.contains(Modifier.ABSTRACT)
+        && !modifiers.contains(Modifier.PRIVATE);
+  }
+
+  /**
+   * Column fields of {@code type} and its superclasses, declared ones first. A field hides any of
+   * its superclasses with the same name, as {@code Class#getField} resolves it.
+   */
+  private static List<VariableElement> columns(TypeElement type, TypeElement entry, Types types) {
+    final List<VariableElement> fields = new ArrayList<>();
+    final Set<String> names = new HashSet<>();
+    for (TypeElement t = type; t != null && !t.equals(entry); t = superclass(t, types)) {
+      for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+        final Set<Modifier> modifiers = field.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)) continue;
+        if (!isColumn(field)) continue;
+        if (names.add(field.getSimpleName().toString())) fields.add(field);
+      }
+    }
+
+    return fields;
+  }
+
+  private static TypeElement superclass(TypeElement type, Types types) {
+    final TypeMirror superclass = type.getSuperclass();
+    return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) types.asElement(superclass) : null;
+  }
+
+  private static boolean isColumn(Element field) {
+    for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+      final TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+      if (type.getQualifiedName().contentEquals(COLUMN)) return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * @return the {@code TXT} getter reading the field, or {@code null} if its type isn't supported
+   */
+  private static String getter(TypeMirror type) {
+    switch (type.getKind()) {
+      case BYTE:    return "getByte";
+      case SHORT:   return "getShort";
+      case INT:     return "getInt";
+      case LONG:    return "getLong";
+      case BOOLEAN: return "getBoolean";
+      case DECLARED:
+        final TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.String") ? "getString" : null;
+      default:
+        return null;
+    }
+  }
+
+  private void generate(TypeElement type, TypeElement entry, Types types) {
+    final Messager messager = processingEnv.getMessager();
+    final Elements elements = processingEnv.getElementUtils();
+    final PackageElement pkg = elements.getPackageOf(type);
+    final String packageName = pkg.getQualifiedName().toString();
+    final String entryName = type.getQualifiedName().toString().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+    final String binderName = entryName.replace('.', '_') + SUFFIX;
+    final List<VariableElement> fields = columns(type, entry, types);
+
+    final List<String> statements = new ArrayList<>(fields.size());
+    for (int i = 0; i < fields.size(); i++) {
+      final VariableElement field = fields.get(i);
+      if (field.getModifiers().contains(Modifier.FINAL)) {
+        messager.printMessage(Diagnostic.Kind.ERROR, "Column fields cannot be final", field);
+        return;
+      }
+
+      TypeMirror fieldType = field.asType();
+      final boolean array = fieldType.getKind() == TypeKind.ARRAY;
+      if (array) fieldType = ((ArrayType) fieldType).getComponentType();
+      final String getter = getter(fieldType);
+      if (getter == null) {
+        messager.printMessage(Diagnostic.Kind.ERROR, "No support for " + field.asType() + " fields", field);
+        return;
+      }
+
+      statements.add(String.format("entry.%s = txt.%s(row, %s[%d]);",
+          field.getSimpleName(), getter, array ? "columns" : "column", i));
+    }
+
+    final String qualifiedName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+    try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())) {
+      if (!packageName.isEmpty()) {
+        out.printf("package %s;%n%n", packageName);
+      }
+
+      out.printf("import %s;%n", TXT);
+      out.printf("import %s;%n%n", BINDER);
+      out.printf("/** Generated by %s, do not edit. */%n", getClass().getName());
+      out.printf("public final class %s extends EntryBinder<%s> {%n", binderName, entryName);
+      out.printf("  static final String[] FIELDS = {%n");
+      for (VariableElement field : fields) out.printf("    \"%s\",%n", field.getSimpleName());
+      out.printf("  };%n%n");
+      out.printf("  @Override%n");
+      out.printf("  public String[] fields() {%n");
+      out.printf("    return FIELDS;%n");
+      out.printf("  }%n%n");
+      out.printf("  @Override%n");
+      out.printf("  public %s newEntry() {%n", entryName);
+      out.printf("    return new %s();%n", entryName);
+      out.printf("  }%n%n");
+      out.printf("  @Override%n");
+      out.printf("  public void bind(TXT txt, int row, %s entry) {%n", entryName);
+      out.printf("    final int[] column = this.column;%n");
+      out.printf("    final int[][] columns = this.columns;%n");
+      for (String statement : statements) out.printf("    %s%n", statement);
+      out.printf("  }%n");
+      out.printf("}%n");
+    } catch (IOException e) {
+      messager.printMessage(Diagnostic.Kind.ERROR, "Couldn't write " + qualifiedName + ": " + e, type);
+    }
+  }
+}